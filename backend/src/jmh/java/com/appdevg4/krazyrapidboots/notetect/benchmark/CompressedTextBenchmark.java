@@ -0,0 +1,66 @@
+package com.appdevg4.krazyrapidboots.notetect.benchmark;
+
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading note content through CompressedTextConverter for notes of growing
+ * size, from below the compression threshold (stored plain) to a long study guide.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CompressedTextBenchmark {
+    private static final String[] WORDS = ("the cell membrane regulates transport of molecules across its lipid "
+            + "bilayer while mitochondria produce energy through oxidative phosphorylation and glycolysis in the "
+            + "cytoplasm enzymes lower activation energy for reactions supply demand equilibrium price elasticity")
+            .split(" ");
+
+    @Param({ "512", "4096", "32768", "262144" })
+    public int noteBytes;
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+    private String content;
+    private byte[] stored;
+
+    @Setup
+    public void setup() {
+        // Markdown bullets of prose, like a generated summary
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder("# Summary\n\n");
+        while (text.length() < noteBytes) {
+            text.append("- ");
+            for (int w = 8 + random.nextInt(8); w > 0; w--) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(w > 1 ? " " : ".\n");
+            }
+        }
+        content = text.substring(0, noteBytes);
+        stored = converter.convertToDatabaseColumn(content);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return converter.convertToDatabaseColumn(content);
+    }
+
+    @Benchmark
+    public String read() {
+        return converter.convertToEntityAttribute(stored);
+    }
+}
@@ -0,0 +1,79 @@
+package com.appdevg4.krazyrapidboots.notetect.benchmark;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the Note and Folder lists returned by the list endpoints, with an
+ * ObjectMapper built the way Spring configures the one used for responses.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+    private static final int CONTENT_BYTES = 3000;
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Note> notes;
+    private List<Folder> folders;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Subject subject = new Subject();
+        subject.setId(1);
+        subject.setName("Biology");
+
+        String content = "- Mitochondria produce energy through oxidative phosphorylation.\n"
+                .repeat(CONTENT_BYTES / 64);
+        folders = new ArrayList<>(size);
+        notes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Folder folder = new Folder();
+            folder.setId(i + 1);
+            folder.setName("Folder " + i);
+            folder.setSubject(subject);
+            folders.add(folder);
+
+            notes.add(new Note(i + 1, content, "Note " + i, "lecture" + i + ".pdf",
+                    Instant.parse("2025-01-01T00:00:00Z"), "SUMMARY", null, folder));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeNotes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(notes);
+    }
+
+    @Benchmark
+    public byte[] serializeFolders() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(folders);
+    }
+}
@@ -0,0 +1,101 @@
+package com.appdevg4.krazyrapidboots.notetect.benchmark;
+
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtUtil on the request path: issuing a token at login, and checking the cookie on every
+ * request with the token already in the verified-token cache (the usual case). For
+ * comparison, the check as the authentication filter did it before the cache: validateToken
+ * and then getUserIdFromToken, each building a parser and verifying the signature.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+    private JwtUtil jwtUtil;
+    private PreviousJwtUtil previous;
+    private String token;
+
+    // JwtUtil's token checks as they were before verified tokens were cached, kept as they were
+    static final class PreviousJwtUtil {
+        private static final String SECRET_KEY = "your-very-secure-secret-key-that-is-at-least-32-characters-long";
+
+        private final SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+
+        boolean validateToken(String token) {
+            try {
+                Jwts.parser()
+                        .verifyWith(key)
+                        .build()
+                        .parseSignedClaims(token);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        Integer getUserIdFromToken(String token) {
+            Claims claims = Jwts.parser()
+                    .verifyWith(key)
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+
+            return Integer.parseInt(claims.getSubject());
+        }
+    }
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        previous = new PreviousJwtUtil();
+        token = jwtUtil.generateToken(42);
+        jwtUtil.verifyToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(42);
+    }
+
+    // What JwtAuthenticationFilter does per request
+    @Benchmark
+    public Integer verifyToken() {
+        return jwtUtil.verifyToken(token);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Integer getUserIdFromToken() {
+        return jwtUtil.getUserIdFromToken(token);
+    }
+
+    // What the filter did per request before: two parses, two signature checks
+    @Benchmark
+    public Integer previousValidateThenExtract() {
+        return previous.validateToken(token) ? previous.getUserIdFromToken(token) : null;
+    }
+}
@@ -0,0 +1,91 @@
+package com.appdevg4.krazyrapidboots.notetect.benchmark;
+
+import com.appdevg4.krazyrapidboots.notetect.config.JwtAuthenticationFilter;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtAuthenticationFilter for one request: finding the token cookie among the cookies a
+ * browser typically sends, validating it and populating the security context. Run with
+ * the filter's timers discarded and with them recorded into a Prometheus registry, to
+ * show what the instrumentation costs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class JwtFilterBenchmark {
+    private final FilterChain chain = (request, response) -> { };
+
+    @Param({ "none", "prometheus" })
+    public String metrics;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest authenticated;
+    private MockHttpServletRequest anonymous;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        JwtUtil jwtUtil = new JwtUtil();
+        filter = new JwtAuthenticationFilter(jwtUtil, meterRegistry());
+        response = new MockHttpServletResponse();
+
+        authenticated = new MockHttpServletRequest("GET", "/api/notes");
+        authenticated.setCookies(new Cookie("_ga", "GA1.1.1234567890.1700000000"),
+                new Cookie("theme", "dark"),
+                new Cookie("token", jwtUtil.generateToken(42)),
+                new Cookie("sidebar", "expanded"));
+
+        anonymous = new MockHttpServletRequest("GET", "/api/notes");
+        anonymous.setCookies(new Cookie("_ga", "GA1.1.1234567890.1700000000"), new Cookie("theme", "dark"));
+    }
+
+    private MeterRegistry meterRegistry() {
+        if ("prometheus".equals(metrics)) {
+            return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        }
+        // Denied meters are no-ops
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(MeterFilter.deny());
+        return registry;
+    }
+
+    @Benchmark
+    public void authenticatedRequest() throws ServletException, IOException {
+        filter.doFilter(authenticated, response, chain);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void requestWithoutToken() throws ServletException, IOException {
+        filter.doFilter(anonymous, response, chain);
+        SecurityContextHolder.clearContext();
+    }
+}
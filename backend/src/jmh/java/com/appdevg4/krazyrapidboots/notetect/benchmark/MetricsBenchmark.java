@@ -0,0 +1,58 @@
+package com.appdevg4.krazyrapidboots.notetect.benchmark;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one sample into the kind of timers each request updates: the
+ * http.server.requests and spring.data.repository.invocations timers carry a percentile
+ * histogram, the application timers do not. Tag lookup is included, as it is per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private PrometheusMeterRegistry registry;
+
+    @Setup
+    public void setup() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    }
+
+    @Benchmark
+    public void histogramTimer() {
+        Timer.builder("http.server.requests")
+                .tags("method", "GET", "uri", "/api/notes/{id}", "status", "200", "outcome", "SUCCESS")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry)
+                .record(ThreadLocalRandom.current().nextLong(1_000_000, 50_000_000), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public void plainTimer() {
+        Timer.builder("notetect.jwt.filter")
+                .tag("outcome", "authenticated")
+                .register(registry)
+                .record(ThreadLocalRandom.current().nextLong(1_000, 50_000), TimeUnit.NANOSECONDS);
+    }
+}
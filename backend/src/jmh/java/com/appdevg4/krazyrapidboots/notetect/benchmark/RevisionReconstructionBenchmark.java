@@ -0,0 +1,77 @@
+package com.appdevg4.krazyrapidboots.notetect.benchmark;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.NoteRevision;
+import com.appdevg4.krazyrapidboots.notetect.service.NoteRevisionService;
+import com.appdevg4.krazyrapidboots.notetect.util.TextDiff;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilding a revision of a note of about 16 KB from its snapshot and the diffs after it,
+ * for growing chain lengths (the snapshot interval caps the length, 20 by default).
+ * Each edit rewrites a few lines spread over the note, like ticking off action items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RevisionReconstructionBenchmark {
+    private static final int LINES = 250;
+
+    @Param({ "1", "5", "10", "20", "50", "100" })
+    public int chainLength;
+
+    private ObjectMapper objectMapper;
+    private List<NoteRevision> chain;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        chain = new ArrayList<>(chainLength);
+
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            lines.add("- [ ] Item " + i + ": review the lecture notes on cellular respiration\n");
+        }
+        String content = String.join("", lines);
+        NoteRevision snapshot = new NoteRevision();
+        snapshot.setSeq(1);
+        snapshot.setSnapshot(true);
+        snapshot.setData(content);
+        chain.add(snapshot);
+
+        for (int seq = 2; seq <= chainLength; seq++) {
+            for (int line = seq % 7; line < LINES; line += 60) {
+                lines.set(line, "- [x] Item " + line + ": reviewed in revision " + seq + "\n");
+            }
+            String next = String.join("", lines);
+            NoteRevision diff = new NoteRevision();
+            diff.setSeq(seq);
+            diff.setData(objectMapper.writeValueAsString(TextDiff.diff(content, next)));
+            chain.add(diff);
+            content = next;
+        }
+    }
+
+    @Benchmark
+    public String reconstruct() {
+        return NoteRevisionService.reconstruct(chain, objectMapper);
+    }
+}
@@ -0,0 +1,95 @@
+package com.appdevg4.krazyrapidboots.notetect.benchmark;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.service.NoteSearchService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One search in a user's notes, for growing numbers of notes of about 1 KB: ranking in the
+ * in-memory index and building the snippets of the top 20 hits. The repository hands out
+ * notes from a map, so the database round trip for the hits is left out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final Integer USER_ID = 42;
+    private static final String[] WORDS = ("cell membrane transport molecules lipid bilayer mitochondria energy "
+            + "oxidative phosphorylation glycolysis cytoplasm photosynthesis light glucose enzymes activation "
+            + "supply demand equilibrium price elasticity market monopoly competition derivative integral limit "
+            + "function continuity theorem proof vector matrix eigenvalue algorithm complexity recursion graph "
+            + "revolution empire treaty parliament constitution reform trade colony industrial economy society")
+            .split(" ");
+
+    @Param({ "1000", "10000", "50000" })
+    public int notes;
+
+    private NoteSearchService search;
+
+    @Setup
+    public void setup() {
+        Map<Integer, Note> stored = new HashMap<>();
+        NoteRepository repository = (NoteRepository) Proxy.newProxyInstance(NoteRepository.class.getClassLoader(),
+                new Class<?>[] { NoteRepository.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("findAllById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    List<Note> found = new ArrayList<>();
+                    for (Object id : (Iterable<?>) args[0]) {
+                        found.add(stored.get(id));
+                    }
+                    return found;
+                });
+        search = new NoteSearchService(repository, "target/jmh-search-index.bin");
+
+        User user = new User();
+        user.setUserId(USER_ID);
+        Random random = new Random(42);
+        for (int id = 1; id <= notes; id++) {
+            StringBuilder content = new StringBuilder();
+            while (content.length() < 1000) {
+                content.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? ". " : " ");
+            }
+            Note note = new Note();
+            note.setId(id);
+            note.setTitle(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+            note.setContent(content.toString());
+            note.setUser(user);
+            stored.put(id, note);
+            search.indexNote(note);
+        }
+    }
+
+    @Benchmark
+    public List<NoteSearchService.SearchHit> oneTerm() {
+        return search.search(USER_ID, "mitochondria", 20);
+    }
+
+    @Benchmark
+    public List<NoteSearchService.SearchHit> threeTerms() {
+        return search.search(USER_ID, "enzymes lower activation energy", 20);
+    }
+}
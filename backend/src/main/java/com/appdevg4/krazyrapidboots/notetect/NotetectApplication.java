@@ -2,8 +2,10 @@ package com.appdevg4.krazyrapidboots.notetect;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class NotetectApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,79 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache for the rarely changing entities (users, subjects and
+ * folders) and query cache for the subject and folder lookups, held in bounded local
+ * Caffeine caches.
+ *
+ * Hibernate keeps the cache consistent with changes made through JPA in this instance;
+ * CacheInvalidationListener forwards them to other instances.
+ */
+@Configuration
+public class CacheConfig {
+
+    // Region names used by the @Cache annotations on the entities
+    public static final String USER_REGION = "user";
+    public static final String SUBJECT_REGION = "subject";
+    public static final String FOLDER_REGION = "folder";
+
+    /**
+     * One cache manager per application context, so test contexts never share entries
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${notetect.cache.entity-max-entries:50000}") long entityMaxEntries,
+            @Value("${notetect.cache.query-max-entries:10000}") long queryMaxEntries,
+            @Value("${notetect.cache.ttl-minutes:60}") long ttlMinutes) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("notetect-hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : new String[] { USER_REGION, SUBJECT_REGION, FOLDER_REGION }) {
+            cacheManager.createCache(region, bounded(entityMaxEntries, ttlMinutes));
+        }
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                bounded(queryMaxEntries, ttlMinutes));
+        // Hibernate requires table timestamps to outlive every cached query result, so no bound here
+        // (there is one entry per table)
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>().setStoreByValue(false));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager,
+            @Value("${notetect.cache.enabled:true}") boolean enabled) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.putIfAbsent(AvailableSettings.USE_QUERY_CACHE, enabled);
+            properties.putIfAbsent(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.putIfAbsent(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // Every region is created above with a bound; an unknown one is a mistake
+            properties.putIfAbsent(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maxEntries, long ttlMinutes) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(ttlMinutes)));
+        // Hibernate already stores disassembled copies, so a second copy on every access is wasted
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
@@ -0,0 +1,96 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.appdevg4.krazyrapidboots.notetect.service.CacheInvalidationBroadcaster;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes every committed insert, update and delete of a second-level cached entity
+ * through the CacheInvalidationBroadcaster, and applies the ones other instances publish.
+ *
+ * A remote change evicts the entity and all cached query results: this instance's table
+ * timestamps never saw the change, so its cached queries cannot tell they are stale.
+ */
+@Component
+public class CacheInvalidationListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheInvalidationBroadcaster broadcaster;
+
+    public CacheInvalidationListener(EntityManagerFactory entityManagerFactory,
+            CacheInvalidationBroadcaster broadcaster) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.broadcaster = broadcaster;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = sessionFactory().getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        broadcaster.subscribe(this::evict);
+    }
+
+    // Drop what this instance cached for an entity changed elsewhere
+    public void evict(String entityName, Integer id) {
+        org.hibernate.Cache cache = sessionFactory().getCache();
+        cache.evictEntityData(entityName, id);
+        cache.evictDefaultQueryRegion();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    // Only cached entities are of interest
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.canWriteToCache();
+    }
+
+    private void publish(EntityPersister persister, Object id) {
+        if (persister.canWriteToCache() && id instanceof Integer integerId) {
+            broadcaster.publish(persister.getEntityName(), integerId);
+        }
+    }
+
+    private SessionFactoryImplementor sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+}
@@ -0,0 +1,53 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    // Rows per JDBC batch for inserts and updates
+    public static final int JDBC_BATCH_SIZE = 50;
+
+    /**
+     * Group inserts and updates into JDBC batches
+     */
+    @Bean
+    public HibernatePropertiesCustomizer batchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, JDBC_BATCH_SIZE);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            properties.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        };
+    }
+
+    /**
+     * Without rewriteBatchedStatements the MySQL driver sends a batch one statement at a time,
+     * and without useCursorFetch it reads a whole result set into memory regardless of fetch size
+     */
+    @Bean
+    public static BeanPostProcessor mysqlDriverPropertiesPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    applyMysqlDriverProperties(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Also applied to pools that are not beans themselves, such as the read replicas
+    public static void applyMysqlDriverProperties(HikariDataSource dataSource) {
+        if (dataSource.getJdbcUrl() != null && dataSource.getJdbcUrl().startsWith("jdbc:mysql:")) {
+            dataSource.getDataSourceProperties().putIfAbsent("rewriteBatchedStatements", "true");
+            dataSource.getDataSourceProperties().putIfAbsent("useCursorFetch", "true");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.appdevg4.krazyrapidboots.notetect.service.ChangeStreamService;
+import com.appdevg4.krazyrapidboots.notetect.service.GenerationCacheService;
+import com.appdevg4.krazyrapidboots.notetect.service.GenerationService;
+import com.appdevg4.krazyrapidboots.notetect.service.NoteContentWriteBehind;
+import com.appdevg4.krazyrapidboots.notetect.service.PasswordHashingService;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application meters on top of what Actuator already records (HTTP requests, repository
+ * invocations, Hibernate statistics, Hikari pool, JVM). Defaults such as the Prometheus
+ * endpoint and latency histograms live in metrics.properties.
+ *
+ * The services keep their own counters; these meters only read them at scrape time.
+ */
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder jwtCacheMetrics(JwtUtil jwtUtil) {
+        return registry -> {
+            FunctionCounter.builder("notetect.jwt.cache.requests", jwtUtil, JwtUtil::getCacheHits)
+                    .tag("result", "hit")
+                    .description("Token verifications answered from the verified-token cache")
+                    .register(registry);
+            FunctionCounter.builder("notetect.jwt.cache.requests", jwtUtil, JwtUtil::getCacheMisses)
+                    .tag("result", "miss")
+                    .description("Token verifications that checked the signature")
+                    .register(registry);
+            Gauge.builder("notetect.jwt.cache.size", jwtUtil, JwtUtil::getCacheSize)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(PasswordHashingService hashing) {
+        return registry -> {
+            Gauge.builder("notetect.auth.hashing.queue.depth", hashing, PasswordHashingService::getQueueDepth)
+                    .register(registry);
+            Gauge.builder("notetect.auth.hashing.running", hashing, PasswordHashingService::getRunningCount)
+                    .register(registry);
+            FunctionCounter.builder("notetect.auth.hashing.rejected", hashing, PasswordHashingService::getRejectedCount)
+                    .description("Hash requests turned away with 429 because the queue was full")
+                    .register(registry);
+            FunctionTimer.builder("notetect.auth.hashing", hashing,
+                            PasswordHashingService::getHashCount, PasswordHashingService::getTotalHashMillis,
+                            TimeUnit.MILLISECONDS)
+                    .description("Time spent hashing or checking passwords")
+                    .register(registry);
+            TimeGauge.builder("notetect.auth.hashing.max", hashing, TimeUnit.MILLISECONDS,
+                            PasswordHashingService::getMaxHashMillis)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder generationMetrics(GenerationService generation, GenerationCacheService cache) {
+        return registry -> {
+            Gauge.builder("notetect.generation.queue.depth", generation, GenerationService::getQueueDepth)
+                    .register(registry);
+            Gauge.builder("notetect.generation.running", generation, GenerationService::getRunningCount)
+                    .register(registry);
+            FunctionCounter.builder("notetect.generation.cache.requests", cache, GenerationCacheService::getMemoryHits)
+                    .tag("result", "memory")
+                    .register(registry);
+            FunctionCounter.builder("notetect.generation.cache.requests", cache, GenerationCacheService::getDatabaseHits)
+                    .tag("result", "database")
+                    .register(registry);
+            FunctionCounter.builder("notetect.generation.cache.requests", cache, GenerationCacheService::getMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("notetect.generation.cache.hit.ratio", cache, GenerationCacheService::getHitRatio)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder writeBehindMetrics(NoteContentWriteBehind writeBehind) {
+        return registry -> {
+            FunctionCounter.builder("notetect.notes.write.behind.updates", writeBehind,
+                            NoteContentWriteBehind::getUpdatesBuffered)
+                    .description("Content updates accepted into the write-behind buffer")
+                    .register(registry);
+            FunctionCounter.builder("notetect.notes.write.behind.rows", writeBehind, NoteContentWriteBehind::getRowsWritten)
+                    .description("Note rows written by write-behind flushes")
+                    .register(registry);
+            FunctionCounter.builder("notetect.notes.write.behind.batches", writeBehind,
+                            NoteContentWriteBehind::getBatchesWritten)
+                    .register(registry);
+            Gauge.builder("notetect.notes.write.behind.pending", writeBehind, NoteContentWriteBehind::getPendingCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder changeStreamMetrics(ChangeStreamService changeStream) {
+        return registry -> {
+            Gauge.builder("notetect.changes.subscribers", changeStream, ChangeStreamService::getSubscriberCount)
+                    .description("Open change streams")
+                    .register(registry);
+            FunctionCounter.builder("notetect.changes.events", changeStream, ChangeStreamService::getEventsPublished)
+                    .description("Change events published")
+                    .register(registry);
+            FunctionCounter.builder("notetect.changes.dropped", changeStream, ChangeStreamService::getSubscribersDropped)
+                    .description("Change streams closed because the client fell behind")
+                    .register(registry);
+        };
+    }
+}
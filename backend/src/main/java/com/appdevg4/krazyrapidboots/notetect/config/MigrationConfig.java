@@ -0,0 +1,17 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * The schema is owned by the Flyway migrations in db/migration, which Spring Boot runs
+ * before Hibernate starts. Locations and baseline settings live in migrations.properties.
+ *
+ * Hibernate should only check the schema (spring.jpa.hibernate.ddl-auto=validate or none);
+ * schema changes go into a new migration, with matching @Index declarations on the entities
+ * so the schemas tests generate from the entities stay the same.
+ */
+@Configuration
+@PropertySource("classpath:migrations.properties")
+public class MigrationConfig {
+}
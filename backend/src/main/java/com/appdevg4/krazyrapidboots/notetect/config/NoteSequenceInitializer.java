@@ -0,0 +1,45 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.util.Locale;
+
+/**
+ * Moves the note id sequence past ids that were handed out by the old AUTO_INCREMENT column.
+ * MySQL has no sequences, so Hibernate keeps the next value in the note_seq table.
+ */
+@Component
+public class NoteSequenceInitializer {
+    private static final Logger log = LoggerFactory.getLogger(NoteSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Taking the EntityManagerFactory makes sure the schema (and note_seq) exists first
+    public NoteSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequenceWithExistingIds() {
+        Boolean mysql = jdbcTemplate.execute((Connection con) ->
+                con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql"));
+        if (!Boolean.TRUE.equals(mysql)) {
+            return;
+        }
+
+        Integer maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM note", Integer.class);
+        // The pooled optimizer hands out the block below the stored value, so leave a full block of room
+        long floor = maxId + Note.ID_ALLOCATION_SIZE + 1L;
+        int updated = jdbcTemplate.update("UPDATE note_seq SET next_val = ? WHERE next_val < ?", floor, floor);
+        if (updated > 0) {
+            log.info("Advanced note_seq to {} (max note id {})", floor, maxId);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers which users changed their data within the last max-lag-ms, so that
+ * ReplicaRoutingDataSource sends their reads to the primary until the replicas have
+ * caught up. Without this a read in the next request could return rows a replica has
+ * not received yet, under an ETag that already counts the write.
+ *
+ * Writes through this instance are recorded when their revision is bumped. Writes
+ * through other instances show up as a revision this instance has not handed out yet,
+ * which the ETag interceptor notices before the controller reads anything.
+ * Does nothing unless read replicas are configured.
+ */
+@Component
+public class RecentWriteTracker {
+    private final boolean enabled;
+    private final Cache<Integer, Boolean> recentWrites;
+    private final Cache<Integer, String> seenRevisions;
+
+    public RecentWriteTracker(@Value("${notetect.datasource.replicas.urls:}") String replicaUrls,
+            @Value("${notetect.datasource.replicas.max-lag-ms:5000}") long maxLagMillis,
+            @Value("${notetect.datasource.replicas.tracked-users:100000}") long trackedUsers) {
+        this.enabled = !replicaUrls.isBlank();
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(trackedUsers)
+                .expireAfterWrite(Duration.ofMillis(maxLagMillis))
+                .build();
+        // Forgetting a user only costs a few reads from the primary when they come back
+        this.seenRevisions = Caffeine.newBuilder()
+                .maximumSize(trackedUsers)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    // The user's data changed just now
+    public void wrote(Integer userId) {
+        if (enabled && userId != null) {
+            recentWrites.put(userId, Boolean.TRUE);
+        }
+    }
+
+    // A request is being served under this revision of the user's data; a new one means a recent write
+    public void seen(Integer userId, String revision) {
+        if (enabled && userId != null && !revision.equals(seenRevisions.asMap().put(userId, revision))) {
+            wrote(userId);
+        }
+    }
+
+    public boolean wroteRecently(Integer userId) {
+        return enabled && userId != null && recentWrites.getIfPresent(userId) != null;
+    }
+}
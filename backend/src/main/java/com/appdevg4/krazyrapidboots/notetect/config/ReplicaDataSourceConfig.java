@@ -0,0 +1,114 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read replica routing, active when notetect.datasource.replicas.urls lists one or more
+ * JDBC URLs. The primary pool is built from spring.datasource.* as usual; each replica
+ * gets its own pool with the replica credentials (the primary's by default).
+ *
+ * To try it locally with two embedded databases:
+ * notetect.datasource.replicas.urls=jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1
+ * next to an H2 spring.datasource.url (the replica needs the same schema).
+ */
+@Configuration
+@ConditionalOnProperty(name = "notetect.datasource.replicas.urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, Environment environment,
+            @Value("${notetect.datasource.replicas.urls}") List<String> replicaUrls,
+            @Value("${notetect.datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${notetect.datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${notetect.datasource.replicas.pool-size:10}") int poolSize,
+            RecentWriteTracker recentWriteTracker) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        JpaConfig.applyMysqlDriverProperties(primary);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(replicaUrls.get(i).trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            JpaConfig.applyMysqlDriverProperties(replica);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, recentWriteTracker);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Each transaction takes its own connection, so a read-only transaction and a later
+     * write in the same request (open-in-view keeps the session) can go to different targets
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandlingCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return registry -> {
+            FunctionCounter.builder("notetect.datasource.connections", replicaRoutingDataSource,
+                            ReplicaRoutingDataSource::getPrimaryConnections)
+                    .tag("target", "primary")
+                    .description("Connections handed out, by routing target")
+                    .register(registry);
+            for (ReplicaRoutingDataSource.Target target : replicaRoutingDataSource.getReplicas()) {
+                FunctionCounter.builder("notetect.datasource.connections", target,
+                                ReplicaRoutingDataSource.Target::getConnections)
+                        .tag("target", target.getName())
+                        .description("Connections handed out, by routing target")
+                        .register(registry);
+                FunctionCounter.builder("notetect.datasource.replica.failures", target,
+                                ReplicaRoutingDataSource.Target::getFailures)
+                        .tag("target", target.getName())
+                        .register(registry);
+                Gauge.builder("notetect.datasource.replica.healthy", target, t -> t.isHealthy() ? 1 : 0)
+                        .tag("target", target.getName())
+                        .register(registry);
+            }
+            // The pools are hidden behind the routing data source, so Actuator cannot find them itself
+            for (DataSource pool : replicaRoutingDataSource.getPools()) {
+                if (pool instanceof HikariDataSource hikari
+                        && hikari.getMetricRegistry() == null && hikari.getMetricsTrackerFactory() == null) {
+                    hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,249 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out replica connections to read-only transactions the application declares
+ * (@Transactional(readOnly = true) or a read-only TransactionTemplate) and primary
+ * connections to everything else. The read-only transactions Spring Data opens around
+ * single repository calls stay on the primary, so a service that reads and then writes
+ * without a transaction of its own never bases the write on a lagging replica.
+ *
+ * Replicas are taken round-robin among the healthy ones. A replica that fails to hand out
+ * a connection is marked unhealthy until the next health check finds it valid again, and
+ * the request falls back to the next replica or the primary.
+ *
+ * Once a request has written, its later reads stay on the primary so it sees its own
+ * writes. So do the reads of a user who changed their data within the last max-lag-ms
+ * (see RecentWriteTracker), on whichever instance, since the user's ETag already counts
+ * that change. Transactions routed to a replica bypass the second-level and query caches, which
+ * could otherwise keep replica lag around long after the replica caught up.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction's read-only flag and
+ * name are only known once the transaction has begun, after the connection was requested.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource
+        implements TransactionExecutionListener, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PINNED_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".pinned";
+    private static final String REPOSITORY_TRANSACTION_PREFIX = "org.springframework.data.";
+
+    private final DataSource primary;
+    private final List<Target> replicas = new ArrayList<>();
+    private final RecentWriteTracker recentWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong primaryConnections = new AtomicLong();
+
+    public static final class Target {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+        private final AtomicLong connections = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        Target(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String getName() { return name; }
+
+        public boolean isHealthy() { return healthy; }
+
+        public long getConnections() { return connections.get(); }
+
+        public long getFailures() { return failures.get(); }
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+            RecentWriteTracker recentWrites) {
+        this.primary = primary;
+        this.recentWrites = recentWrites;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Target(name, dataSource)));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readsFromReplica()) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Target target = nextHealthy();
+                if (target == null) {
+                    break;
+                }
+                try {
+                    Connection connection = target.dataSource.getConnection();
+                    target.connections.incrementAndGet();
+                    return connection;
+                } catch (SQLException e) {
+                    target.failures.incrementAndGet();
+                    markUnhealthy(target, e);
+                }
+            }
+        } else {
+            pinIfWriting();
+        }
+        primaryConnections.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Credentials are configured per target");
+    }
+
+    /**
+     * Hibernate settles a query's cache mode before it asks for a connection, so transactions
+     * headed for a replica switch off the caches as soon as they begin
+     */
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure == null && readsFromReplica()) {
+            bypassCaches();
+        }
+    }
+
+    /**
+     * Validate every replica, returning unhealthy ones to rotation once they respond again
+     */
+    @Scheduled(fixedDelayString = "${notetect.datasource.replicas.health-check-ms:5000}")
+    public void checkHealth() {
+        for (Target target : replicas) {
+            boolean valid;
+            try (Connection connection = target.dataSource.getConnection()) {
+                valid = connection.isValid(2);
+            } catch (SQLException e) {
+                valid = false;
+            }
+            if (valid && !target.healthy) {
+                log.info("Read replica {} is healthy again", target.name);
+            } else if (!valid && target.healthy) {
+                log.warn("Read replica {} failed its health check", target.name);
+            }
+            target.healthy = valid;
+        }
+    }
+
+    public long getPrimaryConnections() { return primaryConnections.get(); }
+
+    public List<Target> getReplicas() { return replicas; }
+
+    // The primary's and every replica's own data source
+    public List<DataSource> getPools() {
+        List<DataSource> pools = new ArrayList<>();
+        pools.add(primary);
+        replicas.forEach(target -> pools.add(target.dataSource));
+        return pools;
+    }
+
+    // Called by the container on shutdown (inferred destroy method)
+    @Override
+    public void close() throws Exception {
+        for (DataSource pool : getPools()) {
+            if (pool instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private boolean readsFromReplica() {
+        if (replicas.isEmpty()
+                || !TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (name != null && name.startsWith(REPOSITORY_TRANSACTION_PREFIX)) {
+            return false;
+        }
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            return false;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !(authentication.getPrincipal() instanceof Integer userId)
+                || !recentWrites.wroteRecently(userId);
+    }
+
+    private Target nextHealthy() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Target target = replicas.get((start + i) % size);
+            if (target.healthy) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    private void markUnhealthy(Target target, SQLException e) {
+        if (target.healthy) {
+            target.healthy = false;
+            log.warn("Read replica {} unavailable, routing around it until it recovers", target.name, e);
+        }
+    }
+
+    // A write transaction in a request sends the rest of the request to the primary
+    private void pinIfWriting() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            RequestAttributes request = RequestContextHolder.getRequestAttributes();
+            if (request != null) {
+                request.setAttribute(PINNED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+            }
+        }
+    }
+
+    // Bypass the second-level and query caches for the rest of this transaction. Reading
+    // alone is not enough: Hibernate fills the query cache on a miss even with puts off.
+    // Set as entity manager properties, as Hibernate copies those onto every query it creates
+    private void bypassCaches() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder holder) {
+                EntityManager entityManager = holder.getEntityManager();
+                Map<String, Object> properties = entityManager.getProperties();
+                Object retrieveMode = properties.get(AvailableSettings.JAKARTA_SHARED_CACHE_RETRIEVE_MODE);
+                Object storeMode = properties.get(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE);
+                entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS);
+                entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (entityManager.isOpen()) {
+                            entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_RETRIEVE_MODE,
+                                    retrieveMode != null ? retrieveMode : CacheRetrieveMode.USE);
+                            entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE,
+                                    storeMode != null ? storeMode : CacheStoreMode.USE);
+                        }
+                    }
+                });
+            }
+        }
+    }
+}
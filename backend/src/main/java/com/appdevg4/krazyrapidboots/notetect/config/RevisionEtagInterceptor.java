@@ -0,0 +1,63 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.appdevg4.krazyrapidboots.notetect.service.RevisionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Adds the user's revision ETag to GET responses and answers a matching
+ * If-None-Match with 304 before the controller (and the database) is reached.
+ * While the revisions are unreliable responses carry no ETag and are sent whole.
+ */
+@Component
+public class RevisionEtagInterceptor implements HandlerInterceptor {
+
+    private final RevisionService revisionService;
+
+    public RevisionEtagInterceptor(RevisionService revisionService) {
+        this.revisionService = revisionService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Integer userId)) {
+            return true;
+        }
+
+        // Let the browser keep the response but always revalidate it
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (!revisionService.isReliable()) {
+            return true;
+        }
+        String etag = revisionService.etag(userId);
+        response.setHeader(HttpHeaders.ETAG, etag);
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
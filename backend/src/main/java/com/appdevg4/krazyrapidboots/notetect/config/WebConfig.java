@@ -0,0 +1,41 @@
+package com.appdevg4.krazyrapidboots.notetect.config;
+
+import com.appdevg4.krazyrapidboots.notetect.service.DocumentService;
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RevisionEtagInterceptor revisionEtagInterceptor;
+
+    public WebConfig(RevisionEtagInterceptor revisionEtagInterceptor) {
+        this.revisionEtagInterceptor = revisionEtagInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Conditional GETs for everything derived from the user's notes, folders and subjects
+        registry.addInterceptor(revisionEtagInterceptor)
+                .addPathPatterns("/api/notes/**", "/api/folders/**", "/api/subjects/**", "/api/workspace/**");
+    }
+
+    // Uploads go straight to disk (no in-memory threshold) in the document spool directory
+    @Bean
+    public MultipartConfigElement multipartConfigElement(
+            @Value("${notetect.documents.storage-dir:data/documents}") String storageDir,
+            @Value("${notetect.documents.max-file-size:250MB}") DataSize maxFileSize) {
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setLocation(DocumentService.spoolDirectory(storageDir).toString());
+        factory.setMaxFileSize(maxFileSize);
+        factory.setMaxRequestSize(DataSize.ofBytes(maxFileSize.toBytes() + DataSize.ofMegabytes(1).toBytes()));
+        factory.setFileSizeThreshold(DataSize.ofBytes(0));
+        return factory.createMultipartConfig();
+    }
+}
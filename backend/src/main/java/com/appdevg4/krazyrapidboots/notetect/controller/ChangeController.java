@@ -0,0 +1,29 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.service.ChangeStreamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    // SSE stream of changes to the user's notes, folders and subjects: "ready" first, then a "change"
+    // event such as {"entity":"note","action":"moved","ids":[12],"folderId":3} for every change
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamChanges(Authentication authentication, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Integer userId = (Integer) authentication.getPrincipal();
+        changeStreamService.subscribe(userId, request, response);
+    }
+}
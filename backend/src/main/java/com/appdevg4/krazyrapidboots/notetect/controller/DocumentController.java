@@ -0,0 +1,50 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.SourceDocument;
+import com.appdevg4.krazyrapidboots.notetect.service.DocumentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/documents")
+public class DocumentController {
+    @Autowired
+    private DocumentService documentService;
+
+    // Upload a PDF, DOCX or text file; its text is extracted and kept for generating notes
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public SourceDocument uploadDocument(@RequestParam("file") MultipartFile file, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return documentService.upload(file, userId);
+    }
+
+    @GetMapping
+    public List<SourceDocument> getAllDocuments(Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return documentService.getDocumentsByUserId(userId);
+    }
+
+    @GetMapping("/{id}")
+    public SourceDocument getDocument(@PathVariable int id, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return documentService.getDocument(id, userId);
+    }
+
+    // The extracted text, streamed from disk; pages are separated by form feeds
+    @GetMapping("/{id}/text")
+    public ResponseEntity<Resource> getDocumentText(@PathVariable int id, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(new FileSystemResource(documentService.getTextPath(id, userId)));
+    }
+}
@@ -0,0 +1,164 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.service.ExportService;
+import com.appdevg4.krazyrapidboots.notetect.service.RevisionService;
+import com.appdevg4.krazyrapidboots.notetect.util.ByteRangeOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+    private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private RevisionService revisionService;
+
+    /**
+     * Everything the user owns as NDJSON (gzip-encoded if accepted) or as a zip of markdown files.
+     *
+     * The export is generated on the fly but is the same for the same data, so it carries a
+     * strong ETag and a single byte range can be requested to resume a download (send the
+     * ETag as If-Range; a changed export is sent whole). The range is cut out of a fresh
+     * export, after one pass to find its length. If the data changes while the export is
+     * written the response is aborted, so a client never keeps bytes of two versions.
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = ExportService.FORMAT_NDJSON) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        if (!ExportService.isSupported(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or zip");
+        }
+        // A zip is compressed already
+        boolean gzip = ExportService.FORMAT_NDJSON.equals(format) && acceptEncoding != null
+                && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        String revision = revisionService.etag(userId);
+        String etag = exportEtag(revision, format, gzip);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setCacheControl("private, no-cache");
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename("notetect-export." + format).build());
+        headers.setContentType(ExportService.FORMAT_ZIP.equals(format)
+                ? MediaType.parseMediaType("application/zip")
+                : MediaType.parseMediaType("application/x-ndjson"));
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        Matcher byteRange = range != null ? BYTE_RANGE.matcher(range.trim()) : null;
+        boolean rangeApplies = byteRange != null && byteRange.matches()
+                && !(byteRange.group(1).isEmpty() && byteRange.group(2).isEmpty())
+                && (ifRange == null || ifRange.equals(etag)) && revisionService.isReliable();
+        if (!rangeApplies) {
+            return ResponseEntity.ok().headers(headers)
+                    .body(out -> writeExport(userId, revision, format, gzip, out));
+        }
+
+        ByteRangeOutputStream counter = ByteRangeOutputStream.counting();
+        try {
+            writeExport(userId, format, gzip, counter);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Export failed", e);
+        }
+        long length = counter.getPosition();
+
+        // Changed while counting: the length is of neither version, so the new export is sent whole
+        String current = revisionService.etag(userId);
+        if (!current.equals(revision)) {
+            headers.setETag(exportEtag(current, format, gzip));
+            return ResponseEntity.ok().headers(headers)
+                    .body(out -> writeExport(userId, current, format, gzip, out));
+        }
+
+        long first;
+        long last;
+        if (byteRange.group(1).isEmpty()) {
+            // bytes=-n: the last n bytes
+            first = Math.max(0, length - bytePosition(byteRange.group(2)));
+            last = length - 1;
+        } else {
+            first = bytePosition(byteRange.group(1));
+            last = byteRange.group(2).isEmpty() ? length - 1 : Math.min(bytePosition(byteRange.group(2)), length - 1);
+        }
+        if (first >= length || first > last) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+        }
+
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + first + "-" + last + "/" + length);
+        headers.setContentLength(last - first + 1);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                .body(out -> writeExport(userId, revision, format, gzip, new ByteRangeOutputStream(out, first, last)));
+    }
+
+    private static String exportEtag(String revision, String format, boolean gzip) {
+        return revision.substring(0, revision.length() - 1) + "-" + format + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    // A position too large for a long is past the end of any export
+    private static long bytePosition(String digits) {
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    // Writes the export of the given revision, failing if the user's data is at another one
+    // before or after; the client sees the response cut off instead of a mix of versions
+    private void writeExport(Integer userId, String revision, String format, boolean gzip, OutputStream out)
+            throws IOException {
+        checkRevision(userId, revision);
+        writeExport(userId, format, gzip, out);
+        checkRevision(userId, revision);
+        out.flush();
+    }
+
+    private void writeExport(Integer userId, String format, boolean gzip, OutputStream out) throws IOException {
+        if (gzip) {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+            exportService.write(userId, format, compressed);
+            compressed.finish();
+        } else {
+            exportService.write(userId, format, out);
+        }
+    }
+
+    private void checkRevision(Integer userId, String revision) throws IOException {
+        if (!revisionService.etag(userId).equals(revision)) {
+            throw new IOException("Export of user " + userId + " changed while it was written");
+        }
+    }
+}
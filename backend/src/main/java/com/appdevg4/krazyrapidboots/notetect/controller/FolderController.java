@@ -1,8 +1,10 @@
 package com.appdevg4.krazyrapidboots.notetect.controller;
 
 import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
 import com.appdevg4.krazyrapidboots.notetect.service.FolderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
@@ -39,9 +41,13 @@ public class FolderController {
         return folderService.saveFolder(folder, subjectId);
     }
 
+    // 200 once deleted, or 202 with a purge job (see /api/purges/{id}) for large folders
     @DeleteMapping("/{id}")
-    public void deleteFolder(@PathVariable int id) {
-        folderService.deleteFolder(id);
+    public ResponseEntity<PurgeJob> deleteFolder(@PathVariable int id, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return folderService.deleteFolder(id, userId)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .orElseGet(() -> ResponseEntity.ok().build());
     }
 
     @PutMapping("/{id}")
@@ -0,0 +1,25 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.service.GenerationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/generate")
+public class GenerationController {
+    @Autowired
+    private GenerationService generationService;
+
+    // Generate a note from source text, streaming tokens as server-sent events; the note is saved when done
+    @PostMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generate(@RequestBody GenerationService.GenerationRequest request, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return generationService.generate(userId, request);
+    }
+}
@@ -0,0 +1,23 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.service.ImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+    @Autowired
+    private ImportService importService;
+
+    // Import an NDJSON export or a zip of markdown files; records that fail are listed in the result
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ImportService.ImportResult importArchive(@RequestParam("file") MultipartFile file,
+            Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return importService.importArchive(file, userId);
+    }
+}
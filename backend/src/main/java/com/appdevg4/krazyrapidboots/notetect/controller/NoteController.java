@@ -1,26 +1,139 @@
 package com.appdevg4.krazyrapidboots.notetect.controller;
 
 import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRevisionSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteSummary;
+import com.appdevg4.krazyrapidboots.notetect.service.NoteRevisionService;
+import com.appdevg4.krazyrapidboots.notetect.service.NoteSearchService;
 import com.appdevg4.krazyrapidboots.notetect.service.NoteService;
+import com.appdevg4.krazyrapidboots.notetect.util.TextPatch;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/notes")
 public class NoteController {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_BULK_SIZE = 10_000;
+
     @Autowired
     private NoteService noteService;
 
+    public static class NoteSummaryPage {
+        public List<Object> items;
+        // Creation time and id of the last item ("2024-03-01T10:15:30.123456Z,42", or ",42" if it has no time)
+        public String nextCursor;
+    }
+
+    public static class BulkNoteIdsRequest {
+        public List<Integer> noteIds;
+    }
+
+    public static class BulkResult {
+        // Number of notes created, moved or deleted
+        public int count;
+        // Ids of the created notes (bulk import only)
+        public List<Integer> ids;
+    }
+
+    public static class ContentPatchRequest {
+        // The note version the edits were made against
+        public Long baseVersion;
+        public List<TextPatch.Edit> edits;
+    }
+
     @GetMapping
     public List<Note> getAllNotes(Authentication authentication) {
         Integer userId = (Integer) authentication.getPrincipal();
         return noteService.getAllNotesByUserId(userId);
     }
 
+    // Get note summaries (no content) for the sidebar, newest first, using keyset pagination.
+    // Pass the returned nextCursor to fetch the following page; fields= limits the returned properties.
+    @GetMapping("/summaries")
+    public NoteSummaryPage getNoteSummaries(@RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String fields,
+                                           Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Instant cursorCreatedAt = null;
+        Integer cursorId = null;
+        if (cursor != null) {
+            int comma = cursor.lastIndexOf(',');
+            if (comma < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            try {
+                cursorId = Integer.valueOf(cursor.substring(comma + 1));
+                cursorCreatedAt = comma > 0 ? Instant.parse(cursor.substring(0, comma)) : null;
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+        List<NoteSummary> summaries = noteService.getNoteSummariesByUserId(userId, cursorCreatedAt, cursorId,
+                pageSize);
+
+        NoteSummaryPage page = new NoteSummaryPage();
+        page.items = new ArrayList<>(summaries.size());
+        if (fields == null || fields.isBlank()) {
+            page.items.addAll(summaries);
+        } else {
+            Set<String> selected = Arrays.stream(fields.split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toSet());
+            for (NoteSummary summary : summaries) {
+                page.items.add(selectFields(summary, selected));
+            }
+        }
+        if (summaries.size() == pageSize) {
+            NoteSummary last = summaries.get(summaries.size() - 1);
+            page.nextCursor = (last.getCreatedAt() != null ? last.getCreatedAt().toString() : "") + "," + last.getId();
+        }
+        return page;
+    }
+
+    // Newest note summaries: all of them, one type (type=), or those created in [from, to).
+    // from and to are ISO-8601 instants; type cannot be combined with a time range.
+    @GetMapping("/recent")
+    public List<NoteSummary> getRecentNotes(@RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String type,
+                                            @RequestParam(required = false) Instant from,
+                                            @RequestParam(required = false) Instant to,
+                                            Authentication authentication) {
+        if (type != null && (from != null || to != null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "type cannot be combined with from/to");
+        }
+        Integer userId = (Integer) authentication.getPrincipal();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return noteService.getRecentNoteSummaries(userId, type, from, to, pageSize);
+    }
+
+    // Full-text search over the user's note titles and content, best matches first
+    @GetMapping("/search")
+    public List<NoteSearchService.SearchHit> searchNotes(@RequestParam String q,
+                                                        @RequestParam(required = false) Integer limit,
+                                                        Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        int maxResults = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return noteService.searchNotes(userId, q, maxResults);
+    }
+
     // Get all notes in a specific folder
     @GetMapping("/folder/{folderId}")
     public List<Note> getNotesByFolder(@PathVariable Integer folderId) {
@@ -73,4 +186,94 @@ public class NoteController {
         String content = payload.get("content");
         return noteService.updateNoteContent(id, content, userId);
     }
+
+    // Apply incremental edits to note content; 409 if the note changed since baseVersion
+    @PatchMapping("/{id}/content")
+    public Note patchNoteContent(@PathVariable int id,
+                                 @RequestBody ContentPatchRequest req,
+                                 Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        if (req.baseVersion == null || req.edits == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "baseVersion and edits are required");
+        }
+        return noteService.patchNoteContent(id, req.baseVersion, req.edits, userId);
+    }
+
+    // The note's revision history, newest first (no content)
+    @GetMapping("/{id}/revisions")
+    public List<NoteRevisionSummary> getNoteRevisions(@PathVariable int id, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return noteService.getNoteRevisions(id, userId);
+    }
+
+    // The note's title and content as of one revision
+    @GetMapping("/{id}/revisions/{seq}")
+    public NoteRevisionService.Revision getNoteRevision(@PathVariable int id, @PathVariable int seq,
+                                                       Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return noteService.getNoteRevision(id, seq, userId);
+    }
+
+    // Restore the note's title and content from a revision
+    @PostMapping("/{id}/revisions/{seq}/restore")
+    public Note restoreNoteRevision(@PathVariable int id, @PathVariable int seq, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return noteService.restoreNoteRevision(id, seq, userId);
+    }
+
+    // Create many notes in one request, optionally all in the same folder
+    @PostMapping("/bulk")
+    public BulkResult importNotes(@RequestBody List<Note> notes,
+                                  @RequestParam(required = false) Integer folderId,
+                                  Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        checkBulkSize(notes);
+        BulkResult result = new BulkResult();
+        result.ids = noteService.importNotes(notes, userId, folderId);
+        result.count = result.ids.size();
+        return result;
+    }
+
+    // Move many notes to a folder; omit folderId to take them out of any folder
+    @PutMapping("/bulk/move")
+    public BulkResult moveNotes(@RequestBody BulkNoteIdsRequest req,
+                                @RequestParam(required = false) Integer folderId,
+                                Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        checkBulkSize(req.noteIds);
+        BulkResult result = new BulkResult();
+        result.count = req.noteIds.isEmpty() ? 0 : noteService.moveNotesToFolder(req.noteIds, folderId, userId);
+        return result;
+    }
+
+    // Delete many notes in one request
+    @PostMapping("/bulk/delete")
+    public BulkResult deleteNotes(@RequestBody BulkNoteIdsRequest req, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        checkBulkSize(req.noteIds);
+        BulkResult result = new BulkResult();
+        result.count = req.noteIds.isEmpty() ? 0 : noteService.deleteNotes(req.noteIds, userId);
+        return result;
+    }
+
+    private void checkBulkSize(List<?> items) {
+        if (items == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No notes given");
+        }
+        if (items.size() > MAX_BULK_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BULK_SIZE + " notes per request");
+        }
+    }
+
+    // The id is always kept so the client can open the note with GET /api/notes/{id}
+    private Map<String, Object> selectFields(NoteSummary summary, Set<String> selected) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("id", summary.getId());
+        if (selected.contains("title")) item.put("title", summary.getTitle());
+        if (selected.contains("noteType")) item.put("noteType", summary.getNoteType());
+        if (selected.contains("folderId")) item.put("folderId", summary.getFolderId());
+        if (selected.contains("createdAt")) item.put("createdAt", summary.getCreatedAt());
+        return item;
+    }
 }
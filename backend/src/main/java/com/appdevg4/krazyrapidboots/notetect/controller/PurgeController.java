@@ -0,0 +1,21 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
+import com.appdevg4.krazyrapidboots.notetect.service.SubtreePurgeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/purges")
+public class PurgeController {
+    @Autowired
+    private SubtreePurgeService subtreePurgeService;
+
+    // Progress of a subject or folder deletion that was answered with 202
+    @GetMapping("/{id}")
+    public PurgeJob getPurge(@PathVariable int id, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return subtreePurgeService.getJob(id, userId);
+    }
+}
@@ -1,8 +1,10 @@
 package com.appdevg4.krazyrapidboots.notetect.controller;
 
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
 import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
 import com.appdevg4.krazyrapidboots.notetect.service.SubjectService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
@@ -32,9 +34,13 @@ public class SubjectController {
         return subjectService.saveSubject(subject, userId);
     }
 
+    // 200 once deleted, or 202 with a purge job (see /api/purges/{id}) for large subjects
     @DeleteMapping("/{id}")
-    public void deleteSubject(@PathVariable int id) {
-        subjectService.deleteSubject(id);
+    public ResponseEntity<PurgeJob> deleteSubject(@PathVariable int id, Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        return subjectService.deleteSubject(id, userId)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .orElseGet(() -> ResponseEntity.ok().build());
     }
 
     @PutMapping("/{id}")
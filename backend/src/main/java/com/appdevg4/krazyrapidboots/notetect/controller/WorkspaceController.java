@@ -0,0 +1,28 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.service.WorkspaceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/workspace")
+public class WorkspaceController {
+    @Autowired
+    private WorkspaceService workspaceService;
+
+    // The whole Subject → Folder → Note hierarchy (note summaries only, no content) in one response
+    @GetMapping("/tree")
+    public ResponseEntity<StreamingResponseBody> getTree(Authentication authentication) {
+        Integer userId = (Integer) authentication.getPrincipal();
+        StreamingResponseBody body = out -> workspaceService.writeTree(userId, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
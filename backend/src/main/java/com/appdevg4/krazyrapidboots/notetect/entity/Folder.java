@@ -7,11 +7,21 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.CascadeType;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.Cacheable;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.appdevg4.krazyrapidboots.notetect.config.CacheConfig;
 
 @Entity
+// Folders are often serialized through a lazy Note.folder proxy
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+// Rarely renamed; note saves and moves read it by id
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.FOLDER_REGION)
 public class Folder {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,13 +30,13 @@ public class Folder {
     private String name;
 
     // The subject this folder belongs to (User → Subject → Folder hierarchy)
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "subject_id", nullable = false)
     @JsonIgnore
     private Subject subject;
 
-    // A folder consists of many notes
-    @OneToMany(mappedBy = "folder", cascade = CascadeType.ALL)
+    // A folder consists of many notes (deleted with it by SubtreePurgeService)
+    @OneToMany(mappedBy = "folder")
     @JsonIgnore
     private List<Note> notes;
 
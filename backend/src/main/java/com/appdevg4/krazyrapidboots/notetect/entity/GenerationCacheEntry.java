@@ -0,0 +1,74 @@
+package com.appdevg4.krazyrapidboots.notetect.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "generation_cache", indexes = @Index(name = "idx_generation_cache_last_used", columnList = "lastUsedAt"))
+public class GenerationCacheEntry {
+    // SHA-256 (hex) of the normalized source text, note type and prompt version
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    // The type of note that was generated (SUMMARY, STUDY_GUIDE, ...)
+    private String noteType;
+
+    // Version of the generator prompt that produced the content
+    private String promptVersion;
+
+    // The generated text (stored compressed when large)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "LONGBLOB")
+    private String content;
+
+    // Length of the content in UTF-8 bytes, used for the total-size limit
+    private int sizeBytes;
+
+    private Instant createdAt;
+
+    // Last time the entry was stored or served, used for age-based eviction
+    private Instant lastUsedAt;
+
+    // Constructors
+    public GenerationCacheEntry() {}
+
+    public GenerationCacheEntry(String cacheKey, String noteType, String promptVersion, String content, int sizeBytes) {
+        this.cacheKey = cacheKey;
+        this.noteType = noteType;
+        this.promptVersion = promptVersion;
+        this.content = content;
+        this.sizeBytes = sizeBytes;
+        this.createdAt = Instant.now();
+        this.lastUsedAt = this.createdAt;
+    }
+
+    // Getters and Setters
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public String getNoteType() { return noteType; }
+    public void setNoteType(String noteType) { this.noteType = noteType; }
+
+    public String getPromptVersion() { return promptVersion; }
+    public void setPromptVersion(String promptVersion) { this.promptVersion = promptVersion; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public int getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(int sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getLastUsedAt() { return lastUsedAt; }
+    public void setLastUsedAt(Instant lastUsedAt) { this.lastUsedAt = lastUsedAt; }
+}
@@ -4,19 +4,38 @@ import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Version;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.PrePersist;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+import java.time.Instant;
 
 @Entity
+// Created by migrations V3 and V9; declared here too so schemas generated from the entities match
+@Table(indexes = {
+        @Index(name = "idx_note_user_created_id", columnList = "user_id, created_time desc, id desc"),
+        @Index(name = "idx_note_user_type_created", columnList = "user_id, note_type, created_time desc")
+})
 public class Note {
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Ids come from a pooled sequence (a table on MySQL) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_seq")
+    @SequenceGenerator(name = "note_seq", sequenceName = "note_seq", allocationSize = Note.ID_ALLOCATION_SIZE)
     private int id;
 
-    // The text generated by AI from uploaded files
-    @Column(columnDefinition = "TEXT")
+    // The text generated by AI from uploaded files (stored compressed when large)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "LONGBLOB")
     private String content;
 
     // The topic/title of the note
@@ -25,27 +44,33 @@ public class Note {
     // The original filename (pdf, docx, etc.)
     private String filename;
 
-    // Timestamp for creation
-    private String createdAt;
+    // Timestamp for creation (rows from before V3 are filled in by NoteCreatedTimeBackfill)
+    @Column(name = "created_time")
+    private Instant createdAt;
 
     // The type of note (SUMMARY, STUDY_GUIDE, SIMPLIFY, ACTION_ITEMS, FLASHCARD)
     private String noteType;
 
+    // Optimistic lock version, bumped on every update (existing rows start at 0)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     // The user who owns this note
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnore
     private User user;
 
     // The folder this note belongs to (User → Subject → Folder → Note hierarchy)
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "folder_id")
     private Folder folder;
 
     // Constructors
     public Note() {}
 
-    public Note(int id, String content, String title, String filename, String createdAt, User user, Folder folder) {
+    public Note(int id, String content, String title, String filename, Instant createdAt, User user, Folder folder) {
         this.id = id;
         this.content = content;
         this.title = title;
@@ -55,7 +80,7 @@ public class Note {
         this.folder = folder;
     }
 
-    public Note(int id, String content, String title, String filename, String createdAt, String noteType, User user, Folder folder) {
+    public Note(int id, String content, String title, String filename, Instant createdAt, String noteType, User user, Folder folder) {
         this.id = id;
         this.content = content;
         this.title = title;
@@ -66,6 +91,13 @@ public class Note {
         this.folder = folder;
     }
 
+    @PrePersist
+    void defaultCreatedAt() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+
     // Getters and Setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -79,8 +111,8 @@ public class Note {
     public String getFilename() { return filename; }
     public void setFilename(String filename) { this.filename = filename; }
 
-    public String getCreatedAt() { return createdAt; }
-    public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
@@ -90,4 +122,7 @@ public class Note {
 
     public String getNoteType() { return noteType; }
     public void setNoteType(String noteType) { this.noteType = noteType; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
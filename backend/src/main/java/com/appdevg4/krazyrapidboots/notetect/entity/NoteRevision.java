@@ -0,0 +1,106 @@
+package com.appdevg4.krazyrapidboots.notetect.entity;
+
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Instant;
+
+/**
+ * One saved state of a note's title and content.
+ *
+ * Revisions are numbered per note. A snapshot row holds the full content; the rows
+ * after it hold the TextPatch edits (as JSON) from the previous revision, so a revision
+ * is rebuilt from the snapshot at baseSeq by applying the diffs up to it in order.
+ * Rows go with their note through the foreign key, including bulk deletes.
+ */
+@Entity
+@Table(name = "note_revision",
+        uniqueConstraints = @UniqueConstraint(name = "uk_note_revision_seq", columnNames = { "note_id", "seq" }),
+        indexes = @Index(name = "idx_note_revision_compaction", columnList = "compacted, created_at"))
+public class NoteRevision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "note_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JsonIgnore
+    private Note note;
+
+    // Revision number within the note, increasing from 1 (compaction leaves gaps)
+    private int seq;
+
+    // The snapshot this revision is rebuilt from (its own seq for a snapshot)
+    private int baseSeq;
+
+    private boolean snapshot;
+
+    private String title;
+
+    // Full content for a snapshot, otherwise the edits from the previous revision
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "LONGBLOB")
+    @JsonIgnore
+    private String data;
+
+    // SHA-256 of the content, to notice changes made without a revision
+    @Column(length = 32)
+    @JsonIgnore
+    private byte[] contentDigest;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    // Set once the compaction job has merged this revision's neighbours
+    private boolean compacted;
+
+    // Constructors
+    public NoteRevision() {}
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public Note getNote() { return note; }
+    public void setNote(Note note) { this.note = note; }
+
+    public int getSeq() { return seq; }
+    public void setSeq(int seq) { this.seq = seq; }
+
+    public int getBaseSeq() { return baseSeq; }
+    public void setBaseSeq(int baseSeq) { this.baseSeq = baseSeq; }
+
+    public boolean isSnapshot() { return snapshot; }
+    public void setSnapshot(boolean snapshot) { this.snapshot = snapshot; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getData() { return data; }
+    public void setData(String data) { this.data = data; }
+
+    public byte[] getContentDigest() { return contentDigest; }
+    public void setContentDigest(byte[] contentDigest) { this.contentDigest = contentDigest; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public boolean isCompacted() { return compacted; }
+    public void setCompacted(boolean compacted) { this.compacted = compacted; }
+}
@@ -0,0 +1,87 @@
+package com.appdevg4.krazyrapidboots.notetect.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * A subject or folder whose notes are too many to delete in one request.
+ * The subtree is deleted a chunk at a time by SubtreePurgeService; the row keeps
+ * the progress, so an interrupted purge carries on after a restart.
+ */
+@Entity
+@Table(name = "purge_job", indexes = @Index(name = "idx_purge_job_status", columnList = "status"))
+public class PurgeJob {
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    // The owner of the subject or folder
+    private Integer userId;
+
+    // Exactly one of subjectId and folderId is set
+    private Integer subjectId;
+
+    private Integer folderId;
+
+    // Notes in the subtree when the purge started, and how many are gone so far
+    private long notesTotal;
+
+    private long notesDeleted;
+
+    // RUNNING or DONE
+    private String status;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    // Constructors
+    public PurgeJob() {}
+
+    public PurgeJob(Integer userId, Integer subjectId, Integer folderId, long notesTotal) {
+        this.userId = userId;
+        this.subjectId = subjectId;
+        this.folderId = folderId;
+        this.notesTotal = notesTotal;
+        this.status = RUNNING;
+        this.createdAt = Instant.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public Integer getUserId() { return userId; }
+    public void setUserId(Integer userId) { this.userId = userId; }
+
+    public Integer getSubjectId() { return subjectId; }
+    public void setSubjectId(Integer subjectId) { this.subjectId = subjectId; }
+
+    public Integer getFolderId() { return folderId; }
+    public void setFolderId(Integer folderId) { this.folderId = folderId; }
+
+    public long getNotesTotal() { return notesTotal; }
+    public void setNotesTotal(long notesTotal) { this.notesTotal = notesTotal; }
+
+    public long getNotesDeleted() { return notesDeleted; }
+    public void setNotesDeleted(long notesDeleted) { this.notesDeleted = notesDeleted; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,82 @@
+package com.appdevg4.krazyrapidboots.notetect.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "source_document", indexes = @Index(name = "idx_source_document_user_sha", columnList = "user_id, sha256"))
+public class SourceDocument {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    // The uploaded file's original name
+    private String filename;
+
+    // Detected format: PDF, DOCX or TEXT
+    private String format;
+
+    // Size of the uploaded file in bytes
+    private long sizeBytes;
+
+    // SHA-256 (hex) of the uploaded file; the extracted text is stored under this name
+    @Column(length = 64)
+    private String sha256;
+
+    private int pageCount;
+
+    // Number of characters of extracted text
+    private long charCount;
+
+    // When the file was uploaded
+    @Column(name = "created_time")
+    private Instant createdAt;
+
+    // The user who uploaded the file
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnore
+    private User user;
+
+    // Constructors
+    public SourceDocument() {}
+
+    // Getters and Setters
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public String getFormat() { return format; }
+    public void setFormat(String format) { this.format = format; }
+
+    public long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public int getPageCount() { return pageCount; }
+    public void setPageCount(int pageCount) { this.pageCount = pageCount; }
+
+    public long getCharCount() { return charCount; }
+    public void setCharCount(long charCount) { this.charCount = charCount; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+}
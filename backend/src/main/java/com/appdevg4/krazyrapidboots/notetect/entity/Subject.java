@@ -7,11 +7,18 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.CascadeType;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Cacheable;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.appdevg4.krazyrapidboots.notetect.config.CacheConfig;
 
 @Entity
+// Rarely renamed; ownership checks and note saves read it by id
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.SUBJECT_REGION)
 public class Subject {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -21,13 +28,13 @@ public class Subject {
     private String name;
 
     // The user who owns this subject
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnore
     private User user;
 
-    // A subject can contain many folders
-    @OneToMany(mappedBy = "subject", cascade = CascadeType.ALL)
+    // A subject can contain many folders (deleted with it by SubtreePurgeService)
+    @OneToMany(mappedBy = "subject")
     @JsonIgnore
     private List<Folder> folders;
 
@@ -6,9 +6,16 @@ import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Cacheable;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.appdevg4.krazyrapidboots.notetect.config.CacheConfig;
 
 @Entity
 @Table(name = "users")
+// Read on every /api/auth/me and note save, changed rarely
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheConfig.USER_REGION)
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,10 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+/**
+ * Number of notes in a folder; folderId is null for notes that are not in any folder
+ */
+public interface FolderNoteCount {
+    Integer getFolderId();
+
+    Long getNoteCount();
+}
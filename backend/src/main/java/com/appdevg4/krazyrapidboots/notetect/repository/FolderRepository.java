@@ -1,8 +1,12 @@
 package com.appdevg4.krazyrapidboots.notetect.repository;
 
 import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -10,10 +14,34 @@ import java.util.List;
 
 @Repository
 public interface FolderRepository extends JpaRepository<Folder, Integer> {
-    // Find all folders belonging to a specific subject
+    // Find all folders belonging to a specific subject; served from the query cache until a folder changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Folder> findBySubjectId(Integer subjectId);
 
     // Find all folders for a user (through subject relationship)
-    @Query("SELECT f FROM Folder f WHERE f.subject.user.userId = :userId")
+    @Query("SELECT f FROM Folder f JOIN f.subject s WHERE s.user.userId = :userId")
     List<Folder> findByUserId(@Param("userId") Integer userId);
+
+    // Folder summaries for a user, ordered by subject and then folder id
+    @Query("SELECT f.id AS id, f.name AS name, s.id AS subjectId FROM Folder f JOIN f.subject s "
+            + "WHERE s.user.userId = :userId ORDER BY s.id, f.id")
+    List<FolderSummary> findSummariesByUserId(@Param("userId") Integer userId);
+
+    // Whether the folder belongs to the user, without loading it
+    boolean existsByIdAndSubjectUserUserId(Integer id, Integer userId);
+
+    @Query("SELECT f.id FROM Folder f WHERE f.subject.id = :subjectId")
+    List<Integer> findIdsBySubjectId(@Param("subjectId") Integer subjectId);
+
+    // Delete every folder of the user's subject in one statement
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Folder f WHERE f.subject.id IN "
+            + "(SELECT s.id FROM Subject s WHERE s.id = :subjectId AND s.user.userId = :userId)")
+    int deleteBySubjectId(@Param("subjectId") Integer subjectId, @Param("userId") Integer userId);
+
+    // Delete the folder if it belongs to the user
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Folder f WHERE f.id = :id AND f.subject.id IN "
+            + "(SELECT s.id FROM Subject s WHERE s.user.userId = :userId)")
+    int deleteOwned(@Param("id") Integer id, @Param("userId") Integer userId);
 }
@@ -0,0 +1,12 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+/**
+ * A folder with the id of its subject, without loading the subject itself
+ */
+public interface FolderSummary {
+    Integer getId();
+
+    String getName();
+
+    Integer getSubjectId();
+}
@@ -0,0 +1,10 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+/**
+ * Key and stored size of a generation cache entry, used when trimming the table
+ */
+public interface GenerationCacheEntrySize {
+    String getCacheKey();
+
+    Integer getSizeBytes();
+}
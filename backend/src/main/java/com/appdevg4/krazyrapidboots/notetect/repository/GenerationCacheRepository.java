@@ -0,0 +1,37 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.GenerationCacheEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GenerationCacheRepository extends JpaRepository<GenerationCacheEntry, String> {
+    // Record that an entry was just served
+    @Modifying
+    @Query("UPDATE GenerationCacheEntry e SET e.lastUsedAt = :now WHERE e.cacheKey = :key")
+    int touch(@Param("key") String key, @Param("now") Instant now);
+
+    // Record that entries were served, one statement for the batch
+    @Modifying
+    @Query("UPDATE GenerationCacheEntry e SET e.lastUsedAt = :now WHERE e.cacheKey IN :keys")
+    int touchAll(@Param("keys") Collection<String> keys, @Param("now") Instant now);
+
+    // Keys of entries that have not been used since the cutoff
+    @Query("SELECT e.cacheKey FROM GenerationCacheEntry e WHERE e.lastUsedAt < :cutoff")
+    List<String> findUnusedSince(@Param("cutoff") Instant cutoff, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(e.sizeBytes), 0) FROM GenerationCacheEntry e")
+    long totalSizeBytes();
+
+    // Keys and sizes of the least recently used entries, oldest first
+    @Query("SELECT e.cacheKey AS cacheKey, e.sizeBytes AS sizeBytes FROM GenerationCacheEntry e ORDER BY e.lastUsedAt")
+    List<GenerationCacheEntrySize> findLeastRecentlyUsed(Pageable pageable);
+}
@@ -1,16 +1,136 @@
 package com.appdevg4.krazyrapidboots.notetect.repository;
 
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
 import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface NoteRepository extends JpaRepository<Note, Integer> {
-    // Find all notes by user
+    // Find all notes by user, with their folder fetched in the same query
+    @EntityGraph(attributePaths = "folder")
     List<Note> findByUserUserId(Integer userId);
 
-    // Find all notes in a specific folder
+    // Whether the note exists and belongs to the user, without loading it
+    boolean existsByIdAndUserUserId(int id, Integer userId);
+
+    // Find all notes in a specific folder, with the folder fetched in the same query
+    @EntityGraph(attributePaths = "folder")
     List<Note> findByFolderId(Integer folderId);
+
+    // Newest-first page of note summaries after the cursor: keyset on (createdAt, id), as ids come from
+    // pooled blocks and do not follow creation order (idx_note_user_created_id, no content column).
+    // Notes without a creation time (legacy rows the backfill could not read) sort last, as NULLs do
+    // in descending order on MySQL and H2.
+    @Query("SELECT n.id AS id, n.title AS title, n.noteType AS noteType, f.id AS folderId, n.createdAt AS createdAt "
+            + "FROM Note n LEFT JOIN n.folder f "
+            + "WHERE n.user.userId = :userId "
+            + "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id) OR n.createdAt IS NULL) "
+            + "ORDER BY n.createdAt DESC, n.id DESC")
+    List<NoteSummary> findSummariesByUserIdBefore(@Param("userId") Integer userId,
+            @Param("createdAt") Instant createdAt, @Param("id") Integer id, Pageable pageable);
+
+    // The rest of the listing once the cursor is on a note without a creation time
+    @Query("SELECT n.id AS id, n.title AS title, n.noteType AS noteType, f.id AS folderId, n.createdAt AS createdAt "
+            + "FROM Note n LEFT JOIN n.folder f "
+            + "WHERE n.user.userId = :userId AND n.createdAt IS NULL AND n.id < :cursor ORDER BY n.id DESC")
+    List<NoteSummary> findUndatedSummariesByUserId(@Param("userId") Integer userId, @Param("cursor") Integer cursor,
+            Pageable pageable);
+
+    // The user's newest note summaries (idx_note_user_created_id). n.folder.id reads the foreign key
+    // column, so no join is needed.
+    @Query("SELECT n.id AS id, n.title AS title, n.noteType AS noteType, n.folder.id AS folderId, "
+            + "n.createdAt AS createdAt FROM Note n "
+            + "WHERE n.user.userId = :userId ORDER BY n.createdAt DESC")
+    List<NoteSummary> findRecentSummaries(@Param("userId") Integer userId, Pageable pageable);
+
+    // The user's note summaries created in [from, to), newest first (idx_note_user_created_id)
+    @Query("SELECT n.id AS id, n.title AS title, n.noteType AS noteType, n.folder.id AS folderId, "
+            + "n.createdAt AS createdAt FROM Note n "
+            + "WHERE n.user.userId = :userId AND n.createdAt >= :from AND n.createdAt < :to "
+            + "ORDER BY n.createdAt DESC")
+    List<NoteSummary> findSummariesCreatedBetween(@Param("userId") Integer userId, @Param("from") Instant from,
+            @Param("to") Instant to, Pageable pageable);
+
+    // The user's note summaries of one type, newest first (idx_note_user_type_created)
+    @Query("SELECT n.id AS id, n.title AS title, n.noteType AS noteType, n.folder.id AS folderId, "
+            + "n.createdAt AS createdAt FROM Note n "
+            + "WHERE n.user.userId = :userId AND n.noteType = :noteType ORDER BY n.createdAt DESC")
+    List<NoteSummary> findSummariesByType(@Param("userId") Integer userId, @Param("noteType") String noteType,
+            Pageable pageable);
+
+    // Batch of notes in id order for (re)building the search index
+    @Query("SELECT n.id AS id, n.user.userId AS userId, n.version AS version, n.title AS title, "
+            + "n.content AS content FROM Note n WHERE n.id > :afterId ORDER BY n.id")
+    List<NoteSearchDocument> findSearchDocumentsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    // Compared with the search index snapshot to tell whether it is still current
+    @Query("SELECT COUNT(n) AS notes, COALESCE(MAX(n.id), 0) AS maxId, COALESCE(SUM(n.version), 0) AS versionSum "
+            + "FROM Note n")
+    NoteWatermark findWatermark();
+
+    // Ids from the given list that belong to the user
+    @Query("SELECT n.id FROM Note n WHERE n.id IN :ids AND n.user.userId = :userId")
+    List<Integer> findIdsOwnedBy(@Param("ids") List<Integer> ids, @Param("userId") Integer userId);
+
+    // Move the user's notes to a folder (or out of any folder) in one statement
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Note n SET n.folder = :folder, n.version = n.version + 1 "
+            + "WHERE n.id IN :ids AND n.user.userId = :userId")
+    int moveToFolder(@Param("ids") List<Integer> ids, @Param("folder") Folder folder, @Param("userId") Integer userId);
+
+    // Delete the given notes in one statement
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Note n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Integer> ids);
+
+    // Up to a page of ids of the notes filed in the user's subject
+    @Query("SELECT n.id FROM Note n JOIN n.folder f JOIN f.subject s WHERE s.id = :subjectId AND s.user.userId = :userId")
+    List<Integer> findIdsInSubject(@Param("subjectId") Integer subjectId, @Param("userId") Integer userId,
+            Pageable pageable);
+
+    // Up to a page of ids of the notes filed in the user's folder
+    @Query("SELECT n.id FROM Note n JOIN n.folder f JOIN f.subject s WHERE f.id = :folderId AND s.user.userId = :userId")
+    List<Integer> findIdsInFolder(@Param("folderId") Integer folderId, @Param("userId") Integer userId,
+            Pageable pageable);
+
+    @Query("SELECT COUNT(n) FROM Note n JOIN n.folder f WHERE f.subject.id = :subjectId")
+    long countInSubject(@Param("subjectId") Integer subjectId);
+
+    @Query("SELECT COUNT(n) FROM Note n WHERE n.folder.id = :folderId")
+    long countInFolder(@Param("folderId") Integer folderId);
+
+    // Note counts per folder for a user (null folderId = notes outside any folder)
+    @Query("SELECT f.id AS folderId, COUNT(n) AS noteCount FROM Note n LEFT JOIN n.folder f "
+            + "WHERE n.user.userId = :userId GROUP BY f.id")
+    List<FolderNoteCount> countByFolderForUser(@Param("userId") Integer userId);
+
+    // All of the user's notes, content included, in id order for export. Read with a forward-only
+    // cursor inside a transaction, detaching each note once it has been written.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT n FROM Note n WHERE n.user.userId = :userId ORDER BY n.id")
+    Stream<Note> streamByUserId(@Param("userId") Integer userId);
+
+    // All note summaries for a user in workspace-tree order: by subject, then folder, newest first,
+    // with notes outside any folder last. Read with a forward-only cursor; call inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT n.id AS id, n.title AS title, n.noteType AS noteType, f.id AS folderId, n.createdAt AS createdAt "
+            + "FROM Note n LEFT JOIN n.folder f LEFT JOIN f.subject s WHERE n.user.userId = :userId "
+            + "ORDER BY CASE WHEN f.id IS NULL THEN 1 ELSE 0 END, s.id, f.id, n.id DESC")
+    Stream<NoteSummary> streamSummariesForTree(@Param("userId") Integer userId);
 }
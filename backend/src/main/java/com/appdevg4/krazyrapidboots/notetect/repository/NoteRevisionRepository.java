@@ -0,0 +1,35 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.NoteRevision;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NoteRevisionRepository extends JpaRepository<NoteRevision, Integer> {
+    // The latest revision of a note, which new revisions are diffed against. A locking read,
+    // so it sees the latest committed chain even in a transaction that read before
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<NoteRevision> findTopByNoteIdOrderBySeqDesc(int noteId);
+
+    // Number of diffs stored since the given snapshot
+    long countByNoteIdAndSeqGreaterThan(int noteId, int seq);
+
+    // A note's revisions, newest first, without their data
+    @Query("SELECT r.seq AS seq, r.title AS title, r.snapshot AS snapshot, r.createdAt AS createdAt "
+            + "FROM NoteRevision r WHERE r.note.id = :noteId ORDER BY r.seq DESC")
+    List<NoteRevisionSummary> findSummariesByNoteId(@Param("noteId") int noteId);
+
+    // The snapshot a revision is based on and every diff from there up to the revision, in order
+    @Query("SELECT r FROM NoteRevision r WHERE r.note.id = :noteId AND r.seq <= :seq AND r.seq >= "
+            + "(SELECT b.baseSeq FROM NoteRevision b WHERE b.note.id = :noteId AND b.seq = :seq) ORDER BY r.seq")
+    List<NoteRevision> findChain(@Param("noteId") int noteId, @Param("seq") int seq);
+
+    List<NoteRevision> findByNoteIdOrderBySeqAsc(int noteId);
+}
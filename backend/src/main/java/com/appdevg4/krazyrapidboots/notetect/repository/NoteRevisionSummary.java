@@ -0,0 +1,16 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+import java.time.Instant;
+
+/**
+ * Content-free view of a note revision used by the history listing
+ */
+public interface NoteRevisionSummary {
+    Integer getSeq();
+
+    String getTitle();
+
+    Boolean getSnapshot();
+
+    Instant getCreatedAt();
+}
@@ -0,0 +1,16 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+/**
+ * The fields of a note that feed the search index
+ */
+public interface NoteSearchDocument {
+    Integer getId();
+
+    Integer getUserId();
+
+    Long getVersion();
+
+    String getTitle();
+
+    String getContent();
+}
@@ -0,0 +1,18 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+import java.time.Instant;
+
+/**
+ * Content-free view of a note used by the sidebar listing
+ */
+public interface NoteSummary {
+    Integer getId();
+
+    String getTitle();
+
+    String getNoteType();
+
+    Integer getFolderId();
+
+    Instant getCreatedAt();
+}
@@ -0,0 +1,13 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+/**
+ * High-water mark of the note table: inserts raise the highest id, updates raise the sum of
+ * versions and deletes lower the count, so any change since it was taken moves one of them
+ */
+public interface NoteWatermark {
+    Long getNotes();
+
+    Integer getMaxId();
+
+    Long getVersionSum();
+}
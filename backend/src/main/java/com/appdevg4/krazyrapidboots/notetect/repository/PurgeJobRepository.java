@@ -0,0 +1,26 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PurgeJobRepository extends JpaRepository<PurgeJob, Integer> {
+    // Unfinished purges, oldest first
+    List<PurgeJob> findByStatusOrderByIdAsc(String status);
+
+    // Record one more deleted chunk
+    @Modifying
+    @Query("UPDATE PurgeJob j SET j.notesDeleted = j.notesDeleted + :deleted, j.updatedAt = :now WHERE j.id = :id")
+    int addProgress(@Param("id") int id, @Param("deleted") long deleted, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE PurgeJob j SET j.status = :status, j.updatedAt = :now WHERE j.id = :id")
+    int updateStatus(@Param("id") int id, @Param("status") String status, @Param("now") Instant now);
+}
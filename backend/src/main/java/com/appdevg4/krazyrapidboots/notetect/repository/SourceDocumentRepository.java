@@ -0,0 +1,19 @@
+package com.appdevg4.krazyrapidboots.notetect.repository;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.SourceDocument;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SourceDocumentRepository extends JpaRepository<SourceDocument, Integer> {
+    List<SourceDocument> findByUserUserIdOrderByIdDesc(int userId);
+
+    // An earlier upload of the same file by this user
+    Optional<SourceDocument> findFirstByUserUserIdAndSha256(int userId, String sha256);
+
+    // An earlier upload of the same file by anyone, whose extracted text can be reused
+    Optional<SourceDocument> findFirstBySha256(String sha256);
+}
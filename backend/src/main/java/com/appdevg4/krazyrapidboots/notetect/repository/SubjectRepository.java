@@ -1,12 +1,27 @@
 package com.appdevg4.krazyrapidboots.notetect.repository;
 
 import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface SubjectRepository extends JpaRepository<Subject, Integer> {
+    // Served from the query cache until a subject is inserted, renamed or deleted
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Subject> findByUserUserId(Integer userId);
+
+    List<Subject> findByUserUserIdOrderByIdAsc(Integer userId);
+
+    // Delete the subject if it belongs to the user; its folders must be gone already
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Subject s WHERE s.id = :id AND s.user.userId = :userId")
+    int deleteOwned(@Param("id") Integer id, @Param("userId") Integer userId);
 }
@@ -9,12 +9,12 @@ import org.springframework.web.server.ResponseStatusException;
 @Service
 public class AuthService {
     private final UserRepository users;
-    private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
+    // BCrypt runs on its own bounded pool rather than the request thread
+    private final PasswordHashingService passwordHashing;
 
-    public AuthService(UserRepository users,
-            org.springframework.security.crypto.password.PasswordEncoder passwordEncoder) {
+    public AuthService(UserRepository users, PasswordHashingService passwordHashing) {
         this.users = users;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
     }
 
     public User signup(String name, String email, String rawPassword) {
@@ -24,16 +24,25 @@ public class AuthService {
         User u = new User();
         u.setName(name);
         u.setEmail(email);
-        u.setPassword(passwordEncoder.encode(rawPassword));
+        u.setPassword(passwordHashing.encode(rawPassword));
         return users.save(u);
     }
 
     public User login(String email, String rawPassword) {
         User u = users.findByEmail(email)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials"));
-        if (!passwordEncoder.matches(rawPassword, u.getPassword())) {
+        if (!passwordHashing.matches(rawPassword, u.getPassword())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid credentials");
         }
+        // Bring the stored hash up to the configured work factor while the password is at hand
+        if (passwordHashing.needsRehash(u.getPassword())) {
+            try {
+                u.setPassword(passwordHashing.encode(rawPassword));
+                u = users.save(u);
+            } catch (ResponseStatusException e) {
+                // Hashing is saturated; the login still succeeds and a later one will rehash
+            }
+        }
         return u;
     }
 
@@ -52,11 +61,11 @@ public class AuthService {
         User u = getUserById(userId);
         
         // Verify current password
-        if (!passwordEncoder.matches(currentPassword, u.getPassword())) {
+        if (!passwordHashing.matches(currentPassword, u.getPassword())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Current password is incorrect");
         }
         
-        u.setPassword(passwordEncoder.encode(newPassword));
+        u.setPassword(passwordHashing.encode(newPassword));
         return users.save(u);
     }
 }
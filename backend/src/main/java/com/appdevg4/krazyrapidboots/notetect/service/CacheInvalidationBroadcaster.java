@@ -0,0 +1,15 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Carries second-level cache invalidations between instances
+ */
+public interface CacheInvalidationBroadcaster {
+
+    // Announce that this instance committed a change to the entity with this id
+    void publish(String entityName, Integer id);
+
+    // Handler for changes announced by other instances: entity name and id
+    void subscribe(BiConsumer<String, Integer> handler);
+}
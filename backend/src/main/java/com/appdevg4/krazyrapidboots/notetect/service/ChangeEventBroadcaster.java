@@ -0,0 +1,16 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Carries change events between instances, so a change stream hears about changes
+ * made through any instance
+ */
+public interface ChangeEventBroadcaster {
+
+    // Announce a change this instance committed: its owner and the event as JSON
+    void publish(Integer userId, String event);
+
+    // Handler for changes announced by other instances: owner and event JSON
+    void subscribe(BiConsumer<Integer, String> handler);
+}
@@ -0,0 +1,374 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user change streams: every create, update, move or delete of a note, folder or
+ * subject is pushed as a small "change" event to the owner's open streams, so other
+ * tabs and devices can apply what changed instead of polling.
+ *
+ * Streams are SSE responses kept open with async request processing and written with
+ * non-blocking servlet I/O: an idle stream holds a connection but no thread, and a write
+ * only goes as far as the connection takes it, the rest waiting in the subscriber's
+ * bounded buffer until the container reports the connection writable again. A client
+ * that stops reading (stalled, or gone without closing the connection) therefore costs
+ * its buffer and nothing else, and is disconnected once the buffer is full. Browsers
+ * reconnect on their own; every stream starts with a "ready" event, after which the
+ * client should reload once since events may have been missed.
+ *
+ * Events also go to the other instances through the ChangeEventBroadcaster. Each event
+ * names the client (X-Client-Id header) whose request made the change, so a tab can skip
+ * the echoes of its own writes.
+ */
+@Service
+public class ChangeStreamService {
+    private static final Logger log = LoggerFactory.getLogger(ChangeStreamService.class);
+
+    public static final String NOTE = "note";
+    public static final String FOLDER = "folder";
+    public static final String SUBJECT = "subject";
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String MOVED = "moved";
+    public static final String DELETED = "deleted";
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final int CLIENT_ID_MAX_LENGTH = 64;
+
+    private static final byte[] READY = "event: ready\ndata:\n\n".getBytes(StandardCharsets.UTF_8);
+    // Comment lines keep idle streams open through proxies and reveal clients that stopped reading
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final ChangeEventBroadcaster broadcaster;
+    private final int bufferSize;
+    private final int perUserLimit;
+    private final long timeoutMillis;
+
+    // Open streams by user
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong subscribersDropped = new AtomicLong();
+
+    // What changed: the ids of one kind of entity, and for moved or created notes the folder
+    // they are in (none if unfiled, or for created notes if they are not all in one folder)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ChangeEvent {
+        public String entity;
+        public String action;
+        public List<Integer> ids;
+        public Integer folderId;
+        public String origin;
+    }
+
+    public ChangeStreamService(ObjectMapper objectMapper, ChangeEventBroadcaster broadcaster,
+            @Value("${notetect.changes.buffer-size:64}") int bufferSize,
+            @Value("${notetect.changes.per-user-limit:16}") int perUserLimit,
+            @Value("${notetect.changes.timeout-ms:1800000}") long timeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.broadcaster = broadcaster;
+        this.bufferSize = bufferSize;
+        this.perUserLimit = perUserLimit;
+        this.timeoutMillis = timeoutMillis;
+        broadcaster.subscribe(this::deliver);
+    }
+
+    /**
+     * Turn the request into one of the user's change streams. The response stays open
+     * after the handler returns and is completed when the client goes away, falls behind
+     * or timeout-ms passes.
+     *
+     * @throws ResponseStatusException 429 if the user already has per-user-limit streams open
+     */
+    public void subscribe(Integer userId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Subscriber subscriber = register(userId);
+        try {
+            response.setContentType("text/event-stream");
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            // Keep proxies such as nginx from holding events back
+            response.setHeader("X-Accel-Buffering", "no");
+            AsyncContext async = request.startAsync(request, response);
+            async.setTimeout(timeoutMillis);
+            subscriber.open(async, response.getOutputStream());
+        } catch (IOException | RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+    }
+
+    // Announce a change of the user's data; inside a transaction this happens once it commits
+    public void publish(Integer userId, String entity, String action, Collection<Integer> ids) {
+        publish(userId, entity, action, ids, null);
+    }
+
+    public void publish(Integer userId, String entity, String action, Collection<Integer> ids, Integer folderId) {
+        if (userId == null || ids.isEmpty()) {
+            return;
+        }
+        ChangeEvent event = new ChangeEvent();
+        event.entity = entity;
+        event.action = action;
+        event.ids = new ArrayList<>(ids);
+        event.folderId = folderId;
+        event.origin = requestClientId();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize change event", e);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    announce(userId, json);
+                }
+            });
+        } else {
+            announce(userId, json);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.changes.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Set<Subscriber> streams : subscribers.values()) {
+            streams.forEach(subscriber -> subscriber.offer(PING));
+        }
+    }
+
+    public int getSubscriberCount() { return subscriberCount.get(); }
+
+    public long getEventsPublished() { return eventsPublished.get(); }
+
+    public long getSubscribersDropped() { return subscribersDropped.get(); }
+
+    // End every stream, so a graceful shutdown does not wait for them
+    @PreDestroy
+    public void closeAll() {
+        for (Set<Subscriber> streams : subscribers.values()) {
+            streams.forEach(Subscriber::close);
+        }
+    }
+
+    // Count a new stream of the user's, or refuse it if they have too many open
+    Subscriber register(Integer userId) {
+        Subscriber subscriber = new Subscriber(userId);
+        subscribers.compute(userId, (id, streams) -> {
+            Set<Subscriber> set = streams != null ? streams : ConcurrentHashMap.newKeySet();
+            if (set.size() >= perUserLimit) {
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many open change streams");
+            }
+            set.add(subscriber);
+            return set;
+        });
+        subscriberCount.incrementAndGet();
+        subscriber.offer(READY);
+        return subscriber;
+    }
+
+    private void announce(Integer userId, String json) {
+        eventsPublished.incrementAndGet();
+        deliver(userId, json);
+        broadcaster.publish(userId, json);
+    }
+
+    // Write an event to the user's streams on this instance
+    private void deliver(Integer userId, String json) {
+        Set<Subscriber> streams = subscribers.get(userId);
+        if (streams == null || streams.isEmpty()) {
+            return;
+        }
+        // Encoded once and shared: every subscriber writes the same bytes
+        byte[] event = ("event: change\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+        streams.forEach(subscriber -> subscriber.offer(event));
+    }
+
+    private static String requestClientId() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            String clientId = servletAttributes.getRequest().getHeader(CLIENT_ID_HEADER);
+            if (clientId != null && !clientId.isBlank() && clientId.length() <= CLIENT_ID_MAX_LENGTH) {
+                return clientId;
+            }
+        }
+        return null;
+    }
+
+    // One open stream: the events it has not taken yet, and who is writing them
+    final class Subscriber implements WriteListener, AsyncListener {
+        private final Integer userId;
+        private final ArrayBlockingQueue<byte[]> buffer;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Held by the one thread writing to the stream; anyone finding it held sets retry
+        // instead, and the holder goes round again once it lets go
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean retry = new AtomicBoolean();
+        private volatile AsyncContext async;
+        private volatile ServletOutputStream out;
+        // Written since the last flush; only touched while holding writing
+        private boolean unflushed;
+
+        Subscriber(Integer userId) {
+            this.userId = userId;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void open(AsyncContext async, ServletOutputStream out) {
+            this.async = async;
+            async.addListener(this);
+            this.out = out;
+            // The container calls onWritePossible as soon as the stream can be written
+            out.setWriteListener(this);
+            if (closed.get()) {
+                complete();
+            }
+        }
+
+        void offer(byte[] event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                // The client is not reading; end the stream rather than buffer more, it reloads when it reconnects
+                subscribersDropped.incrementAndGet();
+                close();
+                return;
+            }
+            write();
+        }
+
+        @Override
+        public void onWritePossible() {
+            write();
+        }
+
+        // Write what is buffered as far as the connection takes it without blocking. Once it
+        // takes no more, isReady has asked the container to call onWritePossible when it does.
+        private void write() {
+            ServletOutputStream out = this.out;
+            if (out == null) {
+                return;
+            }
+            retry.set(true);
+            while (retry.get() && !closed.get() && writing.compareAndSet(false, true)) {
+                retry.set(false);
+                try {
+                    while (out.isReady()) {
+                        byte[] event = buffer.poll();
+                        if (event != null) {
+                            out.write(event);
+                            unflushed = true;
+                        } else if (unflushed) {
+                            unflushed = false;
+                            out.flush();
+                        } else {
+                            break;
+                        }
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away, or the stream was completed meanwhile
+                    close();
+                } finally {
+                    writing.set(false);
+                }
+            }
+        }
+
+        void close() {
+            if (forget()) {
+                complete();
+            }
+        }
+
+        // Stop counting the stream; true the first time
+        private boolean forget() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            subscriberCount.decrementAndGet();
+            subscribers.computeIfPresent(userId, (id, streams) -> {
+                streams.remove(this);
+                return streams.isEmpty() ? null : streams;
+            });
+            buffer.clear();
+            return true;
+        }
+
+        private void complete() {
+            AsyncContext async = this.async;
+            if (async != null) {
+                try {
+                    async.complete();
+                } catch (IllegalStateException e) {
+                    // Already completed by the container
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            forget();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.SourceDocument;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.SourceDocumentRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stores uploaded source files as extracted text.
+ *
+ * The multipart body is spooled to disk by the servlet container, moved into the spool
+ * directory, hashed and extracted page by page into {storage-dir}/text/{sha256}.txt.
+ * The original file is deleted afterwards; the text and its metadata are kept so the same
+ * file is never extracted twice.
+ */
+@Service
+public class DocumentService {
+    private static final Logger log = LoggerFactory.getLogger(DocumentService.class);
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
+    private final SourceDocumentRepository documentRepository;
+    private final UserRepository userRepository;
+    private final DocumentTextExtractor extractor;
+    private final Path spoolDir;
+    private final Path textDir;
+    private final long maxExtractedChars;
+
+    public DocumentService(SourceDocumentRepository documentRepository, UserRepository userRepository,
+            DocumentTextExtractor extractor,
+            @Value("${notetect.documents.storage-dir:data/documents}") String storageDir,
+            @Value("${notetect.documents.max-extracted-chars:20000000}") long maxExtractedChars) {
+        this.documentRepository = documentRepository;
+        this.userRepository = userRepository;
+        this.extractor = extractor;
+        this.spoolDir = spoolDirectory(storageDir);
+        this.textDir = Paths.get(storageDir, "text").toAbsolutePath();
+        this.maxExtractedChars = maxExtractedChars;
+        try {
+            Files.createDirectories(spoolDir);
+            Files.createDirectories(textDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create document storage under " + storageDir, e);
+        }
+    }
+
+    // Where uploads are spooled, shared with the multipart configuration
+    public static Path spoolDirectory(String storageDir) {
+        return Paths.get(storageDir, "spool").toAbsolutePath();
+    }
+
+    /**
+     * Extract and store an uploaded file. Uploading a file the user already uploaded
+     * returns the existing document.
+     *
+     * @throws ResponseStatusException 415 for unsupported formats, 413 if the text is too long,
+     *                                 422 if the file cannot be read
+     */
+    public SourceDocument upload(MultipartFile file, Integer userId) {
+        if (file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "file is empty");
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Path spooled = spoolDir.resolve(UUID.randomUUID() + ".upload");
+        try {
+            // Moves the container's temp file where possible instead of copying it
+            file.transferTo(spooled.toFile());
+            String sha256 = sha256(spooled);
+
+            Optional<SourceDocument> existing = documentRepository.findFirstByUserUserIdAndSha256(userId, sha256);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+
+            SourceDocument document = new SourceDocument();
+            document.setFilename(file.getOriginalFilename());
+            document.setSizeBytes(Files.size(spooled));
+            document.setSha256(sha256);
+            document.setCreatedAt(Instant.now());
+            document.setUser(user);
+
+            Optional<SourceDocument> extracted = documentRepository.findFirstBySha256(sha256);
+            if (extracted.isPresent() && Files.exists(textPath(sha256))) {
+                document.setFormat(extracted.get().getFormat());
+                document.setPageCount(extracted.get().getPageCount());
+                document.setCharCount(extracted.get().getCharCount());
+            } else {
+                DocumentTextExtractor.Format format = extractor.detect(spooled, file.getOriginalFilename());
+                if (format == null) {
+                    throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                            "Only PDF, DOCX and plain text files are supported");
+                }
+                DocumentTextExtractor.Result result = extract(spooled, format, sha256);
+                document.setFormat(format.name());
+                document.setPageCount(result.pageCount());
+                document.setCharCount(result.charCount());
+            }
+            return documentRepository.save(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled upload {}", spooled, e);
+            }
+        }
+    }
+
+    public List<SourceDocument> getDocumentsByUserId(Integer userId) {
+        return documentRepository.findByUserUserIdOrderByIdDesc(userId);
+    }
+
+    public SourceDocument getDocument(int id, Integer userId) {
+        SourceDocument document = documentRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Document not found with id " + id));
+        if (!document.getUser().getUserId().equals(userId)) {
+            throw new RuntimeException("User not authorized to access this document.");
+        }
+        return document;
+    }
+
+    // Path of the document's extracted text; pages are separated by form feeds
+    public Path getTextPath(int id, Integer userId) {
+        return textPath(getDocument(id, userId).getSha256());
+    }
+
+    private DocumentTextExtractor.Result extract(Path source, DocumentTextExtractor.Format format, String sha256)
+            throws IOException {
+        Path partial = spoolDir.resolve(sha256 + "." + UUID.randomUUID() + ".txt");
+        try {
+            DocumentTextExtractor.Result result;
+            try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                result = extractor.extract(source, format, out, maxExtractedChars);
+            } catch (DocumentTextExtractor.TextLimitExceededException e) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                log.info("Text extraction failed for {} upload {}", format, sha256, e);
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Could not read text from the file");
+            }
+            // Concurrent uploads of the same file produce identical text, so replacing is harmless
+            Files.move(partial, textPath(sha256), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return result;
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private Path textPath(String sha256) {
+        return textDir.resolve(sha256 + ".txt");
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts plain text from uploaded PDF, DOCX and text files one page at a time,
+ * writing it straight to the given Writer so no whole document is held in memory.
+ * Pages are separated by a form feed (\f).
+ */
+@Component
+public class DocumentTextExtractor {
+    public static final char PAGE_SEPARATOR = '\f';
+
+    private static final String DOCX_BODY = "word/document.xml";
+    private static final String WORD_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    public enum Format { PDF, DOCX, TEXT }
+
+    public record Result(int pageCount, long charCount) {}
+
+    // Thrown when a document expands to more text than the configured limit
+    public static class TextLimitExceededException extends IOException {
+        public TextLimitExceededException(long maxChars) {
+            super("Extracted text exceeds " + maxChars + " characters");
+        }
+    }
+
+    /**
+     * Work out the format from the file's leading bytes, falling back to the filename
+     *
+     * @return the format, or null if the file is not a supported type
+     */
+    public Format detect(Path file, String filename) throws IOException {
+        byte[] head = new byte[4];
+        int read;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(head);
+            read = channel.read(buffer);
+        }
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+
+        if (read == 4 && head[0] == '%' && head[1] == 'P' && head[2] == 'D' && head[3] == 'F') {
+            return Format.PDF;
+        }
+        if (read == 4 && head[0] == 'P' && head[1] == 'K' && head[2] == 3 && head[3] == 4) {
+            return name.endsWith(".docx") ? Format.DOCX : null;
+        }
+        if (name.endsWith(".txt") || name.endsWith(".md") || name.endsWith(".csv") || !name.contains(".")) {
+            return Format.TEXT;
+        }
+        return null;
+    }
+
+    public Result extract(Path file, Format format, Writer out, long maxChars) throws IOException {
+        PageWriter pages = new PageWriter(out, maxChars);
+        switch (format) {
+            case PDF -> extractPdf(file, pages);
+            case DOCX -> extractDocx(file, pages);
+            case TEXT -> extractText(file, pages);
+        }
+        return new Result(pages.pageCount, pages.charCount);
+    }
+
+    // The file is memory-mapped and parsed objects are cached in temp files rather than on the heap
+    private void extractPdf(Path file, PageWriter pages) throws IOException {
+        try (PDDocument document = Loader.loadPDF(new RandomAccessReadMemoryMappedFile(file),
+                IOUtils.createTempFileOnlyStreamCache())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+            int total = document.getNumberOfPages();
+            for (int page = 1; page <= total; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.startPage();
+                stripper.writeText(document, pages);
+            }
+        }
+    }
+
+    // document.xml is read with a streaming XML parser; explicit and last-rendered page breaks start new pages
+    private void extractDocx(Path file, PageWriter pages) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry body = zip.getEntry(DOCX_BODY);
+            if (body == null) {
+                throw new IOException("Not a Word document: " + DOCX_BODY + " missing");
+            }
+            XMLInputFactory factory = XMLInputFactory.newFactory();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+            try (InputStream in = zip.getInputStream(body)) {
+                XMLStreamReader xml = factory.createXMLStreamReader(in);
+                pages.startPage();
+                boolean pageEmpty = true;
+                boolean inText = false;
+                while (xml.hasNext()) {
+                    int event = xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT && WORD_NAMESPACE.equals(xml.getNamespaceURI())) {
+                        switch (xml.getLocalName()) {
+                            case "t" -> inText = true;
+                            case "tab" -> pages.write('\t');
+                            case "br" -> {
+                                if (!"page".equals(xml.getAttributeValue(WORD_NAMESPACE, "type"))) {
+                                    pages.write('\n');
+                                } else if (!pageEmpty) {
+                                    pages.startPage();
+                                    pageEmpty = true;
+                                }
+                            }
+                            // Word often records both an explicit break and a rendered one at the same spot
+                            case "lastRenderedPageBreak" -> {
+                                if (!pageEmpty) {
+                                    pages.startPage();
+                                    pageEmpty = true;
+                                }
+                            }
+                            default -> { }
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && WORD_NAMESPACE.equals(xml.getNamespaceURI())) {
+                        if ("t".equals(xml.getLocalName())) {
+                            inText = false;
+                        } else if ("p".equals(xml.getLocalName())) {
+                            pages.write('\n');
+                        }
+                    } else if (inText && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                        pages.write(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                        pageEmpty = false;
+                    }
+                }
+                xml.close();
+            } catch (XMLStreamException e) {
+                throw new IOException("Could not read Word document", e);
+            }
+        }
+    }
+
+    // Decoded through a fixed-size buffer as UTF-8; form feeds in the file start new pages
+    private void extractText(Path file, PageWriter pages) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(READ_BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            pages.startPage();
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+                decoder.decode(bytes, chars, endOfInput);
+                if (endOfInput) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+                chars.flip();
+                while (chars.hasRemaining()) {
+                    char c = chars.get();
+                    if (c == PAGE_SEPARATOR) {
+                        pages.startPage();
+                    } else {
+                        pages.write(c);
+                    }
+                }
+                chars.clear();
+            }
+        }
+    }
+
+    /**
+     * Counts pages and characters on the way through and stops the extraction once
+     * maxChars is reached, so a small compressed file cannot expand without bound.
+     */
+    private static final class PageWriter extends Writer {
+        private final Writer out;
+        private final long maxChars;
+        private int pageCount;
+        private long charCount;
+
+        PageWriter(Writer out, long maxChars) {
+            this.out = out;
+            this.maxChars = maxChars;
+        }
+
+        void startPage() throws IOException {
+            if (pageCount > 0) {
+                write(PAGE_SEPARATOR);
+            }
+            pageCount++;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            reserve(1);
+            out.write(c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            reserve(length);
+            out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            reserve(length);
+            out.write(text, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        // The underlying writer belongs to the caller
+        @Override
+        public void close() {
+        }
+
+        private void reserve(int length) throws IOException {
+            charCount += length;
+            if (charCount > maxChars) {
+                throw new TextLimitExceededException(maxChars);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes everything a user owns, for download and for account deletion requests.
+ *
+ * NDJSON: an {"type":"export"} header line, then one line per subject, folder and note
+ * (content included). ZIP: a markdown file per note with its fields as front matter,
+ * under subject/folder directories, or unfiled/ for notes outside any folder.
+ *
+ * Subjects and folders are read up front; notes come from one forward-only stream and
+ * are detached once written, so memory use does not grow with the number of notes.
+ * The output only depends on the stored data, so the same revision always produces the
+ * same bytes, which lets a broken download resume with a Range request.
+ */
+@Service
+public class ExportService {
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_ZIP = "zip";
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAX_NAME_LENGTH = 80;
+
+    // Where a folder's notes go in the zip, and the names written into their front matter
+    private record ZipFolder(String path, String subject, String name) {}
+
+    private final SubjectRepository subjectRepository;
+    private final FolderRepository folderRepository;
+    private final NoteRepository noteRepository;
+    private final NoteContentWriteBehind contentWriteBehind;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExportService(SubjectRepository subjectRepository, FolderRepository folderRepository,
+            NoteRepository noteRepository, NoteContentWriteBehind contentWriteBehind, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.subjectRepository = subjectRepository;
+        this.folderRepository = folderRepository;
+        this.noteRepository = noteRepository;
+        this.contentWriteBehind = contentWriteBehind;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public static boolean isSupported(String format) {
+        return FORMAT_NDJSON.equals(format) || FORMAT_ZIP.equals(format);
+    }
+
+    // Write the user's export in the given format; the stream is left open
+    public void write(Integer userId, String format, OutputStream out) {
+        // The export reads the database, so buffered content updates must be there first
+        contentWriteBehind.flushAll();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Note> notes = noteRepository.streamByUserId(userId)) {
+                List<Subject> subjects = subjectRepository.findByUserUserIdOrderByIdAsc(userId);
+                List<FolderSummary> folders = folderRepository.findSummariesByUserId(userId);
+                if (FORMAT_ZIP.equals(format)) {
+                    writeZip(subjects, folders, notes, out);
+                } else {
+                    writeNdjson(subjects, folders, notes, out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeNdjson(List<Subject> subjects, List<FolderSummary> folders, Stream<Note> notes,
+            OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            // Leave closing the response stream to the caller; lines are separated by hand
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+
+            json.writeStartObject();
+            json.writeStringField("type", "export");
+            json.writeNumberField("version", FORMAT_VERSION);
+            json.writeEndObject();
+            json.writeRaw('\n');
+
+            for (Subject subject : subjects) {
+                json.writeStartObject();
+                json.writeStringField("type", "subject");
+                json.writeNumberField("id", subject.getId());
+                json.writeStringField("name", subject.getName());
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+            for (FolderSummary folder : folders) {
+                json.writeStartObject();
+                json.writeStringField("type", "folder");
+                json.writeNumberField("id", folder.getId());
+                json.writeNumberField("subjectId", folder.getSubjectId());
+                json.writeStringField("name", folder.getName());
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+
+            Iterable<Note> iterable = notes::iterator;
+            for (Note note : iterable) {
+                json.writeStartObject();
+                json.writeStringField("type", "note");
+                json.writeNumberField("id", note.getId());
+                if (note.getFolder() != null) {
+                    json.writeNumberField("folderId", note.getFolder().getId());
+                }
+                json.writeStringField("title", note.getTitle());
+                json.writeStringField("noteType", note.getNoteType());
+                json.writeStringField("filename", note.getFilename());
+                json.writeStringField("createdAt", note.getCreatedAt() != null ? note.getCreatedAt().toString() : null);
+                json.writeStringField("content", note.getContent());
+                json.writeEndObject();
+                json.writeRaw('\n');
+                entityManager.detach(note);
+            }
+        }
+    }
+
+    private void writeZip(List<Subject> subjects, List<FolderSummary> folders, Stream<Note> notes,
+            OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+
+        // A directory per subject and folder, named after it; clashing names are numbered in id order
+        Map<Integer, List<FolderSummary>> foldersBySubject = new HashMap<>();
+        for (FolderSummary folder : folders) {
+            foldersBySubject.computeIfAbsent(folder.getSubjectId(), id -> new ArrayList<>()).add(folder);
+        }
+        Map<Integer, ZipFolder> zipFolders = new HashMap<>();
+        Set<String> used = new HashSet<>();
+        for (Subject subject : subjects) {
+            String subjectPath = unique("", safeName(subject.getName()), used) + "/";
+            putEntry(zip, subjectPath, null, 0);
+            for (FolderSummary folder : foldersBySubject.getOrDefault(subject.getId(), List.of())) {
+                String folderPath = unique(subjectPath, safeName(folder.getName()), used) + "/";
+                putEntry(zip, folderPath, null, 0);
+                zipFolders.put(folder.getId(), new ZipFolder(folderPath, subject.getName(), folder.getName()));
+            }
+        }
+        String unfiledPath = unique("", "unfiled", used) + "/";
+
+        Iterable<Note> iterable = notes::iterator;
+        for (Note note : iterable) {
+            ZipFolder folder = note.getFolder() != null ? zipFolders.get(note.getFolder().getId()) : null;
+            StringBuilder markdown = new StringBuilder("---\n");
+            frontMatter(markdown, "id", note.getId());
+            frontMatter(markdown, "title", note.getTitle());
+            frontMatter(markdown, "noteType", note.getNoteType());
+            if (folder != null) {
+                frontMatter(markdown, "subject", folder.subject());
+                frontMatter(markdown, "folder", folder.name());
+            }
+            frontMatter(markdown, "filename", note.getFilename());
+            frontMatter(markdown, "createdAt", note.getCreatedAt() != null ? note.getCreatedAt().toString() : null);
+            markdown.append("---\n\n");
+            if (note.getContent() != null) {
+                markdown.append(note.getContent());
+            }
+
+            // The id keeps file names unique without remembering the names already used
+            String name = (folder != null ? folder.path() : unfiledPath) + safeName(note.getTitle())
+                    + " (" + note.getId() + ").md";
+            long time = note.getCreatedAt() != null ? note.getCreatedAt().toEpochMilli() : 0;
+            putEntry(zip, name, markdown.toString().getBytes(StandardCharsets.UTF_8), time);
+            entityManager.detach(note);
+        }
+        zip.finish();
+    }
+
+    private void putEntry(ZipOutputStream zip, String name, byte[] data, long time) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(time);
+        zip.putNextEntry(entry);
+        if (data != null) {
+            zip.write(data);
+        }
+        zip.closeEntry();
+    }
+
+    // One "key: value" line; strings are written as JSON strings, which YAML reads as double-quoted scalars
+    private void frontMatter(StringBuilder markdown, String key, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        markdown.append(key).append(": ")
+                .append(value instanceof String ? objectMapper.writeValueAsString(value) : value)
+                .append('\n');
+    }
+
+    // A name usable as a file or directory name on common file systems
+    static String safeName(String name) {
+        String safe = name == null ? "" : name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        if (safe.length() > MAX_NAME_LENGTH) {
+            safe = safe.substring(0, MAX_NAME_LENGTH).trim();
+        }
+        return safe.isEmpty() || safe.equals(".") || safe.equals("..") ? "untitled" : safe;
+    }
+
+    // parent + name, numbered if that path (in any letter case) is already taken
+    private static String unique(String parent, String name, Set<String> used) {
+        String candidate = parent + name;
+        for (int i = 2; !used.add(candidate.toLowerCase(Locale.ROOT)); i++) {
+            candidate = parent + name + " (" + i + ")";
+        }
+        return candidate;
+    }
+}
@@ -5,8 +5,10 @@ import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
 import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
 import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
 import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
@@ -19,12 +21,23 @@ public class FolderService {
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Autowired
+    private RevisionService revisionService;
+
+    @Autowired
+    private SubtreePurgeService subtreePurgeService;
+
+    @Autowired
+    private ChangeStreamService changeStream;
+
     // Get all folders for a user (through subject relationship)
+    @Transactional(readOnly = true)
     public List<Folder> getAllFoldersByUserId(Integer userId) {
         return folderRepository.findByUserId(userId);
     }
 
     // Get all folders for a specific subject
+    @Transactional(readOnly = true)
     public List<Folder> getAllFoldersBySubjectId(Integer subjectId) {
         return folderRepository.findBySubjectId(subjectId);
     }
@@ -38,17 +51,34 @@ public class FolderService {
         Subject subject = subjectRepository.findById(subjectId)
                 .orElseThrow(() -> new RuntimeException("Subject not found"));
         folder.setSubject(subject);
-        return folderRepository.save(folder);
+        Folder saved = folderRepository.save(folder);
+        revisionService.bump(subject.getUser().getUserId());
+        changeStream.publish(subject.getUser().getUserId(), ChangeStreamService.FOLDER, ChangeStreamService.CREATED,
+                List.of(saved.getId()));
+        return saved;
     }
 
-    public void deleteFolder(int id) {
-        folderRepository.deleteById(id);
+    // Delete the folder with its notes; large folders are purged in the background
+    public Optional<PurgeJob> deleteFolder(int id, Integer userId) {
+        if (!folderRepository.existsById(id)) {
+            return Optional.empty();
+        }
+
+        if (!folderRepository.existsByIdAndSubjectUserUserId(id, userId)) {
+            throw new RuntimeException("User not authorized to delete this folder.");
+        }
+
+        return subtreePurgeService.deleteFolder(id, userId);
     }
 
     public Folder renameFolder(int id, String newName) {
         Folder folder = folderRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Folder not found"));
         folder.setName(newName);
-        return folderRepository.save(folder);
+        Folder saved = folderRepository.save(folder);
+        Integer userId = folder.getSubject().getUser().getUserId();
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.FOLDER, ChangeStreamService.UPDATED, List.of(id));
+        return saved;
     }
 }
@@ -0,0 +1,288 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.GenerationCacheEntry;
+import com.appdevg4.krazyrapidboots.notetect.repository.GenerationCacheEntrySize;
+import com.appdevg4.krazyrapidboots.notetect.repository.GenerationCacheRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of generated note content keyed by what was asked for: a SHA-256 of the
+ * normalized source text, the note type and the generator's prompt version.
+ *
+ * Lookups go to a size-bounded in-memory LRU first and then to the generation_cache
+ * table. Table entries are evicted when unused for longer than max-age, and the least
+ * recently used ones are dropped whenever the table grows past max-total-bytes.
+ * Memory hits are written to the table as uses at the start of each eviction run.
+ */
+@Service
+public class GenerationCacheService {
+    private static final Logger log = LoggerFactory.getLogger(GenerationCacheService.class);
+    private static final int EVICTION_BATCH_SIZE = 100;
+    private static final int KEY_BUFFER_SIZE = 8192;
+
+    private final GenerationCacheRepository repository;
+    private final long memoryMaxBytes;
+    private final Duration maxAge;
+    private final long maxTotalBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+    // Keys served from memory since the last eviction run, guarded by memory
+    private Set<String> usedInMemory = new HashSet<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public GenerationCacheService(GenerationCacheRepository repository,
+            @Value("${notetect.generation.cache.memory-max-bytes:33554432}") long memoryMaxBytes,
+            @Value("${notetect.generation.cache.max-age-days:30}") long maxAgeDays,
+            @Value("${notetect.generation.cache.max-total-bytes:536870912}") long maxTotalBytes) {
+        this.repository = repository;
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.maxAge = Duration.ofDays(maxAgeDays);
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * Cache key for a generation request. Line endings, runs of whitespace and Unicode
+     * composition are normalized so trivially different copies of a source share a key.
+     */
+    public static String cacheKey(String sourceText, String noteType, String promptVersion) {
+        try {
+            return cacheKey(new StringReader(sourceText == null ? "" : sourceText), noteType, promptVersion);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cache key of a source read from start to end, without holding the whole text. Words
+     * are normalized one at a time; a long run without whitespace is cut before an ASCII
+     * character, where composition cannot reach across.
+     */
+    public static String cacheKey(Reader source, String noteType, String promptVersion) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        char[] buffer = new char[KEY_BUFFER_SIZE];
+        StringBuilder word = new StringBuilder();
+        boolean started = false;
+        boolean space = false;
+        for (int read = source.read(buffer); read >= 0; read = source.read(buffer)) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (isSpace(c)) {
+                    started |= update(digest, word, started && space);
+                    space = true;
+                    continue;
+                }
+                if (word.length() >= KEY_BUFFER_SIZE && c < 0x80) {
+                    started |= update(digest, word, started && space);
+                    space = false;
+                }
+                word.append(c);
+            }
+        }
+        update(digest, word, started && space);
+        digest.update((byte) 0);
+        digest.update(String.valueOf(noteType).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(promptVersion).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Adds a piece of the normalized text, after a single space if one separated it; false if empty
+    private static boolean update(MessageDigest digest, StringBuilder piece, boolean spaceBefore) {
+        if (piece.isEmpty()) {
+            return false;
+        }
+        if (spaceBefore) {
+            digest.update((byte) ' ');
+        }
+        digest.update(Normalizer.normalize(piece, Normalizer.Form.NFC).getBytes(StandardCharsets.UTF_8));
+        piece.setLength(0);
+        return true;
+    }
+
+    // The characters of the regex \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    @Transactional
+    public Optional<String> get(String key) {
+        String cached = memoryGet(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return Optional.of(cached);
+        }
+
+        Optional<GenerationCacheEntry> entry = repository.findById(key);
+        if (entry.isPresent()) {
+            databaseHits.incrementAndGet();
+            repository.touch(key, Instant.now());
+            memoryPut(key, entry.get().getContent());
+            return Optional.of(entry.get().getContent());
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public void put(String key, String noteType, String promptVersion, String content) {
+        memoryPut(key, content);
+        int size = content.getBytes(StandardCharsets.UTF_8).length;
+        try {
+            repository.save(new GenerationCacheEntry(key, noteType, promptVersion, content, size));
+        } catch (DataIntegrityViolationException e) {
+            // Another request stored the same result first
+        }
+    }
+
+    /**
+     * Record the memory hits since the last run, drop entries older than max-age, then trim
+     * least recently used entries until the table is back under max-total-bytes
+     */
+    @Scheduled(fixedDelayString = "${notetect.generation.cache.eviction-interval-ms:3600000}")
+    @Transactional
+    public void evict() {
+        Set<String> used;
+        synchronized (memory) {
+            used = usedInMemory;
+            usedInMemory = new HashSet<>();
+        }
+        Instant now = Instant.now();
+        List<String> touching = new ArrayList<>(used);
+        for (int from = 0; from < touching.size(); from += EVICTION_BATCH_SIZE) {
+            repository.touchAll(touching.subList(from, Math.min(from + EVICTION_BATCH_SIZE, touching.size())), now);
+        }
+
+        Instant cutoff = now.minus(maxAge);
+        int expired = 0;
+        for (List<String> keys = repository.findUnusedSince(cutoff, PageRequest.of(0, EVICTION_BATCH_SIZE));
+                !keys.isEmpty(); keys = repository.findUnusedSince(cutoff, PageRequest.of(0, EVICTION_BATCH_SIZE))) {
+            repository.deleteAllByIdInBatch(keys);
+            memoryRemove(keys);
+            expired += keys.size();
+        }
+
+        long total = repository.totalSizeBytes();
+        int trimmed = 0;
+        while (total > maxTotalBytes) {
+            List<GenerationCacheEntrySize> oldest =
+                    repository.findLeastRecentlyUsed(PageRequest.of(0, EVICTION_BATCH_SIZE));
+            if (oldest.isEmpty()) {
+                break;
+            }
+            // Only as many as it takes to get back under the limit
+            List<String> keys = new ArrayList<>();
+            for (GenerationCacheEntrySize entry : oldest) {
+                if (total <= maxTotalBytes) {
+                    break;
+                }
+                keys.add(entry.getCacheKey());
+                total -= entry.getSizeBytes();
+            }
+            repository.deleteAllByIdInBatch(keys);
+            memoryRemove(keys);
+            trimmed += keys.size();
+        }
+
+        if (expired > 0 || trimmed > 0) {
+            log.info("Generation cache eviction removed {} expired and {} least recently used entries", expired, trimmed);
+        }
+    }
+
+    public long getMemoryHits() { return memoryHits.get(); }
+
+    public long getDatabaseHits() { return databaseHits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    // Share of lookups served from either tier
+    public double getHitRatio() {
+        long hits = memoryHits.get() + databaseHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private String memoryGet(String key) {
+        synchronized (memory) {
+            String cached = memory.get(key);
+            if (cached != null) {
+                usedInMemory.add(key);
+            }
+            return cached;
+        }
+    }
+
+    // Entries gone from the table leave the memory tier too
+    private void memoryRemove(List<String> keys) {
+        synchronized (memory) {
+            for (String key : keys) {
+                String removed = memory.remove(key);
+                if (removed != null) {
+                    memoryBytes -= sizeInMemory(removed);
+                }
+                usedInMemory.remove(key);
+            }
+        }
+    }
+
+    private void memoryPut(String key, String content) {
+        long size = sizeInMemory(content);
+        if (size > memoryMaxBytes) {
+            return;
+        }
+        synchronized (memory) {
+            String previous = memory.put(key, content);
+            if (previous != null) {
+                memoryBytes -= sizeInMemory(previous);
+            }
+            memoryBytes += size;
+            Iterator<Map.Entry<String, String>> eldest = memory.entrySet().iterator();
+            while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                memoryBytes -= sizeInMemory(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+    }
+
+    // Rough heap footprint of a cached string
+    private static long sizeInMemory(String content) {
+        return 2L * content.length();
+    }
+}
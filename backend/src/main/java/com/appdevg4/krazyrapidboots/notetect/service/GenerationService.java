@@ -0,0 +1,275 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.SourceDocument;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs note generation on the server and streams the tokens to the client over SSE.
+ *
+ * At most max-concurrent generations run at once; further requests wait in a bounded
+ * queue, and each user may have at most per-user-limit requests running or waiting.
+ * The finished note is saved even if the client went away mid-stream.
+ */
+@Service
+public class GenerationService {
+    private static final Logger log = LoggerFactory.getLogger(GenerationService.class);
+
+    private final NoteGenerator generator;
+    private final NoteService noteService;
+    private final GenerationCacheService cache;
+    private final DocumentService documentService;
+    private final FolderRepository folderRepository;
+    private final ThreadPoolExecutor executor;
+    private final int perUserLimit;
+    private final long timeoutMillis;
+
+    // Requests running or queued, per user
+    private final Map<Integer, Integer> activeByUser = new ConcurrentHashMap<>();
+
+    public static class GenerationRequest {
+        public String text;
+        public String noteType;
+        public String title;
+        public String filename;
+        public Integer folderId;
+        // An uploaded document to use as the source instead of text
+        public Integer documentId;
+    }
+
+    public GenerationService(NoteGenerator generator, NoteService noteService, GenerationCacheService cache,
+            DocumentService documentService, FolderRepository folderRepository,
+            @Value("${notetect.generation.max-concurrent:4}") int maxConcurrent,
+            @Value("${notetect.generation.queue-capacity:32}") int queueCapacity,
+            @Value("${notetect.generation.per-user-limit:2}") int perUserLimit,
+            @Value("${notetect.generation.timeout-ms:300000}") long timeoutMillis) {
+        this.generator = generator;
+        this.noteService = noteService;
+        this.cache = cache;
+        this.documentService = documentService;
+        this.folderRepository = folderRepository;
+        this.perUserLimit = perUserLimit;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "note-generation-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queue a generation for the user and return the SSE stream it will report on.
+     * Events: "queued", "started", one "token" per chunk, then "done" with the saved note id
+     * or "error". A request already answered for the same source, note type and prompt version
+     * is served from the cache instead: the note is saved right away and the stream carries
+     * "cached", a single "token" with the whole content and "done", without taking a slot.
+     *
+     * @throws ResponseStatusException 404 or 403 if the folder does not exist or is not the user's,
+     *         429 if the user or the server is at capacity
+     */
+    public SseEmitter generate(Integer userId, GenerationRequest request) {
+        // Checked up front, so a note that could not be saved is never generated
+        if (request.folderId != null) {
+            if (!folderRepository.existsById(request.folderId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Folder not found");
+            }
+            if (!folderRepository.existsByIdAndSubjectUserUserId(request.folderId, userId)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                        "User not authorized to add notes to this folder.");
+            }
+        }
+
+        Source source;
+        if (request.text != null && !request.text.isBlank()) {
+            String text = request.text;
+            source = () -> new StringReader(text);
+        } else if (request.documentId != null) {
+            // A document's text can be large: it is read from its file each time it is needed
+            SourceDocument document = documentService.getDocument(request.documentId, userId);
+            if (document.getCharCount() == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The document has no text");
+            }
+            Path textPath = documentService.getTextPath(request.documentId, userId);
+            source = () -> Files.newBufferedReader(textPath, StandardCharsets.UTF_8);
+            if (request.filename == null) {
+                request.filename = document.getFilename();
+            }
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "text or documentId is required");
+        }
+
+        String cacheKey;
+        try (Reader reader = source.open()) {
+            cacheKey = GenerationCacheService.cacheKey(reader, request.noteType, generator.promptVersion());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Optional<String> cached = cache.get(cacheKey);
+        if (cached.isPresent()) {
+            return replay(userId, request, cached.get());
+        }
+
+        if (!acquire(userId)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many generations in progress");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        ClientStream client = new ClientStream(emitter);
+        // Sent before the task is handed over so it always precedes "started"
+        client.send("queued", executor.getQueue().size());
+        try {
+            executor.execute(() -> {
+                try {
+                    run(userId, request, source, cacheKey, client);
+                } finally {
+                    release(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(userId);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Generation queue is full");
+        }
+        return emitter;
+    }
+
+    public int getQueueDepth() { return executor.getQueue().size(); }
+
+    public int getRunningCount() { return executor.getActiveCount(); }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private SseEmitter replay(Integer userId, GenerationRequest request, String content) {
+        Note saved = saveNote(userId, request, content);
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        ClientStream client = new ClientStream(emitter);
+        client.send("cached", "");
+        client.send("token", content);
+        client.send("done", Map.of("noteId", saved.getId()));
+        client.complete();
+        return emitter;
+    }
+
+    private void run(Integer userId, GenerationRequest request, Source source, String cacheKey, ClientStream client) {
+        client.send("started", "");
+        try {
+            String content;
+            try (Reader reader = source.open()) {
+                content = generator.generate(reader, request.noteType, token -> client.send("token", token));
+            }
+            try {
+                cache.put(cacheKey, request.noteType, generator.promptVersion(), content);
+            } catch (RuntimeException e) {
+                log.warn("Could not cache generation result", e);
+            }
+
+            Note saved = saveNote(userId, request, content);
+            client.send("done", Map.of("noteId", saved.getId()));
+            client.complete();
+        } catch (Exception e) {
+            log.warn("Note generation failed for user {}", userId, e);
+            client.send("error", "Generation failed");
+            client.complete();
+        }
+    }
+
+    private Note saveNote(Integer userId, GenerationRequest request, String content) {
+        Note note = new Note();
+        note.setTitle(request.title != null ? request.title : "Untitled");
+        note.setFilename(request.filename);
+        note.setNoteType(request.noteType);
+        note.setContent(content);
+        note.setCreatedAt(Instant.now());
+        return request.folderId != null
+                ? noteService.saveNoteWithFolder(note, userId, request.folderId)
+                : noteService.saveNote(note, userId);
+    }
+
+    // Where the source text of a request is read from; opened once for the key and once to generate
+    @FunctionalInterface
+    private interface Source {
+        Reader open() throws IOException;
+    }
+
+    // Count and check in one atomic step per user, so a release can never drop a counter
+    // another request is about to increment
+    boolean acquire(Integer userId) {
+        boolean[] acquired = new boolean[1];
+        activeByUser.compute(userId, (id, active) -> {
+            int count = active == null ? 0 : active;
+            acquired[0] = count < perUserLimit;
+            return acquired[0] ? count + 1 : active;
+        });
+        return acquired[0];
+    }
+
+    void release(Integer userId) {
+        activeByUser.computeIfPresent(userId, (id, active) -> active > 1 ? active - 1 : null);
+    }
+
+    /**
+     * Sends to the emitter until the client disconnects, then silently drops events
+     * so generation can still finish and be saved.
+     */
+    private static final class ClientStream {
+        private final SseEmitter emitter;
+        private volatile boolean open = true;
+
+        ClientStream(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(() -> open = false);
+            emitter.onTimeout(() -> open = false);
+            emitter.onError(e -> open = false);
+        }
+
+        synchronized void send(String event, Object data) {
+            if (!open) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data));
+            } catch (IOException | IllegalStateException e) {
+                open = false;
+            }
+        }
+
+        synchronized void complete() {
+            if (open) {
+                open = false;
+                emitter.complete();
+            }
+        }
+    }
+}
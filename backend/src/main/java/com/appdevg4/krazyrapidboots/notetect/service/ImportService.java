@@ -0,0 +1,562 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.config.JpaConfig;
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Imports notes from an uploaded archive: NDJSON as written by the export, or a zip of
+ * markdown/text files (subject/folder/note.md, with optional front matter).
+ *
+ * The upload is read one line or zip entry at a time. Subjects and folders are looked up
+ * by name (the user's existing ones are read once) and created the first time a name is
+ * seen. Notes are collected into chunks; each chunk is inserted in one transaction using
+ * JDBC batches, clearing the persistence context after every batch. A record that cannot
+ * be imported is reported and skipped: a chunk that fails is retried note by note, so
+ * only the offending notes are lost.
+ */
+@Service
+public class ImportService {
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+
+    // Errors listed in the result; any further ones are only counted
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    // Longest value that fits the varchar columns
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final UserRepository userRepository;
+    private final SubjectRepository subjectRepository;
+    private final FolderRepository folderRepository;
+    private final NoteSearchService noteSearchService;
+    private final RevisionService revisionService;
+    private final ChangeStreamService changeStream;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final int chunkSize;
+    private final int maxEntryBytes;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public static class ImportResult {
+        public int imported;
+        public int failed;
+        public int skipped;
+        public int subjectsCreated;
+        public int foldersCreated;
+        public List<RecordError> errors = new ArrayList<>();
+    }
+
+    // A record that was not imported: the NDJSON line number or zip entry name, and why
+    public static class RecordError {
+        public String record;
+        public String message;
+
+        RecordError(String record, String message) {
+            this.record = record;
+            this.message = message;
+        }
+    }
+
+    // Thrown for a record that cannot be imported; the import carries on with the next one
+    private static class InvalidRecordException extends RuntimeException {
+        InvalidRecordException(String message) {
+            super(message);
+        }
+    }
+
+    public ImportService(UserRepository userRepository, SubjectRepository subjectRepository,
+            FolderRepository folderRepository, NoteSearchService noteSearchService, RevisionService revisionService,
+            ChangeStreamService changeStream, ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+            @Value("${notetect.import.chunk-size:1000}") int chunkSize,
+            @Value("${notetect.import.max-entry-bytes:16777216}") int maxEntryBytes) {
+        this.userRepository = userRepository;
+        this.subjectRepository = subjectRepository;
+        this.folderRepository = folderRepository;
+        this.noteSearchService = noteSearchService;
+        this.revisionService = revisionService;
+        this.changeStream = changeStream;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Import an uploaded .ndjson or .zip archive into the user's workspace.
+     *
+     * @throws ResponseStatusException 400 if the file is empty, 415 if it is neither NDJSON nor zip
+     */
+    public ImportResult importArchive(MultipartFile file, Integer userId) {
+        if (file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "file is empty");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+
+        Run run = new Run(userId);
+        try (InputStream in = new BufferedInputStream(file.getInputStream())) {
+            if (isZip(in, file.getOriginalFilename())) {
+                readZip(in, run);
+            } else if (isNdjson(file.getOriginalFilename(), file.getContentType())) {
+                readNdjson(in, run);
+            } else {
+                throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                        "Only NDJSON and zip archives can be imported");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            run.flush();
+            revisionService.bump(userId);
+        }
+        log.info("Imported {} notes for user {} ({} failed)", run.result.imported, userId, run.result.failed);
+        return run.result;
+    }
+
+    private boolean isZip(InputStream in, String filename) throws IOException {
+        // Zip files start with "PK\3\4"
+        in.mark(4);
+        byte[] magic = in.readNBytes(4);
+        in.reset();
+        return magic.length == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4
+                || filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    private boolean isNdjson(String filename, String contentType) {
+        String name = filename != null ? filename.toLowerCase(Locale.ROOT) : "";
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")
+                || contentType != null && contentType.contains("ndjson");
+    }
+
+    /*
+     * One JSON object per line, as written by the export:
+     * {"type":"subject","id":1,"name":...}, {"type":"folder","id":3,"subjectId":1,"name":...},
+     * {"type":"note","folderId":3,"title":...,"noteType":...,"filename":...,"createdAt":...,"content":...}.
+     * Ids only link records within the file. Notes (the default type) may also name their
+     * subject and folder directly with "subject" and "folder".
+     */
+    private void readNdjson(InputStream in, Run run) throws IOException {
+        LineReader reader = new LineReader(in, maxEntryBytes);
+        Map<Integer, Integer> subjectIds = new HashMap<>();
+        Map<Integer, Integer> folderIds = new HashMap<>();
+        int lineNumber = 0;
+        for (String line = reader.next(); line != null; line = reader.next()) {
+            lineNumber++;
+            String record = "line " + lineNumber;
+            if (reader.tooLong) {
+                run.error(record, "larger than " + maxEntryBytes + " bytes");
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                if (node == null || !node.isObject()) {
+                    throw new InvalidRecordException("not a JSON object");
+                }
+                switch (text(node, "type") != null ? text(node, "type") : "note") {
+                    case "export" -> {
+                    }
+                    case "subject" -> {
+                        Integer subjectId = run.subject(required(node, "name"));
+                        if (node.hasNonNull("id")) {
+                            subjectIds.put(node.get("id").asInt(), subjectId);
+                        }
+                    }
+                    case "folder" -> {
+                        Integer subjectId = node.hasNonNull("subjectId")
+                                ? subjectIds.get(node.get("subjectId").asInt())
+                                : run.subject(required(node, "subject"));
+                        if (subjectId == null) {
+                            throw new InvalidRecordException("unknown subjectId " + node.get("subjectId").asInt());
+                        }
+                        Integer folderId = run.folder(subjectId, required(node, "name"));
+                        if (node.hasNonNull("id")) {
+                            folderIds.put(node.get("id").asInt(), folderId);
+                        }
+                    }
+                    case "note" -> {
+                        Integer folderId = null;
+                        if (node.hasNonNull("folderId")) {
+                            folderId = folderIds.get(node.get("folderId").asInt());
+                            if (folderId == null) {
+                                throw new InvalidRecordException("unknown folderId " + node.get("folderId").asInt());
+                            }
+                        } else if (text(node, "folder") != null) {
+                            folderId = run.folder(run.subject(required(node, "subject")), text(node, "folder"));
+                        }
+                        run.add(record, note(required(node, "title"), text(node, "noteType"), text(node, "filename"),
+                                text(node, "createdAt"), text(node, "content")), folderId);
+                    }
+                    default -> throw new InvalidRecordException("unknown type " + text(node, "type"));
+                }
+            } catch (InvalidRecordException e) {
+                run.error(record, e.getMessage());
+            } catch (IOException e) {
+                run.error(record, "invalid JSON");
+            }
+        }
+    }
+
+    /*
+     * subject/folder/title.md: the first directory is the subject, anything below it the
+     * folder, and files outside any directory (or in a top-level "unfiled" directory) are
+     * left unfiled; empty directories become empty subjects and folders. Front matter
+     * between "---" lines (title, noteType, filename, createdAt, subject, folder) takes
+     * precedence over the path when present, since exported paths are sanitised names.
+     */
+    private void readZip(InputStream in, Run run) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        // Directories are only created from their path if no note inside names its placement
+        Set<List<String>> emptyDirectories = new LinkedHashSet<>();
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            String name = entry.getName();
+            List<String> directories = new ArrayList<>(List.of(name.split("/")));
+            String fileName = entry.isDirectory() ? null : directories.remove(directories.size() - 1);
+            directories.removeIf(String::isBlank);
+            if (name.startsWith("__MACOSX/") || fileName != null && fileName.startsWith(".")) {
+                continue;
+            }
+            if (entry.isDirectory()) {
+                if (!directories.isEmpty() && !directories.get(0).equals("unfiled")) {
+                    emptyDirectories.add(directories);
+                }
+                continue;
+            }
+            // A directory holding a note is not empty, and neither are the ones above it
+            for (int i = 1; i <= directories.size(); i++) {
+                emptyDirectories.remove(directories.subList(0, i));
+            }
+            try {
+                String lower = fileName.toLowerCase(Locale.ROOT);
+                if (!lower.endsWith(".md") && !lower.endsWith(".markdown") && !lower.endsWith(".txt")) {
+                    run.result.skipped++;
+                    continue;
+                }
+                byte[] data = zip.readNBytes(maxEntryBytes + 1);
+                if (data.length > maxEntryBytes) {
+                    throw new InvalidRecordException("larger than " + maxEntryBytes + " bytes");
+                }
+                importMarkdown(run, name, directories, fileName, new String(data, StandardCharsets.UTF_8));
+            } catch (InvalidRecordException e) {
+                run.error(name, e.getMessage());
+            }
+        }
+        for (List<String> directories : emptyDirectories) {
+            try {
+                Integer subjectId = run.subject(directories.get(0));
+                if (directories.size() > 1) {
+                    run.folder(subjectId, String.join("/", directories.subList(1, directories.size())));
+                }
+            } catch (InvalidRecordException e) {
+                run.error(String.join("/", directories) + "/", e.getMessage());
+            }
+        }
+    }
+
+    private void importMarkdown(Run run, String record, List<String> directories, String fileName, String text)
+            throws IOException {
+        Map<String, String> frontMatter = new HashMap<>();
+        String content = text;
+        if (text.startsWith("---\n") || text.startsWith("---\r\n")) {
+            int end = text.indexOf("\n---", 3);
+            if (end >= 0) {
+                for (String line : text.substring(text.indexOf('\n') + 1, end).split("\r?\n")) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) {
+                        String value = line.substring(colon + 1).trim();
+                        if (value.startsWith("\"")) {
+                            // Quoted values are written as JSON strings by the export
+                            value = objectMapper.readValue(value, String.class);
+                        }
+                        frontMatter.put(line.substring(0, colon).trim(), value);
+                    }
+                }
+                int bodyStart = text.indexOf('\n', end + 1);
+                content = bodyStart >= 0 ? text.substring(bodyStart + 1).replaceFirst("^\r?\n", "") : "";
+            }
+        }
+
+        Integer folderId = null;
+        if (!frontMatter.isEmpty()) {
+            if (frontMatter.containsKey("folder")) {
+                if (!frontMatter.containsKey("subject")) {
+                    throw new InvalidRecordException("folder without subject");
+                }
+                folderId = run.folder(run.subject(frontMatter.get("subject")), frontMatter.get("folder"));
+            }
+        } else if (directories.size() > 1 && !directories.get(0).equals("unfiled")) {
+            folderId = run.folder(run.subject(directories.get(0)),
+                    String.join("/", directories.subList(1, directories.size())));
+        }
+
+        String title = frontMatter.getOrDefault("title", fileName.substring(0, fileName.lastIndexOf('.')));
+        run.add(record, note(title, frontMatter.get("noteType"), frontMatter.get("filename"),
+                frontMatter.get("createdAt"), content), folderId);
+    }
+
+    private Note note(String title, String noteType, String filename, String createdAt, String content) {
+        Note note = new Note();
+        note.setTitle(checkLength("title", title));
+        note.setNoteType(checkLength("noteType", noteType));
+        note.setFilename(checkLength("filename", filename));
+        note.setContent(content);
+        if (createdAt != null) {
+            try {
+                note.setCreatedAt(Instant.parse(createdAt));
+            } catch (DateTimeParseException e) {
+                throw new InvalidRecordException("invalid createdAt " + createdAt);
+            }
+        }
+        return note;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String required(JsonNode node, String field) {
+        String value = text(node, field);
+        if (value == null || value.isBlank()) {
+            throw new InvalidRecordException(field + " is required");
+        }
+        return value;
+    }
+
+    private static String checkLength(String field, String value) {
+        if (value != null && value.length() > MAX_NAME_LENGTH) {
+            throw new InvalidRecordException(field + " is longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        return value;
+    }
+
+    /*
+     * Splits an NDJSON upload into lines of at most maxBytes bytes. A longer line is read
+     * to its end without being kept, so one runaway record cannot exhaust the heap; it is
+     * returned empty with tooLong set.
+     */
+    private static class LineReader {
+        private final InputStream in;
+        private final int maxBytes;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private byte[] line = new byte[1024];
+        boolean tooLong;
+
+        LineReader(InputStream in, int maxBytes) {
+            this.in = in;
+            this.maxBytes = maxBytes;
+        }
+
+        // The next line without its "\n" or "\r\n", or null at the end of the upload
+        String next() throws IOException {
+            int length = 0;
+            boolean started = false;
+            tooLong = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(in.read(buffer), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        return started ? text(length) : null;
+                    }
+                }
+                started = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                int count = position - start;
+                if (!tooLong && count > maxBytes - length) {
+                    tooLong = true;
+                } else if (!tooLong) {
+                    if (length + count > line.length) {
+                        line = Arrays.copyOf(line, Math.min(Math.max(line.length * 2, length + count), maxBytes));
+                    }
+                    System.arraycopy(buffer, start, line, length, count);
+                    length += count;
+                }
+                if (position < limit) {
+                    position++;
+                    return text(length);
+                }
+            }
+        }
+
+        private String text(int length) {
+            if (tooLong) {
+                return "";
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    // State of one import: the name lookups, the chunk being collected and the result
+    private class Run {
+        private final Integer userId;
+        private final ImportResult result = new ImportResult();
+        private final Map<String, Integer> subjects = new HashMap<>();
+        private final Map<String, Integer> folders = new HashMap<>();
+        private final List<Note> chunk = new ArrayList<>();
+        private final List<Integer> chunkFolders = new ArrayList<>();
+        private final List<String> chunkRecords = new ArrayList<>();
+        private int errorCount;
+
+        Run(Integer userId) {
+            this.userId = userId;
+            for (Subject subject : subjectRepository.findByUserUserIdOrderByIdAsc(userId)) {
+                subjects.putIfAbsent(subject.getName(), subject.getId());
+            }
+            for (FolderSummary folder : folderRepository.findSummariesByUserId(userId)) {
+                folders.putIfAbsent(folder.getSubjectId() + "/" + folder.getName(), folder.getId());
+            }
+        }
+
+        // Id of the user's subject with this name, created if there is none
+        Integer subject(String name) {
+            checkLength("subject", name);
+            return subjects.computeIfAbsent(name, key -> {
+                Subject subject = new Subject();
+                subject.setName(name);
+                subject.setUser(userRepository.getReferenceById(userId));
+                result.subjectsCreated++;
+                Integer id = subjectRepository.save(subject).getId();
+                changeStream.publish(userId, ChangeStreamService.SUBJECT, ChangeStreamService.CREATED, List.of(id));
+                return id;
+            });
+        }
+
+        // Id of the subject's folder with this name, created if there is none
+        Integer folder(Integer subjectId, String name) {
+            checkLength("folder", name);
+            return folders.computeIfAbsent(subjectId + "/" + name, key -> {
+                Folder folder = new Folder();
+                folder.setName(name);
+                folder.setSubject(subjectRepository.getReferenceById(subjectId));
+                result.foldersCreated++;
+                Integer id = folderRepository.save(folder).getId();
+                changeStream.publish(userId, ChangeStreamService.FOLDER, ChangeStreamService.CREATED, List.of(id));
+                return id;
+            });
+        }
+
+        void add(String record, Note note, Integer folderId) {
+            chunk.add(note);
+            chunkFolders.add(folderId);
+            chunkRecords.add(record);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void error(String record, String message) {
+            result.failed++;
+            if (errorCount++ < MAX_REPORTED_ERRORS) {
+                result.errors.add(new RecordError(record, message));
+            }
+        }
+
+        // Insert the collected notes in one transaction, or one by one if that fails
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Integer> created = new ArrayList<>(chunk.size());
+            try {
+                insert(0, chunk.size());
+                result.imported += chunk.size();
+                chunk.forEach(noteSearchService::indexNote);
+                chunk.forEach(note -> created.add(note.getId()));
+            } catch (DataAccessException | PersistenceException e) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.get(i).setId(0);
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    try {
+                        insert(i, i + 1);
+                        result.imported++;
+                        noteSearchService.indexNote(chunk.get(i));
+                        created.add(chunk.get(i).getId());
+                    } catch (DataAccessException | PersistenceException single) {
+                        error(chunkRecords.get(i), "could not be saved: "
+                                + NestedExceptionUtils.getMostSpecificCause(single).getMessage());
+                    }
+                }
+            }
+            chunk.clear();
+            chunkFolders.clear();
+            chunkRecords.clear();
+            revisionService.bump(userId);
+            // One event per chunk, so a large import does not flood the user's streams
+            changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.CREATED, created);
+        }
+
+        private void insert(int from, int to) {
+            transaction.executeWithoutResult(status -> {
+                User user = entityManager.getReference(User.class, userId);
+                for (int i = from; i < to; i++) {
+                    Note note = chunk.get(i);
+                    note.setUser(user);
+                    Integer folderId = chunkFolders.get(i);
+                    note.setFolder(folderId != null ? entityManager.getReference(Folder.class, folderId) : null);
+                    entityManager.persist(note);
+                    // Flush each full batch and detach it so the persistence context stays small
+                    if ((i - from + 1) % JpaConfig.JDBC_BATCH_SIZE == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                        user = entityManager.getReference(User.class, userId);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Invalidations shared by all instances through a cache_invalidation table that every
+ * instance polls. Rows are read again for a short overlap on each poll, since rows from
+ * concurrent transactions can become visible out of id order; applying one twice only
+ * evicts an entry twice. Instance clocks are assumed to agree to within that overlap.
+ * Old rows are deleted after retention-ms.
+ */
+@Component
+@ConditionalOnProperty(name = "notetect.cache.invalidation", havingValue = "jdbc")
+public class JdbcCacheInvalidationBroadcaster implements CacheInvalidationBroadcaster {
+    private static final Logger log = LoggerFactory.getLogger(JdbcCacheInvalidationBroadcaster.class);
+    private static final long OVERLAP_MS = 5000;
+    private static final int APPLIED_REMEMBERED = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retentionMillis;
+    private final String origin = UUID.randomUUID().toString();
+    private final List<BiConsumer<String, Integer>> handlers = new CopyOnWriteArrayList<>();
+
+    // Ids of rows already handled, so the overlap does not apply them again
+    private final Map<Long, Boolean> applied = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > APPLIED_REMEMBERED;
+        }
+    };
+    private long lastPolledAt = System.currentTimeMillis();
+
+    public JdbcCacheInvalidationBroadcaster(JdbcTemplate jdbcTemplate,
+            @Value("${notetect.cache.invalidation.retention-ms:600000}") long retentionMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionMillis = retentionMillis;
+    }
+
+    @Override
+    public void publish(String entityName, Integer id) {
+        try {
+            jdbcTemplate.update("INSERT INTO cache_invalidation (origin, entity_name, entity_id, created_at) "
+                    + "VALUES (?, ?, ?, ?)", origin, entityName, id, System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            // Other instances keep the stale entry until it expires
+            log.warn("Could not publish cache invalidation for {} {}", entityName, id, e);
+        }
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, Integer> handler) {
+        handlers.add(handler);
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.cache.invalidation.poll-ms:1000}")
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, entity_name, entity_id FROM cache_invalidation WHERE created_at >= ? AND origin <> ? "
+                        + "ORDER BY id", lastPolledAt - OVERLAP_MS, origin);
+        lastPolledAt = now;
+        for (Map<String, Object> row : rows) {
+            long id = ((Number) row.get("id")).longValue();
+            if (applied.put(id, Boolean.TRUE) == null) {
+                String entityName = (String) row.get("entity_name");
+                Integer entityId = ((Number) row.get("entity_id")).intValue();
+                handlers.forEach(handler -> handler.accept(entityName, entityId));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.cache.invalidation.retention-ms:600000}")
+    public void deleteExpired() {
+        jdbcTemplate.update("DELETE FROM cache_invalidation WHERE created_at < ?",
+                System.currentTimeMillis() - retentionMillis);
+    }
+}
@@ -0,0 +1,89 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Change events shared by all instances through a change_event table that every instance
+ * polls. As with cache invalidations, rows are read again for a short overlap on each
+ * poll and skipped if already delivered. Rows only matter until every instance has
+ * polled them, so they are deleted after retention-ms.
+ */
+@Component
+@ConditionalOnProperty(name = "notetect.changes.broadcast", havingValue = "jdbc")
+public class JdbcChangeEventBroadcaster implements ChangeEventBroadcaster {
+    private static final Logger log = LoggerFactory.getLogger(JdbcChangeEventBroadcaster.class);
+    private static final long OVERLAP_MS = 5000;
+    private static final int DELIVERED_REMEMBERED = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retentionMillis;
+    private final String origin = UUID.randomUUID().toString();
+    private final List<BiConsumer<Integer, String>> handlers = new CopyOnWriteArrayList<>();
+
+    // Ids of rows already delivered, so the overlap does not deliver them again
+    private final Map<Long, Boolean> delivered = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > DELIVERED_REMEMBERED;
+        }
+    };
+    private long lastPolledAt = System.currentTimeMillis();
+
+    public JdbcChangeEventBroadcaster(JdbcTemplate jdbcTemplate,
+            @Value("${notetect.changes.retention-ms:60000}") long retentionMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionMillis = retentionMillis;
+    }
+
+    @Override
+    public void publish(Integer userId, String event) {
+        try {
+            jdbcTemplate.update("INSERT INTO change_event (origin, user_id, payload, created_at) VALUES (?, ?, ?, ?)",
+                    origin, userId, event, System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            // Streams on other instances miss this change until their clients reload
+            log.warn("Could not publish change event for user {}", userId, e);
+        }
+    }
+
+    @Override
+    public void subscribe(BiConsumer<Integer, String> handler) {
+        handlers.add(handler);
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.changes.poll-ms:500}")
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, user_id, payload FROM change_event WHERE created_at >= ? AND origin <> ? ORDER BY id",
+                lastPolledAt - OVERLAP_MS, origin);
+        lastPolledAt = now;
+        for (Map<String, Object> row : rows) {
+            long id = ((Number) row.get("id")).longValue();
+            if (delivered.put(id, Boolean.TRUE) == null) {
+                Integer userId = ((Number) row.get("user_id")).intValue();
+                String payload = (String) row.get("payload");
+                handlers.forEach(handler -> handler.accept(userId, payload));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.changes.retention-ms:60000}")
+    public void deleteExpired() {
+        jdbcTemplate.update("DELETE FROM change_event WHERE created_at < ?", System.currentTimeMillis() - retentionMillis);
+    }
+}
@@ -0,0 +1,143 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Revisions shared by all instances through a small user_revision table.
+ * Each lookup is a single primary-key read, kept for up to cache-ms so a burst of
+ * conditional GETs is answered without the database. This instance's increments
+ * update the kept value at once, and a change event from another instance drops it,
+ * so a write elsewhere is seen after the next poll and at the latest after cache-ms.
+ *
+ * If the table cannot be reached the store falls back to per-JVM revisions under a
+ * different epoch, so clients simply revalidate instead of being served stale data,
+ * and no 304s are sent until a periodic probe finds the table again. The users changed meanwhile
+ * then have their shared revision increased.
+ */
+@Component
+@ConditionalOnProperty(name = "notetect.revisions.store", havingValue = "jdbc")
+public class JdbcRevisionStore implements RevisionStore {
+    private static final Logger log = LoggerFactory.getLogger(JdbcRevisionStore.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final Cache<Integer, Long> revisions;
+    private volatile LocalRevisionStore fallback = new LocalRevisionStore();
+    private volatile boolean usingFallback = false;
+
+    public JdbcRevisionStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ChangeEventBroadcaster changeEvents,
+            @Value("${notetect.revisions.cache-ms:1000}") long cacheMillis,
+            @Value("${notetect.revisions.cached-users:100000}") long cachedUsers) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Increments run after the caller's transaction committed, so they need one of their own
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.revisions = Caffeine.newBuilder()
+                .maximumSize(cachedUsers)
+                .expireAfterWrite(Duration.ofMillis(cacheMillis))
+                .build();
+        // Another instance changed the user's data, and with it their revision
+        changeEvents.subscribe((userId, event) -> revisions.invalidate(userId));
+    }
+
+    @Override
+    public long current(Integer userId) {
+        if (!usingFallback) {
+            try {
+                return revisions.get(userId, id -> {
+                    List<Long> rows = jdbcTemplate.queryForList(
+                            "SELECT revision FROM user_revision WHERE user_id = ?", Long.class, id);
+                    return rows.isEmpty() ? 0L : rows.get(0);
+                });
+            } catch (DataAccessException e) {
+                switchToFallback(e);
+            }
+        }
+        return fallback.current(userId);
+    }
+
+    @Override
+    public long increment(Integer userId) {
+        if (!usingFallback) {
+            try {
+                long revision = newTransaction.execute(status -> {
+                    // Plain UPDATE then INSERT rather than MySQL's upsert, so any database will do
+                    if (jdbcTemplate.update(
+                            "UPDATE user_revision SET revision = revision + 1 WHERE user_id = ?", userId) == 0) {
+                        try {
+                            jdbcTemplate.update("INSERT INTO user_revision (user_id, revision) VALUES (?, 1)", userId);
+                        } catch (DuplicateKeyException e) {
+                            // Another instance inserted the row first
+                            jdbcTemplate.update(
+                                    "UPDATE user_revision SET revision = revision + 1 WHERE user_id = ?", userId);
+                        }
+                    }
+                    return jdbcTemplate.queryForObject(
+                            "SELECT revision FROM user_revision WHERE user_id = ?", Long.class, userId);
+                });
+                // Concurrent increments may finish out of order; keep the highest
+                revisions.asMap().merge(userId, revision, Math::max);
+                return revision;
+            } catch (DataAccessException e) {
+                switchToFallback(e);
+            }
+        }
+        return fallback.increment(userId);
+    }
+
+    @Override
+    public String epoch() {
+        return usingFallback ? fallback.epoch() : "db";
+    }
+
+    @Override
+    public boolean isReliable() {
+        return !usingFallback;
+    }
+
+    // While on the fallback, see whether the table can be reached again
+    @Scheduled(fixedDelayString = "${notetect.revisions.probe-ms:10000}")
+    public void probe() {
+        if (!usingFallback) {
+            return;
+        }
+        try {
+            jdbcTemplate.queryForList("SELECT revision FROM user_revision WHERE user_id = ?", Long.class, 0);
+        } catch (DataAccessException e) {
+            log.debug("Shared revision store still unavailable", e);
+            return;
+        }
+        LocalRevisionStore degraded = fallback;
+        fallback = new LocalRevisionStore();
+        // Other instances may have moved revisions on meanwhile
+        revisions.invalidateAll();
+        usingFallback = false;
+        log.info("Shared revision store available again");
+        // Changes counted only here would otherwise leave the shared revisions where clients last saw them
+        for (Integer userId : degraded.users()) {
+            increment(userId);
+        }
+    }
+
+    private void switchToFallback(DataAccessException e) {
+        usingFallback = true;
+        log.warn("Shared revision store unavailable, using per-instance revisions", e);
+    }
+}
@@ -0,0 +1,22 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.BiConsumer;
+
+/**
+ * No other instances to tell; suitable for a single instance
+ */
+@Component
+@ConditionalOnProperty(name = "notetect.cache.invalidation", havingValue = "local", matchIfMissing = true)
+public class LocalCacheInvalidationBroadcaster implements CacheInvalidationBroadcaster {
+
+    @Override
+    public void publish(String entityName, Integer id) {
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, Integer> handler) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.BiConsumer;
+
+/**
+ * No other instances to tell; suitable for a single instance
+ */
+@Component
+@ConditionalOnProperty(name = "notetect.changes.broadcast", havingValue = "local", matchIfMissing = true)
+public class LocalChangeEventBroadcaster implements ChangeEventBroadcaster {
+
+    @Override
+    public void publish(Integer userId, String event) {
+    }
+
+    @Override
+    public void subscribe(BiConsumer<Integer, String> handler) {
+    }
+}
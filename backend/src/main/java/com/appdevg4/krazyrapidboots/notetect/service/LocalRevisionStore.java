@@ -0,0 +1,42 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revisions held in this JVM only; suitable for a single instance
+ */
+@Component
+@ConditionalOnProperty(name = "notetect.revisions.store", havingValue = "local", matchIfMissing = true)
+public class LocalRevisionStore implements RevisionStore {
+    private final Map<Integer, AtomicLong> revisions = new ConcurrentHashMap<>();
+
+    // Counters restart on every boot, so the epoch does too
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Override
+    public long current(Integer userId) {
+        AtomicLong revision = revisions.get(userId);
+        return revision != null ? revision.get() : 0;
+    }
+
+    @Override
+    public long increment(Integer userId) {
+        return revisions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Override
+    public String epoch() {
+        return epoch;
+    }
+
+    // Users whose revision was ever increased here
+    public List<Integer> users() {
+        return List.copyOf(revisions.keySet());
+    }
+}
@@ -0,0 +1,99 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts note rows written before content compression.
+ * On startup the content column is switched from TEXT to a binary type if needed,
+ * then a background job walks the table in id order and compresses large plain rows
+ * a batch at a time. Rows already carrying the format header are left alone.
+ */
+@Service
+public class NoteContentMigrator {
+    private static final Logger log = LoggerFactory.getLogger(NoteContentMigrator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+    private final boolean enabled;
+    private final int batchSize;
+
+    // Highest note id already looked at; -1 once the whole table is done
+    private volatile int lastMigratedId = 0;
+
+    private record Row(int id, long version, byte[] content) {}
+
+    public NoteContentMigrator(JdbcTemplate jdbcTemplate,
+            @Value("${notetect.content-compression.migrate:true}") boolean enabled,
+            @Value("${notetect.content-compression.batch-size:200}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    // Runs before the web server starts, so no compressed value is written into a TEXT column
+    @PostConstruct
+    public void convertColumnType() {
+        String type = jdbcTemplate.execute((Connection con) -> {
+            DatabaseMetaData meta = con.getMetaData();
+            if (!meta.getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql")) {
+                return null;
+            }
+            try (ResultSet columns = meta.getColumns(con.getCatalog(), null, "note", "content")) {
+                return columns.next() ? columns.getString("TYPE_NAME") : null;
+            }
+        });
+        if (type != null && type.toUpperCase(Locale.ROOT).contains("TEXT")) {
+            log.info("Converting note.content from {} to LONGBLOB", type);
+            jdbcTemplate.execute("ALTER TABLE note MODIFY content LONGBLOB");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.content-compression.interval-ms:5000}")
+    public void migrateBatch() {
+        if (!enabled || lastMigratedId < 0) {
+            return;
+        }
+
+        List<Row> rows = jdbcTemplate.query(
+                "SELECT id, version, content FROM note WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, i) -> new Row(rs.getInt("id"), rs.getLong("version"), rs.getBytes("content")),
+                lastMigratedId, batchSize);
+
+        int converted = 0;
+        for (Row row : rows) {
+            if (row.content() != null
+                    && row.content().length > CompressedTextConverter.COMPRESSION_THRESHOLD
+                    && !CompressedTextConverter.hasHeader(row.content())) {
+                byte[] stored = converter.convertToDatabaseColumn(
+                        converter.convertToEntityAttribute(row.content()));
+                // The version check skips rows a user edited meanwhile; their new content is already compressed
+                converted += jdbcTemplate.update("UPDATE note SET content = ? WHERE id = ? AND version = ?",
+                        stored, row.id(), row.version());
+            }
+        }
+
+        if (rows.size() < batchSize) {
+            lastMigratedId = -1;
+            log.info("Note content compression migration finished");
+        } else {
+            lastMigratedId = rows.get(rows.size() - 1).id();
+        }
+        if (converted > 0) {
+            log.info("Compressed content of {} notes (up to id {})", converted,
+                    rows.get(rows.size() - 1).id());
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.config.JpaConfig;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in write-behind buffer for full content updates (PUT /api/notes/{id}/content).
+ *
+ * The latest content of each note is held in memory and written once the first buffered
+ * update is older than window-ms, so a burst of edits becomes a single UPDATE. Due notes
+ * are written together in JDBC batches. Everything still buffered is written when the
+ * application context stops, after the web server has stopped taking requests.
+ */
+@Service
+public class NoteContentWriteBehind implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(NoteContentWriteBehind.class);
+
+    // Stop after the web server (DEFAULT_PHASE - 2048) so no update arrives once the last flush ran
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NoteSearchService noteSearchService;
+    private final NoteRevisionService noteRevisionService;
+    private final RevisionService revisionService;
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxPending;
+    private volatile boolean running;
+
+    // A detached copy of the note carrying the latest content, replaced on every update,
+    // and the content stored when the first update was buffered (for the revision history)
+    private record Pending(Note note, long firstBufferedAt, String storedContent) {}
+
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong updatesBuffered = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+
+    public NoteContentWriteBehind(JdbcTemplate jdbcTemplate, NoteSearchService noteSearchService,
+            NoteRevisionService noteRevisionService, RevisionService revisionService,
+            @Value("${notetect.notes.write-behind.enabled:false}") boolean enabled,
+            @Value("${notetect.notes.write-behind.window-ms:2000}") long windowMillis,
+            @Value("${notetect.notes.write-behind.max-pending:10000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.noteSearchService = noteSearchService;
+        this.noteRevisionService = noteRevisionService;
+        this.revisionService = revisionService;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxPending = maxPending;
+    }
+
+    // Whether content updates should be buffered rather than written straight away
+    public boolean isEnabled() {
+        return enabled && running;
+    }
+
+    // The buffered (not yet written) version of the note, or null
+    public Note getPending(int noteId) {
+        Pending entry = pending.get(noteId);
+        return entry != null ? entry.note() : null;
+    }
+
+    /**
+     * Buffer new content for a note the caller has already loaded and authorized.
+     *
+     * @return the buffered note, or null if the buffer is full and the update must be written directly
+     */
+    public Note buffer(Note current, String content) {
+        if (pending.size() >= maxPending && !pending.containsKey(current.getId())) {
+            return null;
+        }
+        Note copy = new Note(current.getId(), content, current.getTitle(), current.getFilename(),
+                current.getCreatedAt(), current.getNoteType(), current.getUser(), current.getFolder());
+        copy.setVersion(current.getVersion());
+        long now = System.currentTimeMillis();
+        pending.compute(current.getId(), (id, previous) ->
+                previous != null ? new Pending(copy, previous.firstBufferedAt(), previous.storedContent())
+                        : new Pending(copy, now, current.getContent()));
+        updatesBuffered.incrementAndGet();
+        return copy;
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.notes.write-behind.flush-interval-ms:250}")
+    public void flushDue() {
+        if (!pending.isEmpty()) {
+            flush(System.currentTimeMillis() - windowMillis);
+        }
+    }
+
+    // Write one note's buffered content now, e.g. before applying a versioned patch to it
+    public synchronized void flushNote(int noteId) {
+        Pending entry = pending.get(noteId);
+        if (entry != null) {
+            write(List.of(Map.entry(noteId, entry)));
+        }
+    }
+
+    // Forget buffered content of a note that has been deleted
+    public synchronized void discard(int noteId) {
+        pending.remove(noteId);
+    }
+
+    public void flushAll() {
+        flush(Long.MAX_VALUE);
+    }
+
+    public long getUpdatesBuffered() { return updatesBuffered.get(); }
+
+    public long getRowsWritten() { return rowsWritten.get(); }
+
+    public long getBatchesWritten() { return batchesWritten.get(); }
+
+    public int getPendingCount() { return pending.size(); }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!pending.isEmpty()) {
+            log.info("Writing {} buffered note updates before shutdown", pending.size());
+            flushAll();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // Write every entry first buffered at or before the cutoff
+    private synchronized void flush(long cutoff) {
+        List<Map.Entry<Integer, Pending>> due = new ArrayList<>();
+        for (Map.Entry<Integer, Pending> entry : pending.entrySet()) {
+            if (entry.getValue().firstBufferedAt() <= cutoff) {
+                due.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        for (int start = 0; start < due.size(); start += JpaConfig.JDBC_BATCH_SIZE) {
+            write(due.subList(start, Math.min(start + JpaConfig.JDBC_BATCH_SIZE, due.size())));
+        }
+    }
+
+    // Callers hold the lock, so the scheduled, per-note and shutdown flushes never interleave
+    private void write(List<Map.Entry<Integer, Pending>> batch) {
+        // Content goes through the same converter as the entity; the version bump keeps optimistic locking honest
+        int[][] counts = jdbcTemplate.batchUpdate("UPDATE note SET content = ?, version = version + 1 WHERE id = ?",
+                batch, JpaConfig.JDBC_BATCH_SIZE, (ps, entry) -> {
+                    ps.setBytes(1, converter.convertToDatabaseColumn(entry.getValue().note().getContent()));
+                    ps.setInt(2, entry.getKey());
+                });
+        batchesWritten.incrementAndGet();
+        rowsWritten.addAndGet(batch.size());
+
+        for (int i = 0; i < batch.size(); i++) {
+            Map.Entry<Integer, Pending> entry = batch.get(i);
+            String written = entry.getValue().note().getContent();
+            // The row's version moved on with the write, and so does that of a newer update buffered against it
+            long version = entry.getValue().note().getVersion() + 1;
+            entry.getValue().note().setVersion(version);
+            // Keep a newer update that arrived while writing; it goes out with the next flush
+            pending.computeIfPresent(entry.getKey(), (id, current) -> {
+                if (current == entry.getValue()) {
+                    return null;
+                }
+                current.note().setVersion(version);
+                return new Pending(current.note(), current.firstBufferedAt(), written);
+            });
+        }
+        Set<Integer> owners = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            // A note deleted while its update was buffered must not come back into the search index
+            if (counts[0][i] != 0) {
+                Pending written = batch.get(i).getValue();
+                noteSearchService.indexNote(written.note());
+                owners.add(written.note().getUser().getUserId());
+                // All buffered updates of the note become one revision
+                noteRevisionService.record(written.note().getId(), written.note().getTitle(), written.storedContent(),
+                        written.note().getTitle(), written.note().getContent());
+            }
+        }
+        // Lists read from the database while the content was buffered were tagged with the revision
+        // bumped at buffering time; a new one makes clients fetch them again
+        owners.forEach(revisionService::bump);
+    }
+}
@@ -0,0 +1,125 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills note.created_time (added by migration V3) from the legacy text column created_at.
+ * A background job walks the table in id order a batch at a time, so the table is never
+ * locked for long and the application keeps serving requests meanwhile. Rows whose text
+ * cannot be parsed are left empty.
+ */
+@Service
+public class NoteCreatedTimeBackfill {
+    private static final Logger log = LoggerFactory.getLogger(NoteCreatedTimeBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    // Highest note id already looked at; -1 once the whole table is done
+    private volatile int lastBackfilledId = 0;
+
+    private record Row(int id, String createdAt) {}
+
+    public NoteCreatedTimeBackfill(JdbcTemplate jdbcTemplate,
+            @Value("${notetect.created-time.backfill:true}") boolean enabled,
+            @Value("${notetect.created-time.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    // Nothing to do once the legacy column has been dropped (or was never there)
+    @PostConstruct
+    public void checkLegacyColumn() {
+        Boolean present = jdbcTemplate.execute((Connection con) -> {
+            DatabaseMetaData meta = con.getMetaData();
+            for (String table : new String[] { "note", "NOTE" }) {
+                try (ResultSet columns = meta.getColumns(con.getCatalog(), null, table, null)) {
+                    while (columns.next()) {
+                        if (columns.getString("COLUMN_NAME").equalsIgnoreCase("created_at")) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        lastBackfilledId = Boolean.TRUE.equals(present) ? 0 : -1;
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.created-time.interval-ms:5000}")
+    public void backfillBatch() {
+        if (!enabled || lastBackfilledId < 0) {
+            return;
+        }
+
+        List<Row> rows = jdbcTemplate.query(
+                "SELECT id, created_at FROM note WHERE id > ? AND created_time IS NULL AND created_at IS NOT NULL "
+                        + "ORDER BY id LIMIT ?",
+                (rs, i) -> new Row(rs.getInt("id"), rs.getString("created_at")),
+                lastBackfilledId, batchSize);
+
+        List<Object[]> updates = new ArrayList<>();
+        for (Row row : rows) {
+            LocalDateTime createdTime = parse(row.createdAt());
+            if (createdTime != null) {
+                updates.add(new Object[] { createdTime, row.id() });
+            }
+        }
+        // Notes created since the migration already carry a created_time of their own
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE note SET created_time = ? WHERE id = ? AND created_time IS NULL", updates);
+
+        if (rows.size() < batchSize) {
+            lastBackfilledId = -1;
+            log.info("Note created_time backfill finished");
+        } else {
+            lastBackfilledId = rows.get(rows.size() - 1).id();
+        }
+        int filled = 0;
+        for (int count : counts) {
+            filled += Math.max(count, 0);
+        }
+        if (filled > 0) {
+            log.info("Backfilled created_time of {} notes (up to id {})", filled, rows.get(rows.size() - 1).id());
+        }
+    }
+
+    public boolean isFinished() {
+        return lastBackfilledId < 0;
+    }
+
+    // The text was written by Instant.toString(); stored as UTC wall-clock time, like Hibernate stores Instants
+    static LocalDateTime parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.ofInstant(Instant.parse(text.trim()), ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(text.trim().replace(' ', 'T'));
+            } catch (DateTimeParseException ignored) {
+                log.debug("Unparseable note created_at '{}'", text);
+                return null;
+            }
+        }
+    }
+}
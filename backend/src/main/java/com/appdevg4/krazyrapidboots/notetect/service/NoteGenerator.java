@@ -0,0 +1,32 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.function.Consumer;
+
+/**
+ * Turns source text into a note of the requested type (SUMMARY, STUDY_GUIDE, SIMPLIFY,
+ * ACTION_ITEMS, FLASHCARD), handing each token to the sink as soon as it is produced.
+ */
+public interface NoteGenerator {
+
+    /**
+     * Generate the note from source text read to its end, streaming tokens to tokenSink.
+     * The source may be a large document, so read only as much of it as is needed.
+     *
+     * @return the complete generated text
+     */
+    String generate(Reader source, String noteType, Consumer<String> tokenSink) throws Exception;
+
+    default String generate(String sourceText, String noteType, Consumer<String> tokenSink) throws Exception {
+        return generate(new StringReader(sourceText == null ? "" : sourceText), noteType, tokenSink);
+    }
+
+    /**
+     * Identifies the prompt/model behind generate. Change it whenever output for the same
+     * source would differ, so cached results from the old version are no longer reused.
+     */
+    default String promptVersion() {
+        return getClass().getSimpleName() + "-1";
+    }
+}
@@ -0,0 +1,285 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.NoteRevision;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRevisionRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRevisionSummary;
+import com.appdevg4.krazyrapidboots.notetect.util.TextDiff;
+import com.appdevg4.krazyrapidboots.notetect.util.TextPatch;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Revision history of note titles and content.
+ *
+ * Every change is stored as the line diff from the previous revision, with a full
+ * snapshot at least every snapshot-interval revisions and whenever the diff would not
+ * be much smaller than the content (e.g. after regenerating a note). Reading a revision
+ * takes one query for its snapshot and the diffs after it, applied in memory.
+ *
+ * Revisions older than compact-after-days are merged by a background job: of several
+ * revisions saved within merge-window-ms of each other only the last is kept, and the
+ * chain is re-encoded against the revisions that remain. Recording and compaction of the
+ * same note take turns on the note's row lock.
+ */
+@Service
+public class NoteRevisionService {
+    private static final Logger log = LoggerFactory.getLogger(NoteRevisionService.class);
+
+    private static final TypeReference<List<TextPatch.Edit>> EDITS = new TypeReference<>() {};
+
+    private final NoteRevisionRepository revisionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final int snapshotInterval;
+    private final Duration compactAfter;
+    private final long mergeWindowMillis;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // A revision rebuilt from the stored snapshot and diffs
+    public static class Revision {
+        public int seq;
+        public String title;
+        public String content;
+        public Instant createdAt;
+    }
+
+    public NoteRevisionService(NoteRevisionRepository revisionRepository, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+            @Value("${notetect.revisions.snapshot-interval:20}") int snapshotInterval,
+            @Value("${notetect.revisions.compact-after-days:7}") int compactAfterDays,
+            @Value("${notetect.revisions.merge-window-ms:3600000}") long mergeWindowMillis) {
+        this.revisionRepository = revisionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.snapshotInterval = snapshotInterval;
+        this.compactAfter = Duration.ofDays(compactAfterDays);
+        this.mergeWindowMillis = mergeWindowMillis;
+    }
+
+    /**
+     * Record a note's new title and content as its latest revision. The previous values
+     * are what the note held before the change; they start the history if there is none
+     * yet, or are recorded first if the note was changed without a revision.
+     */
+    public void record(int noteId, String previousTitle, String previousContent, String title, String content) {
+        if (Objects.equals(previousTitle, title) && Objects.equals(previousContent, content)) {
+            return;
+        }
+        try {
+            transaction.executeWithoutResult(status -> {
+                if (!lockNote(noteId)) {
+                    return;
+                }
+                NoteRevision latest = revisionRepository.findTopByNoteIdOrderBySeqDesc(noteId).orElse(null);
+                if (latest == null || !Arrays.equals(latest.getContentDigest(), digest(previousContent))
+                        || !Objects.equals(latest.getTitle(), previousTitle)) {
+                    latest = revisionRepository.save(snapshot(noteId, latest != null ? latest.getSeq() + 1 : 1,
+                            previousTitle, previousContent));
+                }
+                long diffs = revisionRepository.countByNoteIdAndSeqGreaterThan(noteId, latest.getBaseSeq());
+                revisionRepository.save(next(noteId, latest, diffs, previousContent, title, content));
+            });
+        } catch (DataAccessException e) {
+            // e.g. two updates of the same note racing for the next number; the note itself is saved
+            log.warn("Could not record a revision of note {}", noteId, e);
+        }
+    }
+
+    // A note's revisions, newest first
+    public List<NoteRevisionSummary> list(int noteId) {
+        return revisionRepository.findSummariesByNoteId(noteId);
+    }
+
+    public Revision get(int noteId, int seq) {
+        List<NoteRevision> chain = transaction.execute(status -> revisionRepository.findChain(noteId, seq));
+        if (chain == null || chain.isEmpty()) {
+            throw new RuntimeException("Revision " + seq + " not found for note " + noteId);
+        }
+        NoteRevision last = chain.get(chain.size() - 1);
+        Revision revision = new Revision();
+        revision.seq = last.getSeq();
+        revision.title = last.getTitle();
+        revision.content = reconstruct(chain, objectMapper);
+        revision.createdAt = last.getCreatedAt();
+        return revision;
+    }
+
+    /**
+     * The content of the last revision in a chain that starts with its snapshot.
+     *
+     * @throws IllegalStateException if the chain does not start with a snapshot or a diff does not apply
+     */
+    public static String reconstruct(List<NoteRevision> chain, ObjectMapper objectMapper) {
+        if (chain.isEmpty() || !chain.get(0).isSnapshot()) {
+            throw new IllegalStateException("Revision chain does not start with a snapshot");
+        }
+        String content = chain.get(0).getData();
+        for (int i = 1; i < chain.size(); i++) {
+            try {
+                content = TextPatch.apply(content, objectMapper.readValue(chain.get(i).getData(), EDITS));
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                throw new IllegalStateException("Revision " + chain.get(i).getSeq() + " cannot be applied", e);
+            }
+        }
+        return content;
+    }
+
+    // Merge old revisions, a note per transaction
+    @Scheduled(fixedDelayString = "${notetect.revisions.compaction-interval-ms:3600000}")
+    public void compact() {
+        Instant cutoff = Instant.now().minus(compactAfter);
+        // Usually there is nothing to do, so check with a plain query before going through JPA
+        List<Integer> noteIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT note_id FROM note_revision WHERE compacted = ? AND created_at < ?",
+                Integer.class, false, Timestamp.from(cutoff));
+        for (Integer noteId : noteIds) {
+            try {
+                Integer merged = transaction.execute(status -> compactNote(noteId, cutoff));
+                if (merged != null && merged > 0) {
+                    log.debug("Merged {} old revisions of note {}", merged, noteId);
+                }
+            } catch (DataAccessException | IllegalStateException e) {
+                log.warn("Could not compact the revisions of note {}", noteId, e);
+            }
+        }
+    }
+
+    private int compactNote(int noteId, Instant cutoff) {
+        if (!lockNote(noteId)) {
+            return 0;
+        }
+        List<NoteRevision> revisions = revisionRepository.findByNoteIdOrderBySeqAsc(noteId);
+        List<String> contents = new ArrayList<>(revisions.size());
+        String content = null;
+        for (NoteRevision revision : revisions) {
+            content = reconstruct(revision.isSnapshot() ? List.of(revision) : List.of(snapshotOf(content), revision),
+                    objectMapper);
+            contents.add(content);
+        }
+
+        // An old revision is dropped if the next one followed within the merge window; the latest always stays
+        List<NoteRevision> dropped = new ArrayList<>();
+        NoteRevision previous = null;
+        String previousContent = null;
+        long diffs = 0;
+        for (int i = 0; i < revisions.size(); i++) {
+            NoteRevision revision = revisions.get(i);
+            boolean old = revision.getCreatedAt() == null || revision.getCreatedAt().isBefore(cutoff);
+            if (old && i + 1 < revisions.size() && withinMergeWindow(revision, revisions.get(i + 1))) {
+                dropped.add(revision);
+                continue;
+            }
+            // Re-encode against the previous kept revision, which may no longer be the one before it
+            NoteRevision encoded = previous == null
+                    ? snapshot(noteId, revision.getSeq(), revision.getTitle(), contents.get(i))
+                    : next(noteId, previous, diffs, previousContent, revision.getTitle(), contents.get(i));
+            encoded.setSeq(revision.getSeq());
+            diffs = encoded.isSnapshot() ? 0 : diffs + 1;
+            revision.setSnapshot(encoded.isSnapshot());
+            revision.setBaseSeq(encoded.getBaseSeq());
+            revision.setData(encoded.getData());
+            revision.setCompacted(old);
+            previous = revision;
+            previousContent = contents.get(i);
+        }
+        revisionRepository.deleteAll(dropped);
+        return dropped.size();
+    }
+
+    // Recording and compacting rewrite the same chain, so each holds the note's row lock
+    // while it does; false if the note is gone
+    private boolean lockNote(int noteId) {
+        return !jdbcTemplate.queryForList("SELECT id FROM note WHERE id = ? FOR UPDATE", Integer.class, noteId)
+                .isEmpty();
+    }
+
+    private boolean withinMergeWindow(NoteRevision revision, NoteRevision next) {
+        return revision.getCreatedAt() != null && next.getCreatedAt() != null
+                && Duration.between(revision.getCreatedAt(), next.getCreatedAt()).toMillis() <= mergeWindowMillis;
+    }
+
+    private NoteRevision snapshot(int noteId, int seq, String title, String content) {
+        NoteRevision revision = new NoteRevision();
+        revision.setNote(entityManager.getReference(Note.class, noteId));
+        revision.setSeq(seq);
+        revision.setBaseSeq(seq);
+        revision.setSnapshot(true);
+        revision.setTitle(title);
+        revision.setData(content);
+        revision.setContentDigest(digest(content));
+        revision.setCreatedAt(Instant.now());
+        return revision;
+    }
+
+    // The revision after previous: a diff, or a snapshot if the chain is long or the diff is not worth it
+    private NoteRevision next(int noteId, NoteRevision previous, long diffs, String previousContent,
+            String title, String content) {
+        NoteRevision revision = snapshot(noteId, previous.getSeq() + 1, title, content);
+        if (content == null || diffs + 1 >= snapshotInterval) {
+            return revision;
+        }
+        String diff;
+        try {
+            diff = objectMapper.writeValueAsString(TextDiff.diff(previousContent, content));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        if (diff.length() < content.length() / 2) {
+            revision.setSnapshot(false);
+            revision.setBaseSeq(previous.getBaseSeq());
+            revision.setData(diff);
+        }
+        return revision;
+    }
+
+    // A stand-in snapshot holding already rebuilt content
+    private static NoteRevision snapshotOf(String content) {
+        NoteRevision revision = new NoteRevision();
+        revision.setSnapshot(true);
+        revision.setData(content);
+        return revision;
+    }
+
+    // SHA-256 of the content, with null told apart from every string
+    private static byte[] digest(String content) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (content != null) {
+            sha256.update((byte) 1);
+            sha256.update(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return sha256.digest();
+    }
+}
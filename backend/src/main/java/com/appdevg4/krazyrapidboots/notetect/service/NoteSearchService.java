@@ -0,0 +1,533 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteSearchDocument;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteWatermark;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Per-user inverted index over note titles and content.
+ * The index lives in memory, is kept up to date by NoteService and is
+ * snapshotted to local disk so a restart does not need a full reindex.
+ * Changes made inside a transaction are applied once it commits, so a rollback
+ * leaves the index as it was.
+ */
+@Service
+public class NoteSearchService {
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchService.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4E534958; // "NSIX"
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // A title match counts as much as this many content matches
+    private static final int TITLE_WEIGHT = 3;
+    private static final int SNIPPET_RADIUS = 80;
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    // BM25 ranking parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "that", "the", "this", "to", "was", "were", "with");
+
+    private final NoteRepository noteRepository;
+    private final Path indexFile;
+
+    private final Map<Integer, UserIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> noteOwners = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public NoteSearchService(NoteRepository noteRepository,
+            @Value("${notetect.search.index-file:data/search-index.bin}") String indexFile) {
+        this.noteRepository = noteRepository;
+        this.indexFile = Paths.get(indexFile);
+    }
+
+    public static class SearchHit {
+        public int noteId;
+        public String title;
+        public String noteType;
+        public Integer folderId;
+        public double score;
+        public String snippet;
+    }
+
+    // Note count, highest note id and sum of note versions, as in NoteWatermark
+    private record Watermark(long notes, int maxId, long versionSum) {
+    }
+
+    /**
+     * Load the on-disk snapshot, or rebuild from the database if it is missing or out of date.
+     * The snapshot is current if the note versions it was built from add up to the database's
+     * high-water mark: every write since then moves the count, the highest id or a version.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        if (readSnapshot()) {
+            NoteWatermark stored = noteRepository.findWatermark();
+            Watermark indexed = indexedWatermark();
+            if (indexed.equals(new Watermark(stored.getNotes(), stored.getMaxId(), stored.getVersionSum()))) {
+                log.info("Loaded search index for {} notes from {}", noteOwners.size(), indexFile);
+                return;
+            }
+            log.info("Search index snapshot {} is out of date, rebuilding", indexFile);
+        }
+        rebuildIndex();
+    }
+
+    /**
+     * Re-index every note, reading the table in id order one batch at a time
+     */
+    public void rebuildIndex() {
+        indexes.clear();
+        noteOwners.clear();
+
+        int afterId = 0;
+        List<NoteSearchDocument> batch;
+        do {
+            batch = noteRepository.findSearchDocumentsAfter(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (NoteSearchDocument doc : batch) {
+                indexDocument(doc.getId(), doc.getUserId(), doc.getVersion(), doc.getTitle(), doc.getContent());
+                afterId = doc.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        log.info("Rebuilt search index for {} notes", noteOwners.size());
+        writeSnapshot();
+    }
+
+    @Scheduled(fixedDelayString = "${notetect.search.snapshot-interval-ms:60000}")
+    public void saveIfChanged() {
+        if (dirty.get()) {
+            writeSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        saveIfChanged();
+    }
+
+    // Add or replace a note in its owner's index
+    public void indexNote(Note note) {
+        if (note.getUser() == null) {
+            return;
+        }
+        // Read when applied: the version is only raised when the transaction flushes
+        afterCommit(() -> indexDocument(note.getId(), note.getUser().getUserId(), note.getVersion(),
+                note.getTitle(), note.getContent()));
+    }
+
+    // Record that these notes were written once more without a change to their title or content, e.g. moved
+    public void bumpVersions(List<Integer> noteIds) {
+        afterCommit(() -> {
+            for (int noteId : noteIds) {
+                Integer userId = noteOwners.get(noteId);
+                UserIndex index = userId != null ? indexes.get(userId) : null;
+                if (index != null) {
+                    index.bumpVersion(noteId);
+                    dirty.set(true);
+                }
+            }
+        });
+    }
+
+    public void removeNote(int noteId) {
+        afterCommit(() -> {
+            Integer userId = noteOwners.remove(noteId);
+            if (userId != null) {
+                UserIndex index = indexes.get(userId);
+                if (index != null) {
+                    index.remove(noteId);
+                }
+                dirty.set(true);
+            }
+        });
+    }
+
+    // Run now, or after the current transaction commits; nothing runs on a rollback
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Rank the user's notes against the query and return the best matches with highlighted snippets
+     */
+    public List<SearchHit> search(Integer userId, String query, int limit) {
+        UserIndex index = indexes.get(userId);
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (index == null || terms.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map.Entry<Integer, Double>> ranked = index.rank(terms, limit);
+        Map<Integer, Note> notes = noteRepository.findAllById(ranked.stream().map(Map.Entry::getKey).toList())
+                .stream()
+                .collect(Collectors.toMap(Note::getId, Function.identity()));
+
+        Set<String> termSet = Set.copyOf(terms);
+        List<SearchHit> hits = new ArrayList<>(ranked.size());
+        for (Map.Entry<Integer, Double> entry : ranked) {
+            Note note = notes.get(entry.getKey());
+            // Skip entries the database no longer agrees with
+            if (note == null || note.getUser() == null || !userId.equals(note.getUser().getUserId())) {
+                continue;
+            }
+            SearchHit hit = new SearchHit();
+            hit.noteId = note.getId();
+            hit.title = note.getTitle();
+            hit.noteType = note.getNoteType();
+            hit.folderId = note.getFolder() != null ? note.getFolder().getId() : null;
+            hit.score = entry.getValue();
+            hit.snippet = buildSnippet(note.getContent(), termSet);
+            hits.add(hit);
+        }
+        return hits;
+    }
+
+    private void indexDocument(int noteId, Integer userId, long version, String title, String content) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : tokenize(title)) {
+            terms.merge(term, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(content)) {
+            terms.merge(term, 1, Integer::sum);
+        }
+
+        // A note can only change owner through a delete and re-create, but keep the maps consistent anyway
+        Integer previousOwner = noteOwners.put(noteId, userId);
+        if (previousOwner != null && !previousOwner.equals(userId)) {
+            UserIndex previous = indexes.get(previousOwner);
+            if (previous != null) {
+                previous.remove(noteId);
+            }
+        }
+        indexes.computeIfAbsent(userId, id -> new UserIndex()).put(noteId, version, terms);
+        dirty.set(true);
+    }
+
+    private Watermark indexedWatermark() {
+        long notes = 0;
+        int maxId = 0;
+        long versionSum = 0;
+        for (UserIndex index : indexes.values()) {
+            for (Map.Entry<Integer, Long> version : index.versions().entrySet()) {
+                notes++;
+                maxId = Math.max(maxId, version.getKey());
+                versionSum += version.getValue();
+            }
+        }
+        return new Watermark(notes, maxId, versionSum);
+    }
+
+    // Lower-cased runs of letters and digits, without stop words, single characters or overlong runs
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addToken(tokens, text.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, String word) {
+        String token = word.toLowerCase(Locale.ROOT);
+        if (token.length() > 1 && token.length() <= MAX_TOKEN_LENGTH && !STOP_WORDS.contains(token)) {
+            tokens.add(token);
+        }
+    }
+
+    // A window of content around the first match, HTML-escaped, with matched words wrapped in <mark>
+    static String buildSnippet(String content, Set<String> terms) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+
+        int firstMatch = 0;
+        int start = -1;
+        for (int i = 0; i <= content.length(); i++) {
+            boolean wordChar = i < content.length() && Character.isLetterOrDigit(content.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (terms.contains(content.substring(start, i).toLowerCase(Locale.ROOT))) {
+                    firstMatch = start;
+                    break;
+                }
+                start = -1;
+            }
+        }
+
+        int from = Math.max(0, firstMatch - SNIPPET_RADIUS);
+        int to = Math.min(content.length(), firstMatch + 2 * SNIPPET_RADIUS);
+        while (from > 0 && Character.isLetterOrDigit(content.charAt(from - 1))) {
+            from--;
+        }
+        while (to < content.length() && Character.isLetterOrDigit(content.charAt(to))) {
+            to++;
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (from > 0) {
+            snippet.append("…");
+        }
+        int wordStart = -1;
+        for (int i = from; i <= to; i++) {
+            boolean wordChar = i < to && Character.isLetterOrDigit(content.charAt(i));
+            if (wordChar) {
+                if (wordStart < 0) {
+                    wordStart = i;
+                }
+                continue;
+            }
+            if (wordStart >= 0) {
+                String word = content.substring(wordStart, i);
+                if (terms.contains(word.toLowerCase(Locale.ROOT))) {
+                    snippet.append("<mark>").append(word).append("</mark>");
+                } else {
+                    snippet.append(word);
+                }
+                wordStart = -1;
+            }
+            if (i < to) {
+                appendEscaped(snippet, content.charAt(i));
+            }
+        }
+        if (to < content.length()) {
+            snippet.append("…");
+        }
+        return snippet.toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, char c) {
+        switch (c) {
+            case '<' -> out.append("&lt;");
+            case '>' -> out.append("&gt;");
+            case '&' -> out.append("&amp;");
+            case '"' -> out.append("&quot;");
+            case '\n', '\r', '\t' -> out.append(' ');
+            default -> out.append(c);
+        }
+    }
+
+    /**
+     * Snapshot layout (gzip): magic, version, user count, then per user its id, document count
+     * and for every document the note id and version followed by its weighted term frequencies.
+     * Postings are rebuilt from the documents when the snapshot is read.
+     */
+    private synchronized void writeSnapshot() {
+        dirty.set(false);
+        try {
+            Path parent = indexFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                Map<Integer, UserIndex> snapshot = new HashMap<>(indexes);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<Integer, UserIndex> entry : snapshot.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    entry.getValue().writeTo(out);
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Could not write search index snapshot to {}", indexFile, e);
+        }
+    }
+
+    private synchronized boolean readSnapshot() {
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(indexFile))))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                return false;
+            }
+            int users = in.readInt();
+            for (int u = 0; u < users; u++) {
+                int userId = in.readInt();
+                UserIndex index = new UserIndex();
+                for (int noteId : index.readFrom(in)) {
+                    noteOwners.put(noteId, userId);
+                }
+                indexes.put(userId, index);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Discarding unreadable search index snapshot {}", indexFile, e);
+            indexes.clear();
+            noteOwners.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Forward and inverted index for the notes of a single user
+     */
+    private static final class UserIndex {
+        private final Map<Integer, Map<String, Integer>> documents = new HashMap<>();
+        private final Map<Integer, Long> versions = new HashMap<>();
+        private final Map<Integer, Integer> lengths = new HashMap<>();
+        private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+        private long totalLength;
+
+        synchronized void put(int noteId, long version, Map<String, Integer> terms) {
+            remove(noteId);
+            versions.put(noteId, version);
+            int length = 0;
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(noteId, term.getValue());
+                length += term.getValue();
+            }
+            documents.put(noteId, terms);
+            lengths.put(noteId, length);
+            totalLength += length;
+        }
+
+        synchronized void remove(int noteId) {
+            Map<String, Integer> terms = documents.remove(noteId);
+            if (terms == null) {
+                return;
+            }
+            versions.remove(noteId);
+            for (String term : terms.keySet()) {
+                Map<Integer, Integer> posting = postings.get(term);
+                posting.remove(noteId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= lengths.remove(noteId);
+        }
+
+        synchronized void bumpVersion(int noteId) {
+            versions.computeIfPresent(noteId, (id, version) -> version + 1);
+        }
+
+        synchronized Map<Integer, Long> versions() {
+            return new HashMap<>(versions);
+        }
+
+        synchronized List<Map.Entry<Integer, Double>> rank(List<String> terms, int limit) {
+            int docCount = documents.size();
+            if (docCount == 0) {
+                return List.of();
+            }
+            double avgLength = Math.max(1.0, (double) totalLength / docCount);
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Integer, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<Integer, Integer> entry : posting.entrySet()) {
+                    double tf = entry.getValue();
+                    double norm = K1 * (1 - B + B * lengths.get(entry.getKey()) / avgLength);
+                    scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(e -> Map.entry(e.getKey(), e.getValue()))
+                    .toList();
+        }
+
+        synchronized void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(documents.size());
+            for (Map.Entry<Integer, Map<String, Integer>> doc : documents.entrySet()) {
+                out.writeInt(doc.getKey());
+                out.writeLong(versions.get(doc.getKey()));
+                out.writeInt(doc.getValue().size());
+                for (Map.Entry<String, Integer> term : doc.getValue().entrySet()) {
+                    out.writeUTF(term.getKey());
+                    out.writeInt(term.getValue());
+                }
+            }
+        }
+
+        // Returns the ids of the notes that were read
+        synchronized List<Integer> readFrom(DataInputStream in) throws IOException {
+            int docs = in.readInt();
+            List<Integer> noteIds = new ArrayList<>(docs);
+            for (int d = 0; d < docs; d++) {
+                int noteId = in.readInt();
+                long version = in.readLong();
+                int termCount = in.readInt();
+                Map<String, Integer> terms = new HashMap<>(termCount * 2);
+                for (int t = 0; t < termCount; t++) {
+                    terms.put(in.readUTF(), in.readInt());
+                }
+                put(noteId, version, terms);
+                noteIds.add(noteId);
+            }
+            return noteIds;
+        }
+    }
+}
@@ -5,15 +5,31 @@ import com.appdevg4.krazyrapidboots.notetect.entity.Note;
 import com.appdevg4.krazyrapidboots.notetect.entity.User;
 import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
 import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRevisionSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteSummary;
 import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.config.JpaConfig;
+import com.appdevg4.krazyrapidboots.notetect.util.TextPatch;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class NoteService {
+    // Upper bound for open-ended time ranges (the largest MySQL DATETIME)
+    private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
+
     @Autowired
     private NoteRepository noteRepository;
 
@@ -23,24 +39,91 @@ public class NoteService {
     @Autowired
     private FolderRepository folderRepository;
 
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private RevisionService revisionService;
+
+    @Autowired
+    private NoteContentWriteBehind contentWriteBehind;
+
+    @Autowired
+    private NoteRevisionService noteRevisionService;
+
+    @Autowired
+    private ChangeStreamService changeStream;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
     public List<Note> getAllNotesByUserId(Integer userId) {
         return noteRepository.findByUserUserId(userId);
     }
 
+    // Get one page of note summaries (no content), newest first, starting after the note the cursor
+    // names by creation time and id (no cursor: the first page). Notes without a creation time come
+    // last; their cursor has only the id.
+    @Transactional(readOnly = true)
+    public List<NoteSummary> getNoteSummariesByUserId(Integer userId, Instant cursorCreatedAt, Integer cursorId,
+            int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (cursorId != null && cursorCreatedAt == null) {
+            return noteRepository.findUndatedSummariesByUserId(userId, cursorId, page);
+        }
+        return noteRepository.findSummariesByUserIdBefore(userId,
+                cursorCreatedAt != null ? cursorCreatedAt : END_OF_TIME,
+                cursorId != null ? cursorId : Integer.MAX_VALUE, page);
+    }
+
+    // Get the newest note summaries, optionally only those of one type or created in [from, to)
+    @Transactional(readOnly = true)
+    public List<NoteSummary> getRecentNoteSummaries(Integer userId, String noteType, Instant from, Instant to,
+            int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (from != null || to != null) {
+            return noteRepository.findSummariesCreatedBetween(userId, from != null ? from : Instant.EPOCH,
+                    to != null ? to : END_OF_TIME, page);
+        }
+        if (noteType != null) {
+            return noteRepository.findSummariesByType(userId, noteType, page);
+        }
+        return noteRepository.findRecentSummaries(userId, page);
+    }
+
     // Get all notes in a specific folder
+    @Transactional(readOnly = true)
     public List<Note> getAllNotesByFolderId(Integer folderId) {
         return noteRepository.findByFolderId(folderId);
     }
 
     public Optional<Note> getNoteById(int id) {
-        return noteRepository.findById(id);
+        // Check the buffer first: an entry is only dropped once its content is committed
+        Note buffered = contentWriteBehind.getPending(id);
+        Optional<Note> note = noteRepository.findById(id);
+        if (note.isPresent() && buffered != null) {
+            // Show content that is still waiting to be written, without letting it be flushed by JPA
+            entityManager.detach(note.get());
+            note.get().setContent(buffered.getContent());
+        }
+        return note;
+    }
+
+    // Search the user's notes by title and content
+    public List<NoteSearchService.SearchHit> searchNotes(Integer userId, String query, int limit) {
+        return noteSearchService.search(userId, query, limit);
     }
 
     public Note saveNote(Note note, Integer userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         note.setUser(user);
-        return noteRepository.save(note);
+        Note saved = noteRepository.save(note);
+        noteSearchService.indexNote(saved);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.CREATED, List.of(saved.getId()));
+        return saved;
     }
 
     // Save note with folder association
@@ -49,16 +132,33 @@ public class NoteService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Folder folder = folderRepository.findById(folderId)
                 .orElseThrow(() -> new RuntimeException("Folder not found"));
+        if (!folderRepository.existsByIdAndSubjectUserUserId(folderId, userId)) {
+            throw new RuntimeException("User not authorized to add notes to this folder.");
+        }
         note.setUser(user);
         note.setFolder(folder);
-        return noteRepository.save(note);
+        Note saved = noteRepository.save(note);
+        noteSearchService.indexNote(saved);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.CREATED, List.of(saved.getId()),
+                folderId);
+        return saved;
     }
 
     public void deleteNote(int id) {
-        noteRepository.deleteById(id);
+        noteRepository.findById(id).ifPresent(note -> {
+            noteRepository.delete(note);
+            contentWriteBehind.discard(id);
+            noteSearchService.removeNote(id);
+            revisionService.bump(note.getUser().getUserId());
+            changeStream.publish(note.getUser().getUserId(), ChangeStreamService.NOTE, ChangeStreamService.DELETED,
+                    List.of(id));
+        });
     }
 
     public Note updateNoteTitle(int id, String title, Integer userId) {
+        // The search index is refreshed below, so buffered content must reach the database first
+        contentWriteBehind.flushNote(id);
         Note note = noteRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Note not found with id " + id));
 
@@ -66,8 +166,14 @@ public class NoteService {
             throw new RuntimeException("User not authorized to update this note.");
         }
 
+        String previousTitle = note.getTitle();
         note.setTitle(title);
-        return noteRepository.save(note);
+        Note saved = saveUnlessChanged(note);
+        noteSearchService.indexNote(saved);
+        noteRevisionService.record(id, previousTitle, saved.getContent(), title, saved.getContent());
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.UPDATED, List.of(id));
+        return saved;
     }
 
     // Move note to a different folder
@@ -87,11 +193,52 @@ public class NoteService {
             note.setFolder(null);
         }
 
-        return noteRepository.save(note);
+        Note saved = noteRepository.save(note);
+        noteSearchService.bumpVersions(List.of(noteId));
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.MOVED, List.of(noteId), folderId);
+        return saved;
     }
 
     // Update note content (for action items completion status, etc.)
+    // With write-behind enabled the content is buffered and written later
     public Note updateNoteContent(int id, String content, Integer userId) {
+        Note note = contentWriteBehind.isEnabled() ? contentWriteBehind.getPending(id) : null;
+        if (note == null) {
+            note = noteRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Note not found with id " + id));
+        }
+
+        if (!note.getUser().getUserId().equals(userId)) {
+            throw new RuntimeException("User not authorized to update this note.");
+        }
+
+        if (contentWriteBehind.isEnabled()) {
+            Note buffered = contentWriteBehind.buffer(note, content);
+            if (buffered != null) {
+                revisionService.bump(userId);
+                changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.UPDATED, List.of(id));
+                return buffered;
+            }
+            contentWriteBehind.flushNote(id);
+            note = noteRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Note not found with id " + id));
+        }
+
+        String previousContent = note.getContent();
+        note.setContent(content);
+        Note saved = saveUnlessChanged(note);
+        noteSearchService.indexNote(saved);
+        noteRevisionService.record(id, saved.getTitle(), previousContent, saved.getTitle(), content);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.UPDATED, List.of(id));
+        return saved;
+    }
+
+    // Apply incremental edits to note content, rejecting them if the note changed since baseVersion
+    public Note patchNoteContent(int id, long baseVersion, List<TextPatch.Edit> edits, Integer userId) {
+        // Patches are versioned against stored content, so write any buffered update first
+        contentWriteBehind.flushNote(id);
         Note note = noteRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Note not found with id " + id));
 
@@ -99,7 +246,152 @@ public class NoteService {
             throw new RuntimeException("User not authorized to update this note.");
         }
 
-        note.setContent(content);
-        return noteRepository.save(note);
+        if (note.getVersion() != baseVersion) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Note has changed (current version " + note.getVersion() + ")");
+        }
+
+        String previousContent = note.getContent();
+        try {
+            note.setContent(TextPatch.apply(note.getContent(), edits));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        Note saved = saveUnlessChanged(note);
+        noteSearchService.indexNote(saved);
+        noteRevisionService.record(id, saved.getTitle(), previousContent, saved.getTitle(), saved.getContent());
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.UPDATED, List.of(id));
+        return saved;
+    }
+
+    // The note's saved revisions, newest first
+    public List<NoteRevisionSummary> getNoteRevisions(int id, Integer userId) {
+        checkOwner(id, userId);
+        return noteRevisionService.list(id);
+    }
+
+    // The note's title and content as of a revision
+    public NoteRevisionService.Revision getNoteRevision(int id, int seq, Integer userId) {
+        checkOwner(id, userId);
+        return noteRevisionService.get(id, seq);
+    }
+
+    // Put a revision's title and content back; the restore is itself recorded as a new revision
+    public Note restoreNoteRevision(int id, int seq, Integer userId) {
+        contentWriteBehind.flushNote(id);
+        Note note = noteRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Note not found with id " + id));
+
+        if (!note.getUser().getUserId().equals(userId)) {
+            throw new RuntimeException("User not authorized to update this note.");
+        }
+
+        NoteRevisionService.Revision revision = noteRevisionService.get(id, seq);
+        String previousTitle = note.getTitle();
+        String previousContent = note.getContent();
+        note.setTitle(revision.title);
+        note.setContent(revision.content);
+        Note saved = saveUnlessChanged(note);
+        noteSearchService.indexNote(saved);
+        noteRevisionService.record(id, previousTitle, previousContent, revision.title, revision.content);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.UPDATED, List.of(id));
+        return saved;
+    }
+
+    // Save a note read earlier in the request; 409 if another request updated it in between
+    private Note saveUnlessChanged(Note note) {
+        try {
+            return noteRepository.save(note);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Note has changed");
+        }
+    }
+
+    private void checkOwner(int id, Integer userId) {
+        if (!noteRepository.existsByIdAndUserUserId(id, userId)) {
+            throw new RuntimeException("Note not found with id " + id);
+        }
+    }
+
+    // Move many of the user's notes at once; notes the user does not own are skipped
+    @Transactional
+    public int moveNotesToFolder(List<Integer> noteIds, Integer folderId, Integer userId) {
+        Folder folder = null;
+        if (folderId != null) {
+            folder = folderRepository.findById(folderId)
+                    .orElseThrow(() -> new RuntimeException("Folder not found"));
+            if (!folderRepository.existsByIdAndSubjectUserUserId(folderId, userId)) {
+                throw new RuntimeException("User not authorized to move notes to this folder.");
+            }
+        }
+        List<Integer> owned = noteRepository.findIdsOwnedBy(noteIds, userId);
+        if (owned.isEmpty()) {
+            return 0;
+        }
+        int moved = noteRepository.moveToFolder(owned, folder, userId);
+        noteSearchService.bumpVersions(owned);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.MOVED, owned, folderId);
+        return moved;
+    }
+
+    // Delete many of the user's notes at once; notes the user does not own are skipped
+    @Transactional
+    public int deleteNotes(List<Integer> noteIds, Integer userId) {
+        List<Integer> owned = noteRepository.findIdsOwnedBy(noteIds, userId);
+        if (owned.isEmpty()) {
+            return 0;
+        }
+        int deleted = noteRepository.deleteByIdIn(owned);
+        owned.forEach(contentWriteBehind::discard);
+        owned.forEach(noteSearchService::removeNote);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.DELETED, owned);
+        return deleted;
+    }
+
+    // Create many notes in one transaction, inserted in JDBC batches
+    @Transactional
+    public List<Integer> importNotes(List<Note> notes, Integer userId, Integer folderId) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        User user = userRepository.getReferenceById(userId);
+        Folder folder = null;
+        if (folderId != null) {
+            folder = folderRepository.findById(folderId)
+                    .orElseThrow(() -> new RuntimeException("Folder not found"));
+            if (!folderRepository.existsByIdAndSubjectUserUserId(folderId, userId)) {
+                throw new RuntimeException("User not authorized to add notes to this folder.");
+            }
+        }
+
+        List<Integer> ids = new ArrayList<>(notes.size());
+        for (int i = 0; i < notes.size(); i++) {
+            Note note = notes.get(i);
+            note.setId(0);
+            note.setUser(user);
+            note.setFolder(folder);
+            entityManager.persist(note);
+            // Flush each full batch and detach it so the persistence context stays small
+            if ((i + 1) % JpaConfig.JDBC_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                user = userRepository.getReferenceById(userId);
+                folder = folder != null ? entityManager.getReference(Folder.class, folderId) : null;
+            }
+        }
+        entityManager.flush();
+
+        for (Note note : notes) {
+            ids.add(note.getId());
+            noteSearchService.indexNote(note);
+        }
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.NOTE, ChangeStreamService.CREATED, ids);
+        return ids;
     }
 }
@@ -0,0 +1,172 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs password hashing and checks on a small dedicated pool instead of the request
+ * threads, so a burst of logins cannot take every CPU away from ordinary requests.
+ *
+ * At most one hash runs per thread (one thread per core by default) and at most
+ * queue-capacity more wait; beyond that callers get a 429 with a Retry-After estimated
+ * from the current backlog rather than queueing up.
+ */
+@Service
+public class PasswordHashingService {
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final int strength;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong hashes = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+            @Value("${notetect.auth.bcrypt-strength:10}") int strength,
+            @Value("${notetect.auth.hashing.threads:0}") int threads,
+            @Value("${notetect.auth.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${notetect.auth.hashing.timeout-ms:10000}") long timeoutMillis) {
+        this.passwordEncoder = passwordEncoder;
+        this.strength = strength;
+        this.timeoutMillis = timeoutMillis;
+
+        // 0 means one thread per available core
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @throws ResponseStatusException 429 if the hashing queue is full, 503 if the hash did
+     *         not complete within timeout-ms
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @throws ResponseStatusException 429 if the hashing queue is full, 503 if the check did
+     *         not complete within timeout-ms
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // True when the hash was made with a different work factor than the one now configured
+    public boolean needsRehash(String encodedPassword) {
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword == null ? "" : encodedPassword);
+        return !matcher.find() || Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    public int getQueueDepth() { return executor.getQueue().size(); }
+
+    public int getRunningCount() { return executor.getActiveCount(); }
+
+    public long getHashCount() { return hashes.get(); }
+
+    public long getRejectedCount() { return rejected.get(); }
+
+    public double getMeanHashMillis() {
+        long count = hashes.get();
+        return count == 0 ? 0 : hashNanos.get() / 1e6 / count;
+    }
+
+    public double getTotalHashMillis() { return hashNanos.get() / 1e6; }
+
+    public double getMaxHashMillis() { return maxHashNanos.get() / 1e6; }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private <T> T run(Callable<T> hash) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return hash.call();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    hashes.incrementAndGet();
+                    hashNanos.addAndGet(elapsed);
+                    maxHashNanos.accumulateAndGet(elapsed, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new RetryLaterException(HttpStatus.TOO_MANY_REQUESTS, "Too many sign-in attempts in progress",
+                    retryAfterSeconds());
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new RetryLaterException(HttpStatus.SERVICE_UNAVAILABLE, "Password check timed out",
+                    retryAfterSeconds());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Password check interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Time for the current backlog to drain at the observed hashing speed, at least a second
+    private long retryAfterSeconds() {
+        double backlog = executor.getQueue().size() + executor.getActiveCount();
+        double seconds = backlog * getMeanHashMillis() / 1000 / executor.getMaximumPoolSize();
+        return Math.max(1, (long) Math.ceil(seconds));
+    }
+
+    // A ResponseStatusException that also sets Retry-After on the response
+    private static final class RetryLaterException extends ResponseStatusException {
+        private final long retryAfterSeconds;
+
+        RetryLaterException(HttpStatus status, String reason, long retryAfterSeconds) {
+            super(status, reason);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.config.RecentWriteTracker;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tracks when a user's notes, folders or subjects change, for conditional GETs.
+ * Every write path bumps the owner's revision; the ETag of any list or detail
+ * response is derived from it.
+ */
+@Service
+public class RevisionService {
+    private final RevisionStore store;
+    private final RecentWriteTracker recentWrites;
+
+    public RevisionService(RevisionStore store, RecentWriteTracker recentWrites) {
+        this.store = store;
+        this.recentWrites = recentWrites;
+    }
+
+    // Mark the user's data as changed; inside a transaction this happens once it commits
+    public void bump(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store.increment(userId);
+                    recentWrites.wrote(userId);
+                }
+            });
+        } else {
+            store.increment(userId);
+            recentWrites.wrote(userId);
+        }
+    }
+
+    // False while the revisions may miss changes, when an ETag must not be trusted to match
+    public boolean isReliable() {
+        return store.isReliable();
+    }
+
+    // Strong ETag for everything the user can currently read
+    public String etag(Integer userId) {
+        String etag = "\"" + store.epoch() + "-" + userId + "-" + store.current(userId) + "\"";
+        recentWrites.seen(userId, etag);
+        return etag;
+    }
+}
@@ -0,0 +1,21 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+/**
+ * Keeps a monotonically increasing revision number per user
+ */
+public interface RevisionStore {
+
+    // Current revision for the user
+    long current(Integer userId);
+
+    // Increase the user's revision and return the new value
+    long increment(Integer userId);
+
+    // Changes whenever revisions could restart from zero (e.g. a new in-memory store)
+    String epoch();
+
+    // False while revisions may miss changes made elsewhere, so they must not answer 304s
+    default boolean isReliable() {
+        return true;
+    }
+}
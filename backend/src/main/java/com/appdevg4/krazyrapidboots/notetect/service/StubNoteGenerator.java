@@ -0,0 +1,119 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Deterministic local generator for development and tests: no network, and the
+ * same source and note type always produce the same output.
+ */
+@Component
+@ConditionalOnProperty(name = "notetect.generation.generator", havingValue = "stub", matchIfMissing = true)
+public class StubNoteGenerator implements NoteGenerator {
+    private static final int MAX_SENTENCES = 5;
+
+    // Pause between tokens to mimic a model's streaming pace
+    private final long tokenDelayMillis;
+
+    public StubNoteGenerator(@Value("${notetect.generation.stub-token-delay-ms:0}") long tokenDelayMillis) {
+        this.tokenDelayMillis = tokenDelayMillis;
+    }
+
+    @Override
+    public String generate(Reader source, String noteType, Consumer<String> tokenSink)
+            throws IOException, InterruptedException {
+        String text = render(sentences(source), noteType);
+
+        // Emit word by word, keeping the whitespace with the word that follows it
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || (Character.isWhitespace(text.charAt(i)) && !Character.isWhitespace(text.charAt(i - 1)))) {
+                tokenSink.accept(text.substring(start, i));
+                start = i;
+                if (tokenDelayMillis > 0) {
+                    Thread.sleep(tokenDelayMillis);
+                }
+            }
+        }
+        return text;
+    }
+
+    private String render(List<String> sentences, String noteType) {
+        StringBuilder out = new StringBuilder();
+        switch (noteType == null ? "SUMMARY" : noteType) {
+            case "FLASHCARD" -> {
+                out.append("{\"flashcards\":[");
+                for (int i = 0; i < sentences.size(); i++) {
+                    out.append(i > 0 ? "," : "")
+                            .append("{\"front\":\"Point ").append(i + 1)
+                            .append("\",\"back\":\"").append(escapeJson(sentences.get(i))).append("\"}");
+                }
+                out.append("]}");
+            }
+            case "ACTION_ITEMS" -> {
+                out.append("{\"actionItems\":[");
+                for (int i = 0; i < sentences.size(); i++) {
+                    out.append(i > 0 ? "," : "")
+                            .append("{\"id\":\"").append(i + 1)
+                            .append("\",\"text\":\"").append(escapeJson(sentences.get(i)))
+                            .append("\",\"priority\":\"").append(i == 0 ? "high" : "medium")
+                            .append("\",\"completed\":false}");
+                }
+                out.append("]}");
+            }
+            case "STUDY_GUIDE" -> {
+                out.append("# Study Guide\n\n## Key Points\n\n");
+                sentences.forEach(s -> out.append("- ").append(s).append('\n'));
+            }
+            case "SIMPLIFY" -> {
+                out.append("# In Simple Terms\n\n");
+                out.append(String.join(" ", sentences)).append('\n');
+            }
+            default -> {
+                out.append("# Summary\n\n");
+                sentences.forEach(s -> out.append("- ").append(s).append('\n'));
+            }
+        }
+        return out.toString();
+    }
+
+    // The first sentences of the source, reading no further than the last of them
+    private List<String> sentences(Reader source) throws IOException {
+        List<String> sentences = new ArrayList<>();
+        StringBuilder sentence = new StringBuilder();
+        boolean ended = false;
+        for (int c = source.read(); c >= 0 && sentences.size() < MAX_SENTENCES; c = source.read()) {
+            if (ended && Character.isWhitespace(c)) {
+                add(sentences, sentence);
+                ended = false;
+                continue;
+            }
+            sentence.append((char) c);
+            ended = c == '.' || c == '!' || c == '?';
+        }
+        if (sentences.size() < MAX_SENTENCES) {
+            add(sentences, sentence);
+        }
+        return sentences;
+    }
+
+    private static void add(List<String> sentences, StringBuilder sentence) {
+        String trimmed = sentence.toString().trim();
+        if (!trimmed.isEmpty()) {
+            sentences.add(trimmed);
+        }
+        sentence.setLength(0);
+    }
+
+    private String escapeJson(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+    }
+}
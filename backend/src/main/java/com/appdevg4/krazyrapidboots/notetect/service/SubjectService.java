@@ -1,11 +1,13 @@
 package com.appdevg4.krazyrapidboots.notetect.service;
 
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
 import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
 import com.appdevg4.krazyrapidboots.notetect.entity.User;
 import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
 import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +20,16 @@ public class SubjectService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private RevisionService revisionService;
+
+    @Autowired
+    private SubtreePurgeService subtreePurgeService;
+
+    @Autowired
+    private ChangeStreamService changeStream;
+
+    @Transactional(readOnly = true)
     public List<Subject> getAllSubjectsByUserId(Integer userId) {
         return subjectRepository.findByUserUserId(userId);
     }
@@ -30,11 +42,24 @@ public class SubjectService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         subject.setUser(user);
-        return subjectRepository.save(subject);
+        Subject saved = subjectRepository.save(subject);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.SUBJECT, ChangeStreamService.CREATED, List.of(saved.getId()));
+        return saved;
     }
 
-    public void deleteSubject(int id) {
-        subjectRepository.deleteById(id);
+    // Delete the subject with its folders and notes; large subjects are purged in the background
+    public Optional<PurgeJob> deleteSubject(int id, Integer userId) {
+        Optional<Subject> subject = subjectRepository.findById(id);
+        if (subject.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (!subject.get().getUser().getUserId().equals(userId)) {
+            throw new RuntimeException("User not authorized to delete this subject.");
+        }
+
+        return subtreePurgeService.deleteSubject(id, userId);
     }
 
     public Subject updateSubjectName(int id, String name, Integer userId) {
@@ -46,6 +71,9 @@ public class SubjectService {
         }
 
         subject.setName(name);
-        return subjectRepository.save(subject);
+        Subject saved = subjectRepository.save(subject);
+        revisionService.bump(userId);
+        changeStream.publish(userId, ChangeStreamService.SUBJECT, ChangeStreamService.UPDATED, List.of(id));
+        return saved;
     }
 }
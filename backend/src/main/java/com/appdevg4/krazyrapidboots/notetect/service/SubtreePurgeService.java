@@ -0,0 +1,227 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.PurgeJobRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Deletes a subject or folder together with everything filed under it.
+ *
+ * Notes are deleted by id and folders by subject with bulk statements scoped to the
+ * owner, so nothing is loaded into the persistence context. A subtree of up to
+ * async-threshold notes goes in one transaction. Larger ones get a PurgeJob and are
+ * deleted a chunk per transaction by a background job, whose progress is stored with
+ * every chunk so it resumes after a restart; the subject or folder itself goes last.
+ * Chunks only delete what is still there, so two instances working on the same job
+ * do no harm.
+ */
+@Service
+public class SubtreePurgeService {
+    private static final Logger log = LoggerFactory.getLogger(SubtreePurgeService.class);
+
+    private final NoteRepository noteRepository;
+    private final FolderRepository folderRepository;
+    private final SubjectRepository subjectRepository;
+    private final PurgeJobRepository purgeJobRepository;
+    private final NoteSearchService noteSearchService;
+    private final NoteContentWriteBehind contentWriteBehind;
+    private final RevisionService revisionService;
+    private final CacheInvalidationBroadcaster broadcaster;
+    private final ChangeStreamService changeStream;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final int asyncThreshold;
+    private final int chunkSize;
+
+    // What to delete: a whole subject (folderId null) or a single folder (subjectId null)
+    private record Target(Integer userId, Integer subjectId, Integer folderId) {
+        static Target of(PurgeJob job) {
+            return new Target(job.getUserId(), job.getSubjectId(), job.getFolderId());
+        }
+    }
+
+    // What one transaction deleted; the folders and subject only once no notes are left
+    private record Chunk(List<Integer> noteIds, int notesDeleted, List<Integer> folderIds, boolean finished) {}
+
+    public SubtreePurgeService(NoteRepository noteRepository, FolderRepository folderRepository,
+            SubjectRepository subjectRepository, PurgeJobRepository purgeJobRepository,
+            NoteSearchService noteSearchService, NoteContentWriteBehind contentWriteBehind,
+            RevisionService revisionService, CacheInvalidationBroadcaster broadcaster,
+            ChangeStreamService changeStream, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${notetect.purge.async-threshold:1000}") int asyncThreshold,
+            @Value("${notetect.purge.chunk-size:500}") int chunkSize) {
+        this.noteRepository = noteRepository;
+        this.folderRepository = folderRepository;
+        this.subjectRepository = subjectRepository;
+        this.purgeJobRepository = purgeJobRepository;
+        this.noteSearchService = noteSearchService;
+        this.contentWriteBehind = contentWriteBehind;
+        this.revisionService = revisionService;
+        this.broadcaster = broadcaster;
+        this.changeStream = changeStream;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.asyncThreshold = asyncThreshold;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Delete the user's subject with its folders and notes.
+     *
+     * @return the purge job if the subject was too large to delete right away
+     */
+    public Optional<PurgeJob> deleteSubject(int subjectId, Integer userId) {
+        return delete(new Target(userId, subjectId, null));
+    }
+
+    /**
+     * Delete the user's folder with its notes.
+     *
+     * @return the purge job if the folder was too large to delete right away
+     */
+    public Optional<PurgeJob> deleteFolder(int folderId, Integer userId) {
+        return delete(new Target(userId, null, folderId));
+    }
+
+    // Progress of one of the user's purges
+    public PurgeJob getJob(int id, Integer userId) {
+        PurgeJob job = purgeJobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Purge job not found with id " + id));
+        if (!job.getUserId().equals(userId)) {
+            throw new RuntimeException("User not authorized to access this purge job.");
+        }
+        return job;
+    }
+
+    // Work through unfinished jobs a chunk each, oldest first
+    @Scheduled(fixedDelayString = "${notetect.purge.interval-ms:1000}")
+    public void purgeChunks() {
+        // Usually there is nothing to do, so check with a plain query before going through JPA
+        List<Integer> running = jdbcTemplate.queryForList("SELECT id FROM purge_job WHERE status = ? ORDER BY id",
+                Integer.class, PurgeJob.RUNNING);
+        for (Integer id : running) {
+            purgeJobRepository.findById(id).ifPresent(this::purgeChunk);
+        }
+    }
+
+    private void purgeChunk(PurgeJob job) {
+        Target target = Target.of(job);
+        try {
+            Chunk chunk = transaction.execute(status -> {
+                Chunk deleted = deleteChunk(target, noteIds(target, chunkSize), chunkSize);
+                Instant now = Instant.now();
+                purgeJobRepository.addProgress(job.getId(), deleted.notesDeleted(), now);
+                if (deleted.finished()) {
+                    purgeJobRepository.updateStatus(job.getId(), PurgeJob.DONE, now);
+                }
+                return deleted;
+            });
+            afterCommit(target, chunk);
+            if (chunk.finished()) {
+                log.info("Purge job {} finished", job.getId());
+            }
+        } catch (DataAccessException e) {
+            // e.g. a note was filed into the subtree meanwhile; the next run deletes it too
+            log.warn("Purge job {} chunk failed, retrying on the next run", job.getId(), e);
+        }
+    }
+
+    private Optional<PurgeJob> delete(Target target) {
+        // One more than the threshold tells whether the whole subtree fits into this request
+        int limit = asyncThreshold + 1;
+        Object result = transaction.execute(status -> {
+            List<Integer> noteIds = noteIds(target, limit);
+            if (noteIds.size() < limit) {
+                return deleteChunk(target, noteIds, limit);
+            }
+            return runningJobFor(target).orElseGet(() -> purgeJobRepository.save(new PurgeJob(target.userId(),
+                    target.subjectId(), target.folderId(), countNotes(target))));
+        });
+        if (result instanceof PurgeJob job) {
+            log.info("Purging {} notes in the background (job {})", job.getNotesTotal(), job.getId());
+            return Optional.of(job);
+        }
+        afterCommit(target, (Chunk) result);
+        return Optional.empty();
+    }
+
+    private List<Integer> noteIds(Target target, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return target.subjectId() != null
+                ? noteRepository.findIdsInSubject(target.subjectId(), target.userId(), page)
+                : noteRepository.findIdsInFolder(target.folderId(), target.userId(), page);
+    }
+
+    private long countNotes(Target target) {
+        return target.subjectId() != null
+                ? noteRepository.countInSubject(target.subjectId())
+                : noteRepository.countInFolder(target.folderId());
+    }
+
+    // Delete the given notes; if they were the last ones (fewer than limit), the folders and subject as well
+    private Chunk deleteChunk(Target target, List<Integer> noteIds, int limit) {
+        int notesDeleted = noteIds.isEmpty() ? 0 : noteRepository.deleteByIdIn(noteIds);
+        if (noteIds.size() >= limit) {
+            return new Chunk(noteIds, notesDeleted, List.of(), false);
+        }
+
+        List<Integer> folderIds;
+        if (target.subjectId() != null) {
+            folderIds = folderRepository.findIdsBySubjectId(target.subjectId());
+            folderRepository.deleteBySubjectId(target.subjectId(), target.userId());
+            subjectRepository.deleteOwned(target.subjectId(), target.userId());
+        } else {
+            folderIds = List.of(target.folderId());
+            folderRepository.deleteOwned(target.folderId(), target.userId());
+        }
+        return new Chunk(noteIds, notesDeleted, folderIds, true);
+    }
+
+    private Optional<PurgeJob> runningJobFor(Target target) {
+        return purgeJobRepository.findByStatusOrderByIdAsc(PurgeJob.RUNNING).stream()
+                .filter(job -> Target.of(job).equals(target))
+                .findFirst();
+    }
+
+    // Bulk deletes bypass the entity listeners, so the search index, write-behind buffer,
+    // other instances' caches, the owner's revision and change streams are updated here
+    private void afterCommit(Target target, Chunk chunk) {
+        for (Integer noteId : chunk.noteIds()) {
+            contentWriteBehind.discard(noteId);
+            noteSearchService.removeNote(noteId);
+        }
+        for (Integer folderId : chunk.folderIds()) {
+            broadcaster.publish(Folder.class.getName(), folderId);
+        }
+        if (chunk.finished() && target.subjectId() != null) {
+            broadcaster.publish(Subject.class.getName(), target.subjectId());
+        }
+        revisionService.bump(target.userId());
+
+        changeStream.publish(target.userId(), ChangeStreamService.NOTE, ChangeStreamService.DELETED, chunk.noteIds());
+        changeStream.publish(target.userId(), ChangeStreamService.FOLDER, ChangeStreamService.DELETED,
+                chunk.folderIds());
+        if (chunk.finished() && target.subjectId() != null) {
+            changeStream.publish(target.userId(), ChangeStreamService.SUBJECT, ChangeStreamService.DELETED,
+                    List.of(target.subjectId()));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderNoteCount;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Builds the Subject → Folder → Note tree for the sidebar.
+ *
+ * The tree is written as JSON straight to the response from four queries: subjects,
+ * folders, note counts per folder, and one forward-only stream of note summaries
+ * ordered the same way as the tree, so notes never have to be held in memory.
+ */
+@Service
+public class WorkspaceService {
+    private final SubjectRepository subjectRepository;
+    private final FolderRepository folderRepository;
+    private final NoteRepository noteRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public WorkspaceService(SubjectRepository subjectRepository, FolderRepository folderRepository,
+            NoteRepository noteRepository, ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.subjectRepository = subjectRepository;
+        this.folderRepository = folderRepository;
+        this.noteRepository = noteRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Write the user's workspace tree as JSON:
+     * {"subjects":[{id, name, folderCount, noteCount, folders:[{id, name, noteCount, notes:[...]}]}],
+     *  "unfiled":{notes:[...], noteCount}}
+     */
+    public void writeTree(Integer userId, OutputStream out) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+                    Stream<NoteSummary> notes = noteRepository.streamSummariesForTree(userId)) {
+                // Leave closing the response stream to the servlet container
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                writeTree(userId, json, notes.iterator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeTree(Integer userId, JsonGenerator json, Iterator<NoteSummary> notes) throws IOException {
+        List<Subject> subjects = subjectRepository.findByUserUserIdOrderByIdAsc(userId);
+
+        Map<Integer, List<FolderSummary>> foldersBySubject = new LinkedHashMap<>();
+        for (FolderSummary folder : folderRepository.findSummariesByUserId(userId)) {
+            foldersBySubject.computeIfAbsent(folder.getSubjectId(), id -> new ArrayList<>()).add(folder);
+        }
+
+        Map<Integer, Long> noteCounts = new HashMap<>();
+        for (FolderNoteCount count : noteRepository.countByFolderForUser(userId)) {
+            noteCounts.put(count.getFolderId(), count.getNoteCount());
+        }
+
+        // Position of each folder in the tree, to recognise notes whose folder is not part of it
+        Map<Integer, Integer> folderPositions = new HashMap<>();
+        for (Subject subject : subjects) {
+            for (FolderSummary folder : foldersBySubject.getOrDefault(subject.getId(), List.of())) {
+                folderPositions.put(folder.getId(), folderPositions.size());
+            }
+        }
+
+        PeekingIterator pending = new PeekingIterator(notes);
+        List<NoteSummary> misplaced = new ArrayList<>();
+
+        json.writeStartObject();
+        json.writeArrayFieldStart("subjects");
+        for (Subject subject : subjects) {
+            List<FolderSummary> folders = foldersBySubject.getOrDefault(subject.getId(), List.of());
+            long subjectNotes = folders.stream().mapToLong(f -> noteCounts.getOrDefault(f.getId(), 0L)).sum();
+
+            json.writeStartObject();
+            json.writeNumberField("id", subject.getId());
+            json.writeStringField("name", subject.getName());
+            json.writeNumberField("folderCount", folders.size());
+            json.writeNumberField("noteCount", subjectNotes);
+            json.writeArrayFieldStart("folders");
+            for (FolderSummary folder : folders) {
+                json.writeStartObject();
+                json.writeNumberField("id", folder.getId());
+                json.writeStringField("name", folder.getName());
+                json.writeNumberField("noteCount", noteCounts.getOrDefault(folder.getId(), 0L));
+                json.writeArrayFieldStart("notes");
+                // Notes arrive in tree order; anything sorted before this folder is not in the tree
+                int position = folderPositions.get(folder.getId());
+                while (pending.hasNext() && pending.peek().getFolderId() != null
+                        && folderPositions.getOrDefault(pending.peek().getFolderId(), -1) < position) {
+                    misplaced.add(pending.next());
+                }
+                while (pending.hasNext() && folder.getId().equals(pending.peek().getFolderId())) {
+                    writeNote(json, pending.next());
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+
+        long unfiled = 0;
+        json.writeObjectFieldStart("unfiled");
+        json.writeArrayFieldStart("notes");
+        while (pending.hasNext()) {
+            writeNote(json, pending.next());
+            unfiled++;
+        }
+        for (NoteSummary note : misplaced) {
+            writeNote(json, note);
+            unfiled++;
+        }
+        json.writeEndArray();
+        json.writeNumberField("noteCount", unfiled);
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private void writeNote(JsonGenerator json, NoteSummary note) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", note.getId());
+        json.writeStringField("title", note.getTitle());
+        json.writeStringField("noteType", note.getNoteType());
+        json.writeStringField("createdAt", note.getCreatedAt() != null ? note.getCreatedAt().toString() : null);
+        json.writeEndObject();
+    }
+
+    private static final class PeekingIterator {
+        private final Iterator<NoteSummary> source;
+        private NoteSummary next;
+
+        PeekingIterator(Iterator<NoteSummary> source) {
+            this.source = source;
+            this.next = source.hasNext() ? source.next() : null;
+        }
+
+        boolean hasNext() {
+            return next != null;
+        }
+
+        NoteSummary peek() {
+            return next;
+        }
+
+        NoteSummary next() {
+            NoteSummary current = next;
+            next = source.hasNext() ? source.next() : null;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.appdevg4.krazyrapidboots.notetect.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes on only the bytes from position first to last (inclusive) of what is written
+ * to it, and counts everything. Used to answer Range requests for responses that are
+ * generated rather than stored: the body is produced again from the start and the
+ * bytes outside the range are dropped.
+ */
+public class ByteRangeOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final long first;
+    private final long last;
+    private long position;
+
+    public ByteRangeOutputStream(OutputStream out, long first, long last) {
+        this.out = out;
+        this.first = first;
+        this.last = last;
+    }
+
+    // Counts what is written without passing anything on
+    public static ByteRangeOutputStream counting() {
+        return new ByteRangeOutputStream(OutputStream.nullOutputStream(), Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    // Number of bytes written so far
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (position >= first && position <= last) {
+            out.write(b);
+        }
+        position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = Math.max(position, first);
+        long end = Math.min(position + len - 1, last);
+        if (start <= end) {
+            out.write(b, off + (int) (start - position), (int) (end - start + 1));
+        }
+        position += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    // Closing is left to whoever owns the underlying stream
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
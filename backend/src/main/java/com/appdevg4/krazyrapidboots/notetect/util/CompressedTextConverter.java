@@ -0,0 +1,115 @@
+package com.appdevg4.krazyrapidboots.notetect.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores text in a binary column, deflate-compressed once it is larger than a threshold.
+ *
+ * Compressed values start with a 4-byte header (0x00 'N' 'Z' format). Anything without
+ * the header is plain UTF-8, which is how rows written before compression are read.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    // Values at or below this many UTF-8 bytes are stored as plain text
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
+    private static final byte[] HEADER = { 0x00, 'N', 'Z' };
+    private static final byte FORMAT_STORED = 0;
+    private static final byte FORMAT_DEFLATE = 1;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] plain = text.getBytes(StandardCharsets.UTF_8);
+        if (plain.length > COMPRESSION_THRESHOLD) {
+            byte[] compressed = deflate(plain);
+            if (compressed.length < plain.length) {
+                return withHeader(FORMAT_DEFLATE, compressed);
+            }
+        }
+        // Plain text that happens to start like a header is wrapped so it reads back unchanged
+        if (plain.length > 0 && plain[0] == HEADER[0]) {
+            return withHeader(FORMAT_STORED, plain);
+        }
+        return plain;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!hasHeader(data)) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        byte[] body = Arrays.copyOfRange(data, HEADER.length + 1, data.length);
+        return switch (data[HEADER.length]) {
+            case FORMAT_STORED -> new String(body, StandardCharsets.UTF_8);
+            case FORMAT_DEFLATE -> new String(inflate(body), StandardCharsets.UTF_8);
+            default -> throw new IllegalStateException("Unknown content format " + data[HEADER.length]);
+        };
+    }
+
+    // True if the stored value already carries the format header
+    public static boolean hasHeader(byte[] data) {
+        return data.length > HEADER.length
+                && data[0] == HEADER[0] && data[1] == HEADER[1] && data[2] == HEADER[2];
+    }
+
+    private static byte[] withHeader(byte format, byte[] body) {
+        byte[] out = new byte[HEADER.length + 1 + body.length];
+        System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+        out[HEADER.length] = format;
+        System.arraycopy(body, 0, out, HEADER.length + 1, body.length);
+        return out;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed content");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
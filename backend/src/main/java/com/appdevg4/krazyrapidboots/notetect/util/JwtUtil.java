@@ -1,12 +1,17 @@
 package com.appdevg4.krazyrapidboots.notetect.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.time.Duration;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class JwtUtil {
@@ -16,10 +21,32 @@ public class JwtUtil {
     private static final String SECRET_KEY = "your-very-secure-secret-key-that-is-at-least-32-characters-long";
     private static final long EXPIRATION_TIME = 7 * 24 * 60 * 60 * 1000; // 7 days in milliseconds
 
+    // Upper bound on the number of verified tokens kept in memory
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
     private final SecretKey key;
+    private final JwtParser parser;
+
+    // Tokens whose signature has already been checked, mapped to their subject and expiry;
+    // no entry outlives the longest a token can be valid
+    private final Cache<String, VerifiedToken> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_TOKENS)
+            .expireAfterWrite(Duration.ofMillis(EXPIRATION_TIME))
+            .build();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private record VerifiedToken(Integer userId, long expiresAt) {
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
 
     public JwtUtil() {
         this.key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
     }
 
     /**
@@ -38,30 +65,55 @@ public class JwtUtil {
     }
 
     /**
-     * Validate JWT token
+     * Verify the token and return its user ID, or null if the token is invalid or expired.
+     * A token is parsed and its signature checked only the first time it is seen.
      */
-    public boolean validateToken(String token) {
+    public Integer verifyToken(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                cacheHits.incrementAndGet();
+                return cached.userId();
+            }
+            verifiedTokens.asMap().remove(token, cached);
+        }
+        cacheMisses.incrementAndGet();
+
+        Claims claims;
         try {
-            Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            claims = parser.parseSignedClaims(token).getPayload();
         } catch (Exception e) {
-            return false;
+            return null;
         }
+
+        Integer userId = Integer.parseInt(claims.getSubject());
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : now + EXPIRATION_TIME;
+        verifiedTokens.put(token, new VerifiedToken(userId, expiresAt));
+        return userId;
+    }
+
+    /**
+     * Validate JWT token
+     */
+    public boolean validateToken(String token) {
+        return verifyToken(token) != null;
     }
 
     /**
      * Extract user ID from JWT token
      */
     public Integer getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return Integer.parseInt(claims.getSubject());
+        Integer userId = verifyToken(token);
+        if (userId == null) {
+            throw new IllegalArgumentException("Invalid JWT token");
+        }
+        return userId;
     }
+
+    public long getCacheHits() { return cacheHits.get(); }
+
+    public long getCacheMisses() { return cacheMisses.get(); }
+
+    public long getCacheSize() { return verifiedTokens.estimatedSize(); }
 }
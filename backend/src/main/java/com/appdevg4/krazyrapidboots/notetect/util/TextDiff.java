@@ -0,0 +1,142 @@
+package com.appdevg4.krazyrapidboots.notetect.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the edits that turn one text into another, line by line, in the form
+ * TextPatch applies: TextPatch.apply(from, diff(from, to)) equals to.
+ *
+ * Lines are matched with Myers' algorithm after stripping the common leading and
+ * trailing lines. Past MAX_EDIT_DISTANCE differing lines the whole changed region is
+ * replaced by one edit, which keeps time and memory bounded for unrelated texts.
+ */
+public final class TextDiff {
+
+    // Differing lines beyond which the search for a minimal diff gives up
+    static final int MAX_EDIT_DISTANCE = 1000;
+
+    private TextDiff() {}
+
+    public static List<TextPatch.Edit> diff(String from, String to) {
+        String[] a = lines(from != null ? from : "");
+        String[] b = lines(to != null ? to : "");
+
+        int prefix = 0;
+        int prefixChars = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix].equals(b[prefix])) {
+            prefixChars += a[prefix].length();
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix].equals(b[b.length - 1 - suffix])) {
+            suffix++;
+        }
+        String[] oldLines = Arrays.copyOfRange(a, prefix, a.length - suffix);
+        String[] newLines = Arrays.copyOfRange(b, prefix, b.length - suffix);
+
+        List<TextPatch.Edit> edits = new ArrayList<>();
+        if (oldLines.length == 0 && newLines.length == 0) {
+            return edits;
+        }
+        boolean[] deleted = new boolean[oldLines.length];
+        boolean[] inserted = new boolean[newLines.length];
+        if (!align(oldLines, newLines, deleted, inserted)) {
+            Arrays.fill(deleted, true);
+            Arrays.fill(inserted, true);
+        }
+
+        // Lines kept by both sides pair up in order; everything between them becomes one edit
+        int i = 0;
+        int j = 0;
+        int position = prefixChars;
+        while (i < oldLines.length || j < newLines.length) {
+            if (i < oldLines.length && j < newLines.length && !deleted[i] && !inserted[j]) {
+                position += newLines[j].length();
+                i++;
+                j++;
+                continue;
+            }
+            TextPatch.Edit edit = new TextPatch.Edit();
+            edit.offset = position;
+            StringBuilder insert = new StringBuilder();
+            while (i < oldLines.length && deleted[i]) {
+                edit.delete += oldLines[i++].length();
+            }
+            while (j < newLines.length && inserted[j]) {
+                insert.append(newLines[j++]);
+            }
+            edit.insert = insert.toString();
+            position += edit.insert.length();
+            edits.add(edit);
+        }
+        return edits;
+    }
+
+    // Mark the lines of a minimal edit script, or return false if it needs more than MAX_EDIT_DISTANCE lines
+    private static boolean align(String[] a, String[] b, boolean[] deleted, boolean[] inserted) {
+        int n = a.length;
+        int m = b.length;
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        // The furthest x reached on each diagonal k in [-d, d] after step d, for walking back
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || k != d && v[offset + k - 1] < v[offset + k + 1]
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x].equals(b[y])) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+                    backtrack(trace, n, m, deleted, inserted);
+                    return true;
+                }
+            }
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+        }
+        return false;
+    }
+
+    private static void backtrack(List<int[]> trace, int x, int y, boolean[] deleted, boolean[] inserted) {
+        for (int d = trace.size() - 1; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            // previous[k + d - 1] is the furthest x on diagonal k after step d - 1
+            boolean down = k == -d || k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1];
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = previous[previousK + d - 1];
+            int previousY = previousX - previousK;
+            if (down) {
+                inserted[previousY] = true;
+            } else {
+                deleted[previousX] = true;
+            }
+            x = previousX;
+            y = previousY;
+        }
+    }
+
+    // Split after each '\n', so the lines concatenate back to the text
+    private static String[] lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int end = text.indexOf('\n'); end >= 0; end = text.indexOf('\n', start)) {
+            lines.add(text.substring(start, end + 1));
+            start = end + 1;
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines.toArray(new String[0]);
+    }
+}
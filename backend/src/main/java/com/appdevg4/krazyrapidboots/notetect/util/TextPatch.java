@@ -0,0 +1,42 @@
+package com.appdevg4.krazyrapidboots.notetect.util;
+
+import java.util.List;
+
+/**
+ * Applies a list of splice edits to a text.
+ * Offsets count UTF-16 code units, the same as JavaScript string indices,
+ * and each edit is applied to the result of the previous one.
+ */
+public final class TextPatch {
+
+    public static class Edit {
+        // Position of the first character to replace
+        public int offset;
+        // Number of characters to remove at offset
+        public int delete;
+        // Text to insert at offset (may be empty)
+        public String insert;
+    }
+
+    private TextPatch() {}
+
+    /**
+     * Apply the edits in order
+     *
+     * @throws IllegalArgumentException if an edit is missing or falls outside the text
+     */
+    public static String apply(String text, List<Edit> edits) {
+        StringBuilder result = new StringBuilder(text != null ? text : "");
+        for (Edit edit : edits) {
+            if (edit == null) {
+                throw new IllegalArgumentException("Edit is missing");
+            }
+            if (edit.offset < 0 || edit.delete < 0 || edit.offset > result.length()
+                    || edit.delete > result.length() - edit.offset) {
+                throw new IllegalArgumentException("Edit at offset " + edit.offset + " is out of range");
+            }
+            result.replace(edit.offset, edit.offset + edit.delete, edit.insert != null ? edit.insert : "");
+        }
+        return result.toString();
+    }
+}
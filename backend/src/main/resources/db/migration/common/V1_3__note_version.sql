@@ -0,0 +1,2 @@
+-- Optimistic locking of note updates (Note.version); existing notes start at 0
+alter table note add column version bigint default 0 not null;
@@ -0,0 +1,32 @@
+-- Cached generation results (GenerationCacheEntry) and uploaded source documents (SourceDocument)
+
+create table generation_cache (
+    size_bytes integer not null,
+    created_at datetime(6),
+    last_used_at datetime(6),
+    cache_key varchar(64) not null,
+    note_type varchar(255),
+    prompt_version varchar(255),
+    content LONGBLOB,
+    primary key (cache_key)
+);
+
+-- Age and size eviction walk the entries by last use
+create index idx_generation_cache_last_used on generation_cache (last_used_at);
+
+create table source_document (
+    id integer not null auto_increment,
+    page_count integer not null,
+    user_id integer not null,
+    char_count bigint not null,
+    size_bytes bigint not null,
+    sha256 varchar(64),
+    created_at varchar(255),
+    filename varchar(255),
+    format varchar(255),
+    primary key (id)
+);
+
+create index idx_source_document_user_sha on source_document (user_id, sha256);
+
+alter table source_document add constraint FKjquu32f3cbd2entoiwxy0405e foreign key (user_id) references users (user_id);
@@ -0,0 +1,47 @@
+-- Schema as Hibernate generated it before any of the changes the later scripts make.
+-- Databases created by ddl-auto from those entities already match it and are baselined
+-- at 1, so they receive everything from V1.1 on.
+
+create table users (
+    user_id integer not null auto_increment,
+    email varchar(255) not null,
+    name varchar(255) not null,
+    password varchar(255) not null,
+    primary key (user_id)
+);
+
+create table subject (
+    id integer not null auto_increment,
+    user_id integer not null,
+    name varchar(255),
+    primary key (id)
+);
+
+create table folder (
+    id integer not null auto_increment,
+    subject_id integer not null,
+    name varchar(255),
+    primary key (id)
+);
+
+create table note (
+    folder_id integer,
+    id integer not null auto_increment,
+    user_id integer not null,
+    content TEXT,
+    created_at varchar(255),
+    filename varchar(255),
+    note_type varchar(255),
+    title varchar(255),
+    primary key (id)
+);
+
+alter table users add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table folder add constraint FKke0pdwqt7yovxmpb3h1fu5smk foreign key (subject_id) references subject (id);
+
+alter table note add constraint FK2316sprb5ket7ap1l33v4y1g2 foreign key (folder_id) references folder (id);
+
+alter table note add constraint FKaxew7axjawf2la92pc4yxcm87 foreign key (user_id) references users (user_id);
+
+alter table subject add constraint FK2k9bu1cldg6renkln7rylqmdx foreign key (user_id) references users (user_id);
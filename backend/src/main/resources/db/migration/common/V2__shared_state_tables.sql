@@ -0,0 +1,18 @@
+-- Tables the jdbc revision store and cache invalidation broadcaster used to create on
+-- startup, so they may already exist.
+
+create table if not exists user_revision (
+    user_id integer not null primary key,
+    revision bigint not null
+);
+
+create table if not exists cache_invalidation (
+    id bigint auto_increment primary key,
+    origin varchar(36) not null,
+    entity_name varchar(255) not null,
+    entity_id integer not null,
+    created_at bigint not null
+);
+
+-- Every poll reads the rows newer than its last poll
+create index idx_cache_invalidation_created on cache_invalidation (created_at);
@@ -0,0 +1,14 @@
+-- Note creation time as a real timestamp, and indexes for the time-ordered note lookups
+-- (descending, as they list newest first). Lookups by folder, subject and user already use
+-- the indexes behind the foreign keys. On MySQL 8 the column is added instantly and the
+-- indexes are built in place without blocking writes.
+--
+-- created_time starts out empty for existing rows; NoteCreatedTimeBackfill copies the
+-- legacy text column over in small batches while the application runs. The text
+-- column is left in place and can be dropped once the backfill has finished.
+
+alter table note add column created_time datetime(6);
+
+create index idx_note_user_created on note (user_id, created_time desc);
+
+create index idx_note_user_type_created on note (user_id, note_type, created_time desc);
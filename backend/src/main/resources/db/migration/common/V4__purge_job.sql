@@ -0,0 +1,17 @@
+-- Progress of subject and folder deletions too large for a single request
+
+create table purge_job (
+    id integer not null auto_increment,
+    user_id integer,
+    subject_id integer,
+    folder_id integer,
+    notes_total bigint not null,
+    notes_deleted bigint not null,
+    status varchar(255),
+    created_at datetime(6),
+    updated_at datetime(6),
+    primary key (id)
+);
+
+-- The purge worker looks up unfinished jobs on every run
+create index idx_purge_job_status on purge_job (status);
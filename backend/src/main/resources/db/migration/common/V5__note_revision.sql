@@ -0,0 +1,22 @@
+-- Revision history of note titles and content (see NoteRevision)
+
+create table note_revision (
+    id integer not null auto_increment,
+    note_id integer not null,
+    seq integer not null,
+    base_seq integer not null,
+    snapshot boolean not null,
+    title varchar(255),
+    data LONGBLOB,
+    content_hash integer not null,
+    created_at datetime(6),
+    compacted boolean not null,
+    primary key (id),
+    constraint uk_note_revision_seq unique (note_id, seq)
+);
+
+-- History goes with the note, also when notes are deleted in bulk
+alter table note_revision add constraint fk_note_revision_note foreign key (note_id) references note (id) on delete cascade;
+
+-- The compaction job looks up old revisions it has not merged yet
+create index idx_note_revision_compaction on note_revision (compacted, created_at);
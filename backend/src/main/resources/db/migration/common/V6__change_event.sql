@@ -0,0 +1,12 @@
+-- Change stream events for the other instances, polled by the jdbc change event broadcaster
+
+create table change_event (
+    id bigint auto_increment primary key,
+    origin varchar(36) not null,
+    user_id integer not null,
+    payload mediumtext not null,
+    created_at bigint not null
+);
+
+-- Every poll reads the rows newer than its last poll
+create index idx_change_event_created on change_event (created_at);
@@ -0,0 +1,5 @@
+-- Revisions remember a SHA-256 of their content instead of a 32-bit hash. Rows without
+-- one never match, so the next change of such a note starts with a fresh snapshot.
+
+alter table note_revision drop column content_hash;
+alter table note_revision add column content_digest varbinary(32);
@@ -0,0 +1,12 @@
+-- Upload time of a source document as a real timestamp, like note.created_time (V3).
+-- The text column only ever held Instant.toString() values and the table has one row per
+-- upload, so it is converted in place (as UTC wall-clock time, the way Instants are
+-- stored) and then dropped.
+
+alter table source_document add column created_time datetime(6);
+
+update source_document
+    set created_time = cast(replace(substring(replace(created_at, 'Z', ''), 1, 26), 'T', ' ') as datetime(6))
+    where created_at like '____-__-__T__:__:__%';
+
+alter table source_document drop column created_at;
@@ -0,0 +1,7 @@
+-- The sidebar listing pages through a user's notes by (created_time, id), as ids come from
+-- pooled blocks and do not follow creation order. The new index serves that keyset and
+-- everything idx_note_user_created (V3) did, so that one is dropped once it exists.
+
+create index idx_note_user_created_id on note (user_id, created_time desc, id desc);
+
+drop index idx_note_user_created on note;
@@ -0,0 +1,7 @@
+-- Note ids come from a pooled sequence (allocationSize 50) instead of the identity column,
+-- so bulk inserts can be batched. The sequence starts past the existing ids.
+alter table note alter column id drop identity;
+
+create sequence note_seq start with 1 increment by 50;
+
+alter sequence note_seq restart with (select coalesce(max(id), 0) + 50 from note);
@@ -0,0 +1,3 @@
+-- Note content is stored as bytes, deflate-compressed when large (CompressedTextConverter).
+-- Existing text becomes plain UTF-8, which the converter reads as it is.
+alter table note alter column content set data type LONGBLOB;
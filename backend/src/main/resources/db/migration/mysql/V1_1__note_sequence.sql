@@ -0,0 +1,10 @@
+-- Note ids come from a pooled generator (allocationSize 50) instead of auto_increment, so
+-- bulk inserts can be batched. MySQL has no sequences; Hibernate keeps the next note id
+-- block in a table, which starts past the existing ids.
+alter table note modify id integer not null;
+
+create table note_seq (
+    next_val bigint
+);
+
+insert into note_seq select coalesce(max(id), 0) + 50 from note;
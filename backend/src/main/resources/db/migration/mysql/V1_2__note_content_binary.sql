@@ -0,0 +1,4 @@
+-- Note content is stored as bytes, deflate-compressed when large (CompressedTextConverter).
+-- Existing text becomes plain UTF-8, which the converter reads as it is;
+-- NoteContentMigrator compresses the large rows later.
+alter table note modify content LONGBLOB;
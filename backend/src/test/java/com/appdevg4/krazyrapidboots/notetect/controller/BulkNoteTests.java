@@ -0,0 +1,145 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Imports, moves and deletes notes through the bulk endpoints, and checks that another
+ * user's notes are skipped and that notes cannot be filed into another user's folder.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class BulkNoteTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Test
+    void notesMoveOnlyWithinTheirOwnersWorkspace() throws Exception {
+        User owner = saveUser("bulk-owner@example.com");
+        User other = saveUser("bulk-other@example.com");
+        Cookie token = new Cookie("token", jwtUtil.generateToken(owner.getUserId()));
+        Folder folder = saveFolder(owner, "Mine");
+        Folder foreign = saveFolder(other, "Theirs");
+
+        // More notes than one JDBC batch
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Note note = new Note();
+            note.setTitle("Bulk " + i);
+            note.setContent("Content " + i);
+            notes.add(note);
+        }
+        String created = mockMvc.perform(post("/api/notes/bulk").cookie(token)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(notes)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(120))
+                .andReturn().getResponse().getContentAsString();
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode id : objectMapper.readTree(created).get("ids")) {
+            ids.add(id.asInt());
+        }
+        Note otherNote = new Note();
+        otherNote.setTitle("Not yours");
+        otherNote.setUser(other);
+        int otherId = noteRepository.save(otherNote).getId();
+
+        List<Integer> moving = new ArrayList<>(ids.subList(0, 100));
+        moving.add(otherId);
+        move(token, folder.getId(), moving)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(100));
+        assertThat(noteRepository.findByFolderId(folder.getId())).hasSize(100);
+
+        // Filing into someone else's folder is refused and moves nothing
+        assertThatThrownBy(() -> move(token, foreign.getId(), ids))
+                .hasRootCauseMessage("User not authorized to move notes to this folder.");
+        assertThatThrownBy(() -> mockMvc.perform(post("/api/notes/bulk").cookie(token)
+                        .param("folderId", String.valueOf(foreign.getId()))
+                        .contentType(MediaType.APPLICATION_JSON).content("[{\"title\":\"Smuggled\"}]")))
+                .hasRootCauseMessage("User not authorized to add notes to this folder.");
+        assertThat(noteRepository.findByFolderId(foreign.getId())).isEmpty();
+        assertThat(noteRepository.findByFolderId(folder.getId())).hasSize(100);
+
+        mockMvc.perform(post("/api/notes/bulk/delete").cookie(token).contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BulkIds(moving))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(100));
+        assertThat(noteRepository.findByUserUserId(owner.getUserId())).hasSize(20);
+        assertThat(noteRepository.findById(otherId)).isPresent();
+    }
+
+    private record BulkIds(List<Integer> noteIds) {
+    }
+
+    private ResultActions move(Cookie token, int folderId, List<Integer> ids) throws Exception {
+        return mockMvc.perform(put("/api/notes/bulk/move").cookie(token).param("folderId", String.valueOf(folderId))
+                .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(new BulkIds(ids))));
+    }
+
+    private Folder saveFolder(User user, String name) {
+        Subject subject = new Subject();
+        subject.setName("Subject of " + name);
+        subject.setUser(user);
+        subject = subjectRepository.save(subject);
+        Folder folder = new Folder();
+        folder.setName(name);
+        folder.setSubject(subject);
+        return folderRepository.save(folder);
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("bulk");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+}
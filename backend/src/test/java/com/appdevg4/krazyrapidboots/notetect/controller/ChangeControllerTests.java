@@ -0,0 +1,89 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.service.ChangeStreamService;
+import com.appdevg4.krazyrapidboots.notetect.service.NoteService;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Opens a change stream on the real server, so async processing and non-blocking
+ * writes go through the servlet container and the security filters.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "notetect.changes.heartbeat-ms=3600000"
+})
+@AutoConfigureTestDatabase
+class ChangeControllerTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private ChangeStreamService changeStream;
+
+    @Test
+    void streamCarriesTheUsersChanges() throws Exception {
+        User user = new User();
+        user.setName("stream");
+        user.setEmail("stream@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + port + "/api/changes")
+                .toURL().openConnection();
+        connection.setRequestProperty(HttpHeaders.COOKIE, "token=" + jwtUtil.generateToken(user.getUserId()));
+        connection.setReadTimeout(10_000);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            assertThat(connection.getContentType()).startsWith("text/event-stream");
+            assertThat(reader.readLine()).isEqualTo("event: ready");
+            assertThat(reader.readLine()).isEqualTo("data:");
+            assertThat(reader.readLine()).isEmpty();
+
+            Note note = new Note();
+            note.setTitle("Streamed");
+            note.setContent("");
+            note = noteService.saveNote(note, user.getUserId());
+            assertThat(reader.readLine()).isEqualTo("event: change");
+            assertThat(reader.readLine())
+                    .isEqualTo("data: {\"entity\":\"note\",\"action\":\"created\",\"ids\":[" + note.getId() + "]}");
+            assertThat(reader.readLine()).isEmpty();
+        } finally {
+            connection.disconnect();
+        }
+
+        // The stream is let go once the client has gone and the next write fails
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (changeStream.getSubscriberCount() > 0 && System.currentTimeMillis() < deadline) {
+            changeStream.heartbeat();
+            Thread.sleep(50);
+        }
+        assertThat(changeStream.getSubscriberCount()).isZero();
+    }
+}
@@ -0,0 +1,218 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.service.NoteService;
+import com.appdevg4.krazyrapidboots.notetect.service.RevisionService;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Exports a small workspace as NDJSON and zip, and checks that gzip and byte ranges
+ * give back exactly the bytes of the plain export, and that a changed export is never
+ * sent as if it were the one the headers describe.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class ExportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private ExportController exportController;
+
+    @Autowired
+    private RevisionService revisionService;
+
+    @Test
+    void exportsAreStableAndResumable() throws Exception {
+        User user = new User();
+        user.setName("export");
+        user.setEmail("export@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+
+        Subject subject = new Subject();
+        subject.setName("Biology");
+        subject.setUser(user);
+        subject = subjectRepository.save(subject);
+        Folder folder = new Folder();
+        folder.setName("Cells/Organelles");
+        folder.setSubject(subject);
+        folder = folderRepository.save(folder);
+        for (int i = 0; i < 20; i++) {
+            Note note = new Note();
+            note.setTitle("Note " + i);
+            note.setNoteType("SUMMARY");
+            note.setContent("Mitochondria are the powerhouse of the cell. ".repeat(i * 10));
+            note.setUser(user);
+            note.setFolder(i % 2 == 0 ? folder : null);
+            noteRepository.save(note);
+        }
+
+        MockHttpServletResponse plain = export(get("/api/export"), token);
+        assertThat(plain.getStatus()).isEqualTo(200);
+        assertThat(plain.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        byte[] ndjson = plain.getContentAsByteArray();
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : new String(ndjson, StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        assertThat(lines).hasSize(1 + 1 + 1 + 20);
+        assertThat(lines.get(0).get("type").asText()).isEqualTo("export");
+        assertThat(lines.get(1).get("name").asText()).isEqualTo("Biology");
+        assertThat(lines.get(2).get("subjectId").asInt()).isEqualTo(subject.getId());
+        assertThat(lines.get(4).get("content").asText()).startsWith("Mitochondria");
+        assertThat(lines.get(4).has("folderId")).isFalse();
+
+        // gzip encoding carries the same export
+        MockHttpServletResponse gzipped = export(get("/api/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip"), token);
+        assertThat(gzipped.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        byte[] compressed = gzipped.getContentAsByteArray();
+        assertThat(compressed.length).isLessThan(ndjson.length);
+        assertThat(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes()).isEqualTo(ndjson);
+
+        // Resuming the gzip download part-way through gives the rest of the same bytes
+        String etag = gzipped.getHeader(HttpHeaders.ETAG);
+        MockHttpServletResponse rest = export(get("/api/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.RANGE, "bytes=100-").header(HttpHeaders.IF_RANGE, etag), token);
+        assertThat(rest.getStatus()).isEqualTo(206);
+        assertThat(rest.getHeader(HttpHeaders.CONTENT_RANGE))
+                .isEqualTo("bytes 100-" + (compressed.length - 1) + "/" + compressed.length);
+        assertThat(rest.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(compressed, 100, compressed.length));
+
+        MockHttpServletResponse middle = export(get("/api/export").header(HttpHeaders.RANGE, "bytes=10-19"), token);
+        assertThat(middle.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(ndjson, 10, 20));
+
+        // Once the data has changed the old ETag no longer matches and the whole export is sent
+        Note added = new Note();
+        added.setTitle("Added later");
+        noteService.saveNote(added, user.getUserId());
+        MockHttpServletResponse stale = export(get("/api/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.RANGE, "bytes=100-").header(HttpHeaders.IF_RANGE, etag), token);
+        assertThat(stale.getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse unsatisfiable = mockMvc.perform(get("/api/export")
+                .header(HttpHeaders.RANGE, "bytes=99999999-").cookie(token)).andReturn().getResponse();
+        assertThat(unsatisfiable.getStatus()).isEqualTo(416);
+        MockHttpServletResponse oversized = mockMvc.perform(get("/api/export")
+                .header(HttpHeaders.RANGE, "bytes=99999999999999999999-").cookie(token)).andReturn().getResponse();
+        assertThat(oversized.getStatus()).isEqualTo(416);
+        MockHttpServletResponse oversizedSuffix = export(get("/api/export")
+                .header(HttpHeaders.RANGE, "bytes=-99999999999999999999"), token);
+        assertThat(oversizedSuffix.getStatus()).isEqualTo(206);
+        assertThat(oversizedSuffix.getContentAsByteArray())
+                .isEqualTo(export(get("/api/export"), token).getContentAsByteArray());
+
+        // The zip holds one markdown file per note, under subject/folder or unfiled/
+        MockHttpServletResponse zipped = export(get("/api/export").param("format", "zip"), token);
+        List<String> names = new ArrayList<>();
+        String first = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipped.getContentAsByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                if (first == null && entry.getName().endsWith(".md")) {
+                    first = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        assertThat(names).contains("Biology/", "Biology/Cells_Organelles/");
+        assertThat(names.stream().filter(name -> name.endsWith(".md"))).hasSize(21);
+        assertThat(names.stream().filter(name -> name.startsWith("unfiled/"))).hasSize(11);
+        assertThat(first).startsWith("---\nid: ").contains("title: \"Note 0\"", "subject: \"Biology\"",
+                "folder: \"Cells/Organelles\"");
+    }
+
+    @Test
+    void anExportThatChangesWhileItIsWrittenIsCutOff() throws Exception {
+        User user = new User();
+        user.setName("export-race");
+        user.setEmail("export-race@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Note note = new Note();
+        note.setTitle("Before");
+        noteService.saveNote(note, user.getUserId());
+        Authentication authentication = new UsernamePasswordAuthenticationToken(user.getUserId(), null, List.of());
+
+        ResponseEntity<StreamingResponseBody> whole = exportController.export("ndjson", null, null, null,
+                authentication);
+        ResponseEntity<StreamingResponseBody> range = exportController.export("ndjson", null, "bytes=5-", null,
+                authentication);
+        assertThat(range.getStatusCode().value()).isEqualTo(206);
+
+        // A change between the headers and the body fails both instead of sending the new data
+        revisionService.bump(user.getUserId());
+        assertThatThrownBy(() -> whole.getBody().writeTo(new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> range.getBody().writeTo(new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class);
+    }
+
+    private MockHttpServletResponse export(MockHttpServletRequestBuilder request, Cookie token) throws Exception {
+        MvcResult started = mockMvc.perform(request.cookie(token)).andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andReturn().getResponse();
+    }
+}
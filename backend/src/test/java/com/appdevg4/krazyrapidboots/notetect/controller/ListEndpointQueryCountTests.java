@@ -0,0 +1,141 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the list endpoints against N+1 loading: each one must run the same
+ * number of SQL statements whether the user owns one row or many.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListEndpointQueryCountTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    private Workspace small;
+    private Workspace large;
+
+    private record Workspace(Cookie token, int subjectId, int folderId) {}
+
+    @BeforeAll
+    void createWorkspaces() {
+        small = createWorkspace("small", 1, 1, 1);
+        large = createWorkspace("large", 3, 4, 5);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/notes",
+            "/api/notes/summaries",
+            "/api/notes/folder/{folderId}",
+            "/api/folders",
+            "/api/folders/subject/{subjectId}",
+            "/api/subjects"
+    })
+    void listEndpointRunsOneStatementRegardlessOfRowCount(String endpoint) throws Exception {
+        assertThat(statementsFor(endpoint, small)).isEqualTo(1);
+        assertThat(statementsFor(endpoint, large)).isEqualTo(1);
+    }
+
+    private long statementsFor(String endpoint, Workspace workspace) throws Exception {
+        String url = endpoint
+                .replace("{folderId}", String.valueOf(workspace.folderId()))
+                .replace("{subjectId}", String.valueOf(workspace.subjectId()));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url).cookie(workspace.token())).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Workspace createWorkspace(String name, int subjects, int foldersPerSubject, int notesPerFolder) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+
+        Subject firstSubject = null;
+        Folder firstFolder = null;
+        for (int s = 0; s < subjects; s++) {
+            Subject subject = new Subject();
+            subject.setName(name + " subject " + s);
+            subject.setUser(user);
+            subject = subjectRepository.save(subject);
+            if (firstSubject == null) {
+                firstSubject = subject;
+            }
+
+            for (int f = 0; f < foldersPerSubject; f++) {
+                Folder folder = new Folder();
+                folder.setName(name + " folder " + f);
+                folder.setSubject(subject);
+                folder = folderRepository.save(folder);
+                if (firstFolder == null) {
+                    firstFolder = folder;
+                }
+
+                for (int n = 0; n < notesPerFolder; n++) {
+                    Note note = new Note();
+                    note.setTitle(name + " note " + n);
+                    note.setContent("content " + n);
+                    note.setNoteType("SUMMARY");
+                    note.setUser(user);
+                    note.setFolder(folder);
+                    noteRepository.save(note);
+                }
+            }
+        }
+
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+        return new Workspace(token, firstSubject.getId(), firstFolder.getId());
+    }
+}
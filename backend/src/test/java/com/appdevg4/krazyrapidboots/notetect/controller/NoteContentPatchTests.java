@@ -0,0 +1,156 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Patches a note's content with splice edits and checks that stale versions are
+ * refused with 409 and malformed edits with 400, leaving the note untouched; and that
+ * concurrent whole-content and title updates are refused with 409 rather than failing.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class NoteContentPatchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Test
+    void editsApplyOnlyToTheVersionTheyWereMadeAgainst() throws Exception {
+        User user = new User();
+        user.setName("patch");
+        user.setEmail("patch@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+        Note note = new Note();
+        note.setTitle("Cells");
+        note.setContent("Mitochondria are organelles.");
+        note.setNoteType("SUMMARY");
+        note.setUser(user);
+        note = noteRepository.save(note);
+        int id = note.getId();
+        long version = note.getVersion();
+
+        patchContent(token, id, "{\"baseVersion\":" + version
+                + ",\"edits\":[{\"offset\":0,\"delete\":12,\"insert\":\"Ribosomes\"},"
+                + "{\"offset\":10,\"delete\":3,\"insert\":\"make proteins, not\"}]}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").value("Ribosomes make proteins, not organelles."))
+                .andExpect(jsonPath("$.version").value(version + 1));
+
+        // The edits were made against a version that is no longer current
+        patchContent(token, id, "{\"baseVersion\":" + version
+                + ",\"edits\":[{\"offset\":0,\"delete\":0,\"insert\":\"Stale \"}]}")
+                .andExpect(status().isConflict());
+
+        long current = version + 1;
+        String[] malformed = {
+                "{\"edits\":[]}",
+                "{\"baseVersion\":" + current + "}",
+                "{\"baseVersion\":" + current + ",\"edits\":[null]}",
+                "{\"baseVersion\":" + current + ",\"edits\":[{\"offset\":-1,\"delete\":0,\"insert\":\"x\"}]}",
+                "{\"baseVersion\":" + current + ",\"edits\":[{\"offset\":0,\"delete\":-1,\"insert\":\"x\"}]}",
+                "{\"baseVersion\":" + current + ",\"edits\":[{\"offset\":1000,\"delete\":0,\"insert\":\"x\"}]}",
+                // offset + delete overflows an int and must not wrap around into range
+                "{\"baseVersion\":" + current + ",\"edits\":[{\"offset\":1,\"delete\":2147483647,\"insert\":\"\"}]}",
+                // valid on its own, but past the end of the text the first edit left
+                "{\"baseVersion\":" + current + ",\"edits\":[{\"offset\":0,\"delete\":40,\"insert\":\"\"},"
+                        + "{\"offset\":1,\"delete\":0,\"insert\":\"x\"}]}"
+        };
+        for (String body : malformed) {
+            patchContent(token, id, body).andExpect(status().isBadRequest());
+        }
+
+        Note stored = noteRepository.findById(id).orElseThrow();
+        assertThat(stored.getContent()).isEqualTo("Ribosomes make proteins, not organelles.");
+        assertThat(stored.getVersion()).isEqualTo(current);
+    }
+
+    @Test
+    void concurrentUpdatesAreRefusedWithConflict() throws Exception {
+        User user = new User();
+        user.setName("patch");
+        user.setEmail("patch-concurrent@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+        Note note = new Note();
+        note.setTitle("Cells");
+        note.setContent("Mitochondria are organelles.");
+        note.setUser(user);
+        int id = noteRepository.save(note).getId();
+
+        // Each update reads the note and writes it back, so overlapping ones see a newer version
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 25; i++) {
+                    try {
+                        var request = thread % 2 == 0
+                                ? put("/api/notes/{id}", id).content("{\"title\":\"Title " + thread + "-" + i + "\"}")
+                                : put("/api/notes/{id}/content", id)
+                                        .content("{\"content\":\"Content " + thread + "-" + i + "\"}");
+                        int status = mockMvc.perform(request.cookie(token).contentType(MediaType.APPLICATION_JSON))
+                                .andReturn().getResponse().getStatus();
+                        statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures).isEmpty();
+        assertThat(statuses.keySet()).isSubsetOf(200, 409);
+        assertThat(statuses.get(200)).isNotNull();
+    }
+
+    private ResultActions patchContent(Cookie token, int id, String body) throws Exception {
+        return mockMvc.perform(patch("/api/notes/{id}/content", id).cookie(token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+}
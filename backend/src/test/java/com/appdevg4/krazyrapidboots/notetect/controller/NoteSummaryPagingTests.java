@@ -0,0 +1,97 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pages through the sidebar listing when note ids do not follow creation order (as with
+ * pooled id blocks), with notes created at the same instant and notes without a creation time.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class NoteSummaryPagingTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesFollowCreationTimeNotIds() throws Exception {
+        User user = new User();
+        user.setName("paging");
+        user.setEmail("paging@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+
+        // Two instances handing out ids from different blocks: the newest notes have the lowest ids
+        Instant start = Instant.parse("2026-01-05T09:00:00.123456Z");
+        int[][] notes = {
+                // id, minutes after start (-1: no creation time)
+                { 300051, 0 }, { 300001, 1 }, { 300052, 2 }, { 300002, 2 }, { 300053, 2 },
+                { 300003, 3 }, { 300054, 4 }, { 300004, 5 }, { 300060, -1 }, { 300061, -1 }
+        };
+        for (int[] note : notes) {
+            jdbcTemplate.update("INSERT INTO note (id, user_id, version, title, created_time) VALUES (?, ?, 0, ?, ?)",
+                    note[0], user.getUserId(), "Note " + note[0],
+                    note[1] < 0 ? null : Timestamp.from(start.plusSeconds(note[1] * 60L)));
+        }
+
+        List<Integer> listed = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/notes/summaries").cookie(token).param("limit", "3");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("items").forEach(item -> listed.add(item.get("id").asInt()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        // Newest first, ties by id, the notes without a time last
+        assertThat(listed).containsExactly(300004, 300054, 300003, 300053, 300052, 300002, 300001, 300051,
+                300061, 300060);
+
+        for (String invalid : new String[] { "300004", "yesterday,300004", "2026-01-05T09:00:00Z,x" }) {
+            mockMvc.perform(get("/api/notes/summaries").cookie(token).param("cursor", invalid))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the scrape endpoint carries the meters the dashboard relies on, from the
+ * web, repository and Hibernate layers as well as the application's own. (The embedded
+ * test database is not pooled, so the hikaricp.* meters only appear against a real one.)
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class PrometheusEndpointTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void scrapeIncludesEveryLayer() throws Exception {
+        User user = new User();
+        user.setName("metrics");
+        user.setEmail("metrics@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+
+        mockMvc.perform(get("/api/notes").cookie(token)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/subjects").cookie(token)).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("uri=\"/api/notes\"")
+                .contains("spring_data_repository_invocations_seconds_bucket{")
+                .contains("hibernate_statements_total")
+                .contains("hibernate_entities_loads_total")
+                .contains("notetect_jwt_filter_seconds_count{")
+                .contains("notetect_jwt_cache_requests_total{")
+                .contains("notetect_auth_hashing_queue_depth")
+                .contains("notetect_generation_cache_hit_ratio")
+                .contains("notetect_notes_write_behind_pending");
+    }
+}
@@ -0,0 +1,122 @@
+package com.appdevg4.krazyrapidboots.notetect.controller;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.service.JdbcCacheInvalidationBroadcaster;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.Cookie;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that users and subject lists are served from the second-level and query caches,
+ * that renames and deletes are visible straight away, and that a change announced by
+ * another instance evicts what this one cached.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "notetect.cache.invalidation=jdbc",
+        "notetect.cache.invalidation.poll-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class SecondLevelCacheTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JdbcCacheInvalidationBroadcaster broadcaster;
+
+    @Test
+    void cachedReadsStayCoherent() throws Exception {
+        User user = new User();
+        user.setName("cached");
+        user.setEmail("cached@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+
+        Subject subject = new Subject();
+        subject.setName("Biology");
+        subject.setUser(user);
+        subject = subjectRepository.save(subject);
+
+        // /api/auth/me and the subject list are answered without SQL once cached
+        perform(get("/api/auth/me"), token);
+        assertThat(statementsFor(get("/api/auth/me"), token)).isZero();
+        perform(get("/api/subjects"), token);
+        assertThat(statementsFor(get("/api/subjects"), token)).isZero();
+
+        // A rename is visible in the cached list
+        perform(put("/api/subjects/{id}", subject.getId()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Chemistry\"}"), token);
+        perform(get("/api/subjects"), token).andExpect(jsonPath("$[0].name").value("Chemistry"));
+
+        // A change committed by another instance: the row changes behind this instance's back,
+        // then the announcement arrives
+        jdbcTemplate.update("UPDATE subject SET name = 'Physics' WHERE id = ?", subject.getId());
+        perform(get("/api/subjects"), token).andExpect(jsonPath("$[0].name").value("Chemistry"));
+        jdbcTemplate.update("INSERT INTO cache_invalidation (origin, entity_name, entity_id, created_at) "
+                + "VALUES ('other-instance', ?, ?, ?)", Subject.class.getName(), subject.getId(), System.currentTimeMillis());
+        broadcaster.poll();
+        perform(get("/api/subjects"), token).andExpect(jsonPath("$[0].name").value("Physics"));
+        perform(get("/api/subjects/{id}", subject.getId()), token).andExpect(jsonPath("$.name").value("Physics"));
+
+        // A delete is visible in the cached list
+        perform(delete("/api/subjects/{id}", subject.getId()), token);
+        perform(get("/api/subjects"), token).andExpect(jsonPath("$.length()").value(0));
+
+        // This instance's own changes were published for the others
+        Integer published = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cache_invalidation WHERE origin <> 'other-instance'", Integer.class);
+        assertThat(published).isGreaterThanOrEqualTo(3);
+    }
+
+    private ResultActions perform(org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder request,
+            Cookie token) throws Exception {
+        return mockMvc.perform(request.cookie(token)).andExpect(status().isOk());
+    }
+
+    private long statementsFor(org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder request,
+            Cookie token) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        perform(request, token);
+        return statistics.getPrepareStatementCount();
+    }
+}
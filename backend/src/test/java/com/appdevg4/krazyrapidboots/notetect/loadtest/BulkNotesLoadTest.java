@@ -0,0 +1,177 @@
+package com.appdevg4.krazyrapidboots.notetect.loadtest;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Creates, moves and deletes 10k notes (by default) once with one request per note and
+ * once through the bulk endpoints, and writes the notes per second of each to a JSON report.
+ *
+ * Excluded from the normal build like {@link LoadTest}; run with {@code mvn -Pload-test test},
+ * e.g. {@code -Dloadtest.bulk-notes=10000 -Dloadtest.bulk-size=1000}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=${loadtest.jdbc-url:jdbc:h2:mem:bulkload;MODE=MySQL;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "notetect.documents.storage-dir=target/load-test/documents"
+})
+class BulkNotesLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(BulkNotesLoadTest.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    private String token;
+
+    @Test
+    void bulkEndpointsAgainstOneRequestPerNote() throws Exception {
+        int notes = Integer.getInteger("loadtest.bulk-notes", 10_000);
+        int bulkSize = Integer.getInteger("loadtest.bulk-size", 1000);
+        Path reportPath = Paths.get(System.getProperty("loadtest.bulk-report", "target/load-test/bulk-report.json"));
+
+        User user = new User();
+        user.setName("Bulk Load");
+        user.setEmail("bulk@load.test");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        token = jwtUtil.generateToken(user.getUserId());
+        Subject subject = new Subject();
+        subject.setName("Bulk");
+        subject.setUser(user);
+        subject = subjectRepository.save(subject);
+        Folder folder = new Folder();
+        folder.setName("Target");
+        folder.setSubject(subject);
+        int folderId = folderRepository.save(folder).getId();
+
+        Map<String, Object> single = new LinkedHashMap<>();
+        List<Integer> ids = new ArrayList<>(notes);
+        long started = System.nanoTime();
+        for (int i = 0; i < notes; i++) {
+            ids.add(send("POST", "/api/notes", note(i)).get("id").asInt());
+        }
+        single.put("create", rate(notes, started));
+        started = System.nanoTime();
+        for (int id : ids) {
+            send("PUT", "/api/notes/" + id + "/move?folderId=" + folderId, "");
+        }
+        single.put("move", rate(notes, started));
+        started = System.nanoTime();
+        for (int id : ids) {
+            send("DELETE", "/api/notes/" + id, null);
+        }
+        single.put("delete", rate(notes, started));
+
+        Map<String, Object> bulk = new LinkedHashMap<>();
+        ids.clear();
+        started = System.nanoTime();
+        for (int from = 0; from < notes; from += bulkSize) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = from; i < Math.min(from + bulkSize, notes); i++) {
+                body.append(i > from ? "," : "").append(note(i));
+            }
+            send("POST", "/api/notes/bulk", body.append(']').toString()).get("ids").forEach(id -> ids.add(id.asInt()));
+        }
+        bulk.put("create", rate(notes, started));
+        started = System.nanoTime();
+        for (int from = 0; from < notes; from += bulkSize) {
+            send("PUT", "/api/notes/bulk/move?folderId=" + folderId, noteIds(ids, from, bulkSize));
+        }
+        bulk.put("move", rate(notes, started));
+        started = System.nanoTime();
+        for (int from = 0; from < notes; from += bulkSize) {
+            send("POST", "/api/notes/bulk/delete", noteIds(ids, from, bulkSize));
+        }
+        bulk.put("delete", rate(notes, started));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", Instant.now().toString());
+        report.put("notes", notes);
+        report.put("bulkSize", bulkSize);
+        Map<String, Object> notesPerSecond = new LinkedHashMap<>();
+        notesPerSecond.put("single", single);
+        notesPerSecond.put("bulk", bulk);
+        report.put("notesPerSecond", notesPerSecond);
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportPath.toFile(), report);
+        log.info("Notes per second, one request per note: {}; bulk: {}; report written to {}", single, bulk,
+                reportPath.toAbsolutePath());
+
+        assertThat(ids).hasSize(notes);
+        assertThat((long) bulk.get("create")).isGreaterThan((long) single.get("create"));
+    }
+
+    private static String note(int i) {
+        return "{\"title\":\"Note " + i + "\",\"noteType\":\"SUMMARY\",\"content\":\"# Note " + i
+                + "\\n\\n- Cells divide by mitosis.\\n- Enzymes lower the activation energy.\\n\"}";
+    }
+
+    private static String noteIds(List<Integer> ids, int from, int size) {
+        return "{\"noteIds\":" + ids.subList(from, Math.min(from + size, ids.size())) + "}";
+    }
+
+    private static long rate(int notes, long started) {
+        return Math.round(notes / ((System.nanoTime() - started) / 1e9));
+    }
+
+    private JsonNode send(String method, String path, String json) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Cookie", "token=" + token)
+                .header("Content-Type", "application/json")
+                .method(method, json == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as(method + " " + path).isEqualTo(200);
+        return response.body().isEmpty() ? null : objectMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,119 @@
+package com.appdevg4.krazyrapidboots.notetect.loadtest;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.service.ImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports one large NDJSON archive (100k notes by default) into an empty workspace and
+ * checks that it finishes within the time budget, then writes a JSON report of the
+ * import rate next to the end-to-end report.
+ *
+ * Excluded from the normal build like {@link LoadTest}; run with {@code mvn -Pload-test test},
+ * e.g. {@code -Dloadtest.import-notes=100000 -Dloadtest.import-max-seconds=300}.
+ */
+@Tag("load")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${loadtest.jdbc-url:jdbc:h2:mem:importload;MODE=MySQL;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "notetect.documents.storage-dir=target/load-test/documents"
+})
+class ImportLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(ImportLoadTest.class);
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Test
+    void importsALargeArchiveWithinTheBudget() throws Exception {
+        int notes = Integer.getInteger("loadtest.import-notes", 100_000);
+        int maxSeconds = Integer.getInteger("loadtest.import-max-seconds", 300);
+        int foldersPerSubject = 20;
+        Path reportPath = Paths.get(System.getProperty("loadtest.import-report", "target/load-test/import-report.json"));
+
+        User user = new User();
+        user.setName("Import Load");
+        user.setEmail("import@load.test");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+
+        // Notes spread over 5 subjects of 20 folders, a few hundred bytes of prose each
+        Random random = new Random(Long.getLong("loadtest.seed", 42L));
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        StringBuilder line = new StringBuilder();
+        for (int s = 0; s < 5; s++) {
+            line.append("{\"type\":\"subject\",\"id\":").append(s).append(",\"name\":\"Subject ").append(s).append("\"}\n");
+            for (int f = 0; f < foldersPerSubject; f++) {
+                line.append("{\"type\":\"folder\",\"id\":").append(s * foldersPerSubject + f).append(",\"subjectId\":")
+                        .append(s).append(",\"name\":\"Folder ").append(f).append("\"}\n");
+            }
+        }
+        for (int n = 0; n < notes; n++) {
+            line.append("{\"folderId\":").append(random.nextInt(5 * foldersPerSubject))
+                    .append(",\"title\":\"Note ").append(n).append("\",\"noteType\":\"SUMMARY\",\"content\":\"# Note ")
+                    .append(n).append("\\n\\n");
+            for (int sentence = 1 + random.nextInt(8); sentence > 0; sentence--) {
+                line.append("- Cells divide by mitosis while enzymes lower the activation energy ")
+                        .append(random.nextInt(1000)).append(".\\n");
+            }
+            line.append("\"}\n");
+            archive.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+            line.setLength(0);
+        }
+        archive.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+
+        long started = System.nanoTime();
+        ImportService.ImportResult result = importService.importArchive(new MockMultipartFile("file",
+                "load.ndjson", "application/x-ndjson", archive.toByteArray()), user.getUserId());
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", Instant.now().toString());
+        report.put("notes", notes);
+        report.put("archiveBytes", archive.size());
+        report.put("imported", result.imported);
+        report.put("failed", result.failed);
+        report.put("seconds", Math.round(seconds * 10) / 10.0);
+        report.put("notesPerSecond", Math.round(result.imported / seconds));
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportPath.toFile(), report);
+        log.info("Imported {} notes in {} s, report written to {}", result.imported, report.get("seconds"),
+                reportPath.toAbsolutePath());
+
+        assertThat(result.failed).isZero();
+        assertThat(result.imported).isEqualTo(notes);
+        assertThat(noteRepository.count()).isEqualTo(notes);
+        assertThat(seconds).isLessThan(maxSeconds);
+    }
+}
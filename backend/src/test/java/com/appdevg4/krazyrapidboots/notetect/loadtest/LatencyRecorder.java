@@ -0,0 +1,99 @@
+package com.appdevg4.krazyrapidboots.notetect.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects request latencies per endpoint for one virtual user; recorders are merged
+ * once the run is over, so recording never contends across threads.
+ */
+public class LatencyRecorder {
+    private final Map<String, Samples> samples = new TreeMap<>();
+
+    private static final class Samples {
+        long[] nanos = new long[1024];
+        int count;
+        int errors;
+
+        void add(long value) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = value;
+        }
+    }
+
+    public void record(String endpoint, long nanos, boolean ok) {
+        Samples s = samples.computeIfAbsent(endpoint, e -> new Samples());
+        s.add(nanos);
+        if (!ok) {
+            s.errors++;
+        }
+    }
+
+    public void merge(LatencyRecorder other) {
+        other.samples.forEach((endpoint, theirs) -> {
+            Samples ours = samples.computeIfAbsent(endpoint, e -> new Samples());
+            for (int i = 0; i < theirs.count; i++) {
+                ours.add(theirs.nanos[i]);
+            }
+            ours.errors += theirs.errors;
+        });
+    }
+
+    /**
+     * Per-endpoint request count, errors, throughput and latency percentiles (ms),
+     * plus an "all" entry across endpoints; keys are sorted so reports diff cleanly
+     */
+    public Map<String, Object> summarize(double seconds) {
+        Map<String, Object> endpoints = new TreeMap<>();
+        Samples all = new Samples();
+        samples.forEach((endpoint, s) -> {
+            endpoints.put(endpoint, summarize(s, seconds));
+            for (int i = 0; i < s.count; i++) {
+                all.add(s.nanos[i]);
+            }
+            all.errors += s.errors;
+        });
+        endpoints.put("all", summarize(all, seconds));
+        return endpoints;
+    }
+
+    private static Map<String, Object> summarize(Samples s, double seconds) {
+        long[] sorted = Arrays.copyOf(s.nanos, s.count);
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("mean", round(s.count == 0 ? 0 : sum / s.count / 1e6));
+        latency.put("p50", percentile(sorted, 50));
+        latency.put("p95", percentile(sorted, 95));
+        latency.put("p99", percentile(sorted, 99));
+        latency.put("max", round(s.count == 0 ? 0 : sorted[s.count - 1] / 1e6));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", s.count);
+        summary.put("errors", s.errors);
+        summary.put("throughputPerSecond", round(s.count / seconds));
+        summary.put("latencyMs", latency);
+        return summary;
+    }
+
+    // Nearest-rank percentile, in milliseconds
+    private static double percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return round(sorted[Math.max(0, rank - 1)] / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
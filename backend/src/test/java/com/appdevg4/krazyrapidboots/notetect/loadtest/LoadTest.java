@@ -0,0 +1,121 @@
+package com.appdevg4.krazyrapidboots.notetect.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load test: generates a synthetic dataset in an in-memory H2 database
+ * (MySQL mode), starts the application on a random local port and drives it with
+ * concurrent virtual users, then writes a JSON report of throughput and latency
+ * percentiles per endpoint.
+ *
+ * Excluded from the normal build; run with {@code mvn -Pload-test test}. Sizes and
+ * duration come from loadtest.* system properties, e.g.
+ * {@code -Dloadtest.users=20000 -Dloadtest.concurrency=64 -Dloadtest.duration-seconds=120}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=${loadtest.jdbc-url:jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.show-sql=false",
+        "notetect.documents.storage-dir=target/load-test/documents"
+})
+class LoadTest {
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void runScenarios() throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup-seconds", 5);
+        int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 30);
+        Path reportPath = Paths.get(System.getProperty("loadtest.report", "target/load-test/report.json"));
+
+        SyntheticDataGenerator.Config config = SyntheticDataGenerator.Config.fromSystemProperties();
+        // One hash shared by every generated user; hashing per user would dominate generation time
+        String passwordHash = passwordEncoder.encode(SyntheticDataGenerator.PASSWORD);
+        SyntheticDataGenerator.Dataset dataset = new SyntheticDataGenerator(jdbcTemplate).generate(config, passwordHash);
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        List<VirtualUser> virtualUsers = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            VirtualUser virtualUser = new VirtualUser(http, "http://localhost:" + port, dataset,
+                    warmupEnd, end, config.seed() + i);
+            virtualUsers.add(virtualUser);
+            executor.execute(virtualUser);
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(warmupSeconds + durationSeconds + 60L, TimeUnit.SECONDS)).isTrue();
+
+        LatencyRecorder results = new LatencyRecorder();
+        virtualUsers.forEach(virtualUser -> results.merge(virtualUser.getRecorder()));
+        Map<String, Object> endpoints = results.summarize(durationSeconds);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generatedAt", Instant.now().toString());
+        report.put("dataset", Map.of(
+                "users", config.users(),
+                "subjects", (long) config.users() * config.subjectsPerUser(),
+                "folders", (long) config.users() * dataset.foldersPerUser(),
+                "notes", dataset.notes(),
+                "contentBytes", dataset.contentBytes(),
+                "medianNoteBytes", config.medianNoteBytes(),
+                "seed", config.seed(),
+                "generationSeconds", Math.round(dataset.generationSeconds() * 10) / 10.0));
+        report.put("run", Map.of(
+                "concurrency", concurrency,
+                "warmupSeconds", warmupSeconds,
+                "durationSeconds", durationSeconds));
+        report.put("endpoints", endpoints);
+
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .writeValue(reportPath.toFile(), report);
+        log.info("Load test report written to {}", reportPath.toAbsolutePath());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> all = (Map<String, Object>) endpoints.get("all");
+        assertThat((int) all.get("requests")).isPositive();
+        assertThat((int) all.get("errors")).isZero();
+    }
+}
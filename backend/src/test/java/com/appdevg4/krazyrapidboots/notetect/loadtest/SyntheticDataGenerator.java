@@ -0,0 +1,203 @@
+package com.appdevg4.krazyrapidboots.notetect.loadtest;
+
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills an empty schema with users → subjects → folders → notes through batched JDBC
+ * inserts, so millions of rows can be generated without going through JPA.
+ *
+ * Ids are assigned in a fixed layout (see {@link Dataset}) so scenario drivers can pick
+ * a user's notes and folders without querying. Note content follows a log-normal size
+ * distribution per note type, built from a small vocabulary so it compresses like prose.
+ */
+public class SyntheticDataGenerator {
+    public static final String PASSWORD = "load-test-password";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] NOTE_TYPES = { "SUMMARY", "STUDY_GUIDE", "SIMPLIFY", "ACTION_ITEMS", "FLASHCARD" };
+    private static final String[] WORDS = ("the cell membrane regulates transport of molecules across its lipid bilayer "
+            + "while mitochondria produce energy through oxidative phosphorylation and glycolysis in the cytoplasm "
+            + "photosynthesis converts light energy into chemical energy stored in glucose molecules enzymes lower "
+            + "activation energy for reactions supply demand equilibrium price elasticity market structure monopoly "
+            + "competition derivative integral limit function continuity theorem proof vector matrix eigenvalue "
+            + "algorithm complexity recursion array graph tree traversal sorting hashing memory process thread "
+            + "revolution empire treaty parliament constitution reform trade colony industrial economy society")
+            .split(" ");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+    private Random random;
+
+    // Rows waiting for the next batch insert, per table
+    private final List<Object[]> users = new ArrayList<>();
+    private final List<Object[]> subjects = new ArrayList<>();
+    private final List<Object[]> folders = new ArrayList<>();
+    private final List<Object[]> notes = new ArrayList<>();
+
+    public record Config(int users, int subjectsPerUser, int foldersPerSubject, int notesPerFolder,
+            int medianNoteBytes, long seed) {
+
+        // Sizes come from loadtest.* system properties so the same harness scales from a smoke run to millions of rows
+        public static Config fromSystemProperties() {
+            return new Config(
+                    Integer.getInteger("loadtest.users", 200),
+                    Integer.getInteger("loadtest.subjects-per-user", 3),
+                    Integer.getInteger("loadtest.folders-per-subject", 4),
+                    Integer.getInteger("loadtest.notes-per-folder", 10),
+                    Integer.getInteger("loadtest.median-note-bytes", 3000),
+                    Long.getLong("loadtest.seed", 42L));
+        }
+    }
+
+    /**
+     * Where the generated rows are. User u (0-based) has id u + 1; its subjects, folders
+     * and notes are consecutive id ranges.
+     */
+    public record Dataset(Config config, long notes, long contentBytes, double generationSeconds) {
+
+        public int userId(int user) {
+            return user + 1;
+        }
+
+        public String email(int user) {
+            return "user" + user + "@load.test";
+        }
+
+        public int firstFolderId(int user) {
+            return user * config.subjectsPerUser() * config.foldersPerSubject() + 1;
+        }
+
+        public int foldersPerUser() {
+            return config.subjectsPerUser() * config.foldersPerSubject();
+        }
+
+        public int firstNoteId(int user) {
+            return user * notesPerUser() + 1;
+        }
+
+        public int notesPerUser() {
+            return foldersPerUser() * config.notesPerFolder();
+        }
+    }
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Dataset generate(Config config, String passwordHash) {
+        long started = System.nanoTime();
+        random = new Random(config.seed());
+        Timestamp createdAt = Timestamp.from(Instant.now());
+
+        int subjectId = 0;
+        int folderId = 0;
+        int noteId = 0;
+        long contentBytes = 0;
+
+        for (int u = 0; u < config.users(); u++) {
+            int userId = u + 1;
+            users.add(new Object[] { userId, "Load User " + u, "user" + u + "@load.test", passwordHash });
+
+            for (int s = 0; s < config.subjectsPerUser(); s++) {
+                subjects.add(new Object[] { ++subjectId, "Subject " + s, userId });
+
+                for (int f = 0; f < config.foldersPerSubject(); f++) {
+                    folders.add(new Object[] { ++folderId, "Folder " + f, subjectId });
+
+                    for (int n = 0; n < config.notesPerFolder(); n++) {
+                        String type = NOTE_TYPES[random.nextInt(NOTE_TYPES.length)];
+                        String content = content(type, config.medianNoteBytes());
+                        contentBytes += content.length();
+                        notes.add(new Object[] { ++noteId, converter.convertToDatabaseColumn(content),
+                                "Note " + n + " on " + WORDS[random.nextInt(WORDS.length)], "lecture" + n + ".pdf",
+                                createdAt, type, 0L, userId, folderId });
+                        if (notes.size() >= BATCH_SIZE) {
+                            flush();
+                        }
+                    }
+                }
+            }
+            if (users.size() >= BATCH_SIZE || subjects.size() >= BATCH_SIZE || folders.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+        flush();
+
+        // Let the application continue numbering after the generated rows
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (config.users() + 1));
+        jdbcTemplate.execute("ALTER TABLE subject ALTER COLUMN id RESTART WITH " + (subjectId + 1));
+        jdbcTemplate.execute("ALTER TABLE folder ALTER COLUMN id RESTART WITH " + (folderId + 1));
+        jdbcTemplate.execute("ALTER SEQUENCE note_seq RESTART WITH " + (noteId + 1 + 50));
+
+        return new Dataset(config, noteId, contentBytes, (System.nanoTime() - started) / 1e9);
+    }
+
+    // Parents are written before children so foreign keys always resolve
+    private void flush() {
+        insert("INSERT INTO users (user_id, name, email, password) VALUES (?, ?, ?, ?)", users);
+        insert("INSERT INTO subject (id, name, user_id) VALUES (?, ?, ?)", subjects);
+        insert("INSERT INTO folder (id, name, subject_id) VALUES (?, ?, ?)", folders);
+        insert("INSERT INTO note (id, content, title, filename, created_time, note_type, version, user_id, folder_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", notes);
+    }
+
+    private void insert(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+
+    private String content(String type, int medianBytes) {
+        // Log-normal around the median, clamped to what real notes look like
+        int target = (int) Math.max(200, Math.min(200_000, medianBytes * Math.exp(0.8 * random.nextGaussian())));
+        StringBuilder text = new StringBuilder(target + 100);
+        switch (type) {
+            case "FLASHCARD" -> {
+                text.append("{\"flashcards\":[");
+                for (int card = 0; text.length() < target; card++) {
+                    text.append(card == 0 ? "" : ",").append("{\"front\":\"").append(sentence(6))
+                            .append("?\",\"back\":\"").append(sentence(14)).append(".\"}");
+                }
+                text.append("]}");
+            }
+            case "ACTION_ITEMS" -> {
+                text.append("{\"actionItems\":[");
+                for (int item = 0; text.length() < target; item++) {
+                    text.append(item == 0 ? "" : ",").append("{\"text\":\"").append(sentence(10))
+                            .append("\",\"completed\":").append(random.nextBoolean()).append('}');
+                }
+                text.append("]}");
+            }
+            default -> {
+                text.append("# ").append(sentence(4)).append("\n\n");
+                while (text.length() < target) {
+                    if (random.nextInt(5) == 0) {
+                        text.append("## ").append(sentence(3)).append("\n\n");
+                    }
+                    text.append("- ").append(sentence(12)).append(".\n");
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private String sentence(int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sentence.setCharAt(0, Character.toUpperCase(sentence.charAt(0)));
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package com.appdevg4.krazyrapidboots.notetect.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * One simulated client. Each session logs in as a random generated user, loads the
+ * sidebar, then performs a weighted mix of note opens, content edits, sidebar refreshes
+ * and moves, recording every request's latency once the warm-up period is over.
+ */
+public class VirtualUser implements Runnable {
+    private static final int ACTIONS_PER_SESSION = 20;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final SyntheticDataGenerator.Dataset dataset;
+    private final long warmupEndNanos;
+    private final long endNanos;
+    private final Random random;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    private String token;
+    private int user;
+
+    public VirtualUser(HttpClient http, String baseUrl, SyntheticDataGenerator.Dataset dataset,
+            long warmupEndNanos, long endNanos, long seed) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.dataset = dataset;
+        this.warmupEndNanos = warmupEndNanos;
+        this.endNanos = endNanos;
+        this.random = new Random(seed);
+    }
+
+    public LatencyRecorder getRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < endNanos) {
+            user = random.nextInt(dataset.config().users());
+            if (!login()) {
+                continue;
+            }
+            send("sidebar.tree", get("/api/workspace/tree"));
+            for (int i = 0; i < ACTIONS_PER_SESSION && System.nanoTime() < endNanos; i++) {
+                int roll = random.nextInt(100);
+                if (roll < 40) {
+                    send("note.open", get("/api/notes/" + randomNoteId()));
+                } else if (roll < 65) {
+                    send("note.edit", put("/api/notes/" + randomNoteId() + "/content",
+                            "{\"content\":\"Edited by load test " + random.nextLong() + "\"}"));
+                } else if (roll < 80) {
+                    send("sidebar.summaries", get("/api/notes/summaries?limit=50"));
+                } else if (roll < 90) {
+                    send("sidebar.tree", get("/api/workspace/tree"));
+                } else {
+                    int folderId = dataset.firstFolderId(user) + random.nextInt(dataset.foldersPerUser());
+                    send("note.move", put("/api/notes/" + randomNoteId() + "/move?folderId=" + folderId, ""));
+                }
+            }
+        }
+    }
+
+    private boolean login() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"" + dataset.email(user)
+                        + "\",\"password\":\"" + SyntheticDataGenerator.PASSWORD + "\"}"))
+                .build();
+        HttpResponse<String> response = send("login", request);
+        token = response == null ? null : response.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("token="))
+                .map(cookie -> cookie.substring("token=".length(), cookie.indexOf(';')))
+                .findFirst()
+                .orElse(null);
+        return token != null;
+    }
+
+    private int randomNoteId() {
+        return dataset.firstNoteId(user) + random.nextInt(dataset.notesPerUser());
+    }
+
+    private HttpRequest get(String path) {
+        return authorized(path).GET().build();
+    }
+
+    private HttpRequest put(String path, String json) {
+        return authorized(path)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Cookie", "token=" + token);
+    }
+
+    // Reads the whole body so the timing covers the full response
+    private HttpResponse<String> send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        HttpResponse<String> response = null;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            // Counted as an error below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long end = System.nanoTime();
+        boolean ok = response != null && response.statusCode() < 400;
+        if (start >= warmupEndNanos) {
+            recorder.record(endpoint, end - start, ok);
+        }
+        return ok ? response : null;
+    }
+}
@@ -0,0 +1,245 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Opens change streams on connections whose client can stop and resume reading, makes
+ * changes through the services, and checks who hears about them, that a client that
+ * stops reading holds up no one, and that events from other instances arrive.
+ */
+@SpringBootTest(properties = {
+        "notetect.changes.buffer-size=4",
+        "notetect.changes.per-user-limit=2",
+        "notetect.changes.heartbeat-ms=3600000",
+        "notetect.changes.broadcast=jdbc",
+        "notetect.changes.poll-ms=3600000"
+})
+@AutoConfigureTestDatabase
+class ChangeStreamServiceTests {
+    private static final String READY = "event: ready\ndata:\n\n";
+
+    @Autowired
+    private ChangeStreamService changeStream;
+
+    @Autowired
+    private JdbcChangeEventBroadcaster broadcaster;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void changesReachOnlyTheOwnersStreams() throws IOException {
+        User owner = saveUser("changes@example.com");
+        User other = saveUser("changes-other@example.com");
+        Connection ownerStream = open(owner);
+        Connection otherStream = open(other);
+
+        Subject subject = new Subject();
+        subject.setName("Biology");
+        subject = subjectService.saveSubject(subject, owner.getUserId());
+        Folder folder = new Folder();
+        folder.setName("Cells");
+        folder = folderService.saveFolder(folder, subject.getId());
+        Note note = new Note();
+        note.setTitle("Mitochondria");
+        note.setContent("Powerhouse of the cell");
+        note = noteService.saveNote(note, owner.getUserId());
+        // Changes made for a request name the client that sent it
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ChangeStreamService.CLIENT_ID_HEADER, "tab-1");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            noteService.updateNoteTitle(note.getId(), "Mitochondria and ATP", owner.getUserId());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+        noteService.moveNotesToFolder(List.of(note.getId(), Integer.MAX_VALUE), folder.getId(), owner.getUserId());
+        noteService.deleteNote(note.getId());
+
+        assertThat(ownerStream.text()).isEqualTo(READY
+                + change("{\"entity\":\"subject\",\"action\":\"created\",\"ids\":[" + subject.getId() + "]}")
+                + change("{\"entity\":\"folder\",\"action\":\"created\",\"ids\":[" + folder.getId() + "]}")
+                + change("{\"entity\":\"note\",\"action\":\"created\",\"ids\":[" + note.getId() + "]}")
+                + change("{\"entity\":\"note\",\"action\":\"updated\",\"ids\":[" + note.getId()
+                        + "],\"origin\":\"tab-1\"}")
+                + change("{\"entity\":\"note\",\"action\":\"moved\",\"ids\":[" + note.getId() + "],\"folderId\":"
+                        + folder.getId() + "}")
+                + change("{\"entity\":\"note\",\"action\":\"deleted\",\"ids\":[" + note.getId() + "]}"));
+        assertThat(otherStream.text()).isEqualTo(READY);
+    }
+
+    @Test
+    void aClientThatStopsReadingHoldsUpNoOne() throws IOException {
+        User owner = saveUser("changes-slow@example.com");
+        Connection slow = open(owner);
+        Connection reading = open(owner);
+        int subscribers = changeStream.getSubscriberCount();
+        long dropped = changeStream.getSubscribersDropped();
+
+        // Events wait for a client that pauses, and follow once it reads again
+        slow.reading = false;
+        for (int i = 1; i <= 3; i++) {
+            changeStream.publish(owner.getUserId(), ChangeStreamService.NOTE, ChangeStreamService.UPDATED, List.of(i));
+        }
+        assertThat(slow.text()).isEqualTo(READY);
+        slow.resume();
+        assertThat(slow.text()).isEqualTo(READY + updated(1) + updated(2) + updated(3));
+
+        // A client that stays away is disconnected once its buffer is full
+        slow.reading = false;
+        for (int i = 4; i <= 8; i++) {
+            changeStream.publish(owner.getUserId(), ChangeStreamService.NOTE, ChangeStreamService.UPDATED, List.of(i));
+        }
+        assertThat(changeStream.getSubscribersDropped()).isEqualTo(dropped + 1);
+        assertThat(changeStream.getSubscriberCount()).isEqualTo(subscribers - 1);
+        assertThat(slow.request.isAsyncStarted()).isFalse();
+
+        // The other stream of the same user got everything straight away
+        assertThat(reading.text()).isEqualTo(READY + updated(1) + updated(2) + updated(3) + updated(4)
+                + updated(5) + updated(6) + updated(7) + updated(8));
+        assertThat(reading.request.isAsyncStarted()).isTrue();
+    }
+
+    @Test
+    void changesMadeThroughOtherInstancesArrive() throws IOException {
+        User owner = saveUser("changes-remote@example.com");
+        Connection stream = open(owner);
+
+        // Changes made here are written for the other instances
+        changeStream.publish(owner.getUserId(), ChangeStreamService.SUBJECT, ChangeStreamService.DELETED, List.of(7));
+        assertThat(jdbcTemplate.queryForObject("SELECT payload FROM change_event WHERE user_id = ?", String.class,
+                owner.getUserId())).isEqualTo("{\"entity\":\"subject\",\"action\":\"deleted\",\"ids\":[7]}");
+
+        jdbcTemplate.update("INSERT INTO change_event (origin, user_id, payload, created_at) VALUES (?, ?, ?, ?)",
+                "another-instance", owner.getUserId(), "{\"entity\":\"folder\",\"action\":\"updated\",\"ids\":[3]}",
+                System.currentTimeMillis());
+        broadcaster.poll();
+        broadcaster.poll();
+
+        assertThat(stream.text()).isEqualTo(READY
+                + change("{\"entity\":\"subject\",\"action\":\"deleted\",\"ids\":[7]}")
+                + change("{\"entity\":\"folder\",\"action\":\"updated\",\"ids\":[3]}"));
+    }
+
+    @Test
+    void openStreamsPerUserAreLimited() throws IOException {
+        User owner = saveUser("changes-limit@example.com");
+        open(owner);
+        open(owner);
+        assertThatThrownBy(() -> open(owner))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode().value()).isEqualTo(429));
+    }
+
+    private Connection open(User user) throws IOException {
+        Connection connection = new Connection();
+        changeStream.subscribe(user.getUserId(), connection.request, connection.response);
+        return connection;
+    }
+
+    private static String updated(int id) {
+        return change("{\"entity\":\"note\",\"action\":\"updated\",\"ids\":[" + id + "]}");
+    }
+
+    private static String change(String json) {
+        return "event: change\ndata: " + json + "\n\n";
+    }
+
+    // A non-blocking connection whose client reads only while reading is set
+    private static class Connection extends ServletOutputStream {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        final MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return Connection.this;
+            }
+        };
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private volatile WriteListener listener;
+        volatile boolean reading = true;
+
+        Connection() {
+            request.setAsyncSupported(true);
+        }
+
+        @Override
+        public boolean isReady() {
+            return reading;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+            try {
+                writeListener.onWritePossible();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            received.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            received.write(bytes, offset, length);
+        }
+
+        // What the container does once the client has read what was sent
+        void resume() throws IOException {
+            reading = true;
+            listener.onWritePossible();
+        }
+
+        synchronized String text() {
+            return received.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("changes");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,193 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.SourceDocument;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.SourceDocumentRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Uploads text and Word files and checks how their format is recognised, how DOCX page
+ * breaks become pages, that the text limit is enforced, and that nothing is left behind
+ * in the spool directory whichever way an upload ends.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+class DocumentServiceTests {
+    private static final String STORAGE_DIR = "target/test-data/documents-service";
+    private static final byte[] PDF_HEAD = "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private DocumentTextExtractor extractor;
+
+    @Autowired
+    private SourceDocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void formatsAreRecognisedByTheirLeadingBytesBeforeTheirName() throws IOException {
+        Path dir = Files.createDirectories(Paths.get(STORAGE_DIR, "sniff"));
+        Path pdf = Files.write(dir.resolve("a"), PDF_HEAD);
+        Path zip = Files.write(dir.resolve("b"), docx("<w:p><w:r><w:t>x</w:t></w:r></w:p>"));
+        Path text = Files.write(dir.resolve("c"), "plain".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(extractor.detect(pdf, "renamed.txt")).isEqualTo(DocumentTextExtractor.Format.PDF);
+        assertThat(extractor.detect(pdf, null)).isEqualTo(DocumentTextExtractor.Format.PDF);
+        assertThat(extractor.detect(zip, "Notes.DOCX")).isEqualTo(DocumentTextExtractor.Format.DOCX);
+        // A zip that does not claim to be a Word document is not read as text either
+        assertThat(extractor.detect(zip, "archive.zip")).isNull();
+        assertThat(extractor.detect(zip, "archive.txt")).isNull();
+        assertThat(extractor.detect(text, "notes.md")).isEqualTo(DocumentTextExtractor.Format.TEXT);
+        assertThat(extractor.detect(text, "README")).isEqualTo(DocumentTextExtractor.Format.TEXT);
+        assertThat(extractor.detect(text, "setup.exe")).isNull();
+        assertThat(extractor.detect(Files.write(dir.resolve("d"), new byte[0]), "empty.txt"))
+                .isEqualTo(DocumentTextExtractor.Format.TEXT);
+    }
+
+    @Test
+    void docxPageBreaksStartNewPages() throws IOException {
+        DocumentService documents = documentService(1_000_000);
+        User user = saveUser("documents-docx@example.com");
+        byte[] file = docx("<w:p><w:r><w:t>Cells</w:t><w:tab/><w:t>are small.</w:t><w:br/><w:t>Line two</w:t></w:r></w:p>"
+                // An explicit break and the one Word rendered at the same spot make a single page break
+                + "<w:p><w:r><w:br w:type=\"page\"/><w:lastRenderedPageBreak/><w:t>Page two</w:t></w:r></w:p>"
+                + "<w:p><w:r><w:lastRenderedPageBreak/><w:t>Page three</w:t></w:r></w:p>"
+                // A break on an empty page starts no further page
+                + "<w:p><w:r><w:br w:type=\"page\"/></w:r></w:p>");
+
+        SourceDocument document = documents.upload(new MockMultipartFile("file", "cells.docx",
+                "application/octet-stream", file), user.getUserId());
+
+        assertThat(document.getFormat()).isEqualTo("DOCX");
+        assertThat(document.getPageCount()).isEqualTo(4);
+        assertThat(document.getCreatedAt()).isBeforeOrEqualTo(Instant.now());
+        String text = Files.readString(documents.getTextPath(document.getId(), user.getUserId()));
+        assertThat(text).isEqualTo("Cells\tare small.\nLine two\n\fPage two\n\fPage three\n\f\n");
+        assertThat(document.getCharCount()).isEqualTo(text.length());
+        assertThat(spooled()).isEmpty();
+
+        // The same file again is the same document, extracted once
+        assertThat(documents.upload(new MockMultipartFile("file", "copy.docx", "application/octet-stream", file),
+                user.getUserId()).getId()).isEqualTo(document.getId());
+    }
+
+    @Test
+    void textBeyondTheLimitIsRefusedAndNothingIsLeftInTheSpool() throws IOException {
+        DocumentService documents = documentService(100);
+        User user = saveUser("documents-limit@example.com");
+
+        StringWriter out = new StringWriter();
+        Path large = Files.write(Files.createDirectories(Paths.get(STORAGE_DIR, "limit")).resolve("large.txt"),
+                "x".repeat(101).getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> extractor.extract(large, DocumentTextExtractor.Format.TEXT, out, 100))
+                .isInstanceOf(DocumentTextExtractor.TextLimitExceededException.class);
+        assertThat(out.toString().length()).isLessThanOrEqualTo(100);
+
+        assertThat(documents.upload(text("fits.txt", "x".repeat(100)), user.getUserId()).getCharCount())
+                .isEqualTo(100);
+        assertStatus(() -> documents.upload(text("large.txt", "x".repeat(101)), user.getUserId()), 413);
+        // A small Word file can expand to far more text than its size
+        byte[] largeDocx = docx("<w:p><w:r><w:t>" + "y".repeat(1000) + "</w:t></w:r></w:p>");
+        assertStatus(() -> documents.upload(new MockMultipartFile("file", "large.docx", "application/octet-stream",
+                largeDocx), user.getUserId()), 413);
+        assertStatus(() -> documents.upload(new MockMultipartFile("file", "broken.docx", "application/octet-stream",
+                new byte[] { 'P', 'K', 3, 4, 0, 0 }), user.getUserId()), 422);
+        assertStatus(() -> documents.upload(new MockMultipartFile("file", "setup.exe", "application/octet-stream",
+                new byte[] { 'M', 'Z', 0, 0 }), user.getUserId()), 415);
+
+        assertThat(spooled()).isEmpty();
+        assertThat(documentRepository.findByUserUserIdOrderByIdDesc(user.getUserId())).hasSize(1);
+    }
+
+    @Test
+    void legacyTextUploadTimesBecomeTimestamps() {
+        // A database as it was before V8, with a document uploaded then
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy-documents;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .target("7").load().migrate();
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.update("INSERT INTO users (user_id, name, email, password) VALUES (1, 'old', 'old@example.com', 'x')");
+        legacy.update("INSERT INTO source_document (id, page_count, user_id, char_count, size_bytes, created_at) "
+                + "VALUES (1, 1, 1, 0, 0, '2024-03-01T10:15:30.123456789Z'), (2, 1, 1, 0, 0, '2024-03-02T08:00:00Z'), "
+                + "(3, 1, 1, 0, 0, 'yesterday')");
+
+        Flyway.configure().dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .load().migrate();
+
+        assertThat(legacy.queryForList("SELECT created_time FROM source_document ORDER BY id", Timestamp.class))
+                .containsExactly(Timestamp.valueOf("2024-03-01 10:15:30.123456"),
+                        Timestamp.valueOf("2024-03-02 08:00:00"), null);
+        legacy.execute("DROP ALL OBJECTS");
+    }
+
+    // A service of its own, with its own text limit and storage directory
+    private DocumentService documentService(long maxExtractedChars) {
+        return new DocumentService(documentRepository, userRepository, extractor, STORAGE_DIR, maxExtractedChars);
+    }
+
+    private static List<Path> spooled() throws IOException {
+        try (Stream<Path> files = Files.list(DocumentService.spoolDirectory(STORAGE_DIR))) {
+            return files.toList();
+        }
+    }
+
+    private static void assertStatus(Runnable upload, int status) {
+        assertThatThrownBy(upload::run).isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode().value()).isEqualTo(status));
+    }
+
+    private static MockMultipartFile text(String filename, String content) {
+        return new MockMultipartFile("file", filename, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // A minimal Word file: just document.xml with the given body
+    private static byte[] docx(String body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("word/document.xml"));
+            zip.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\">"
+                    + "<w:body>" + body + "</w:body></w:document>").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("documents");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+}
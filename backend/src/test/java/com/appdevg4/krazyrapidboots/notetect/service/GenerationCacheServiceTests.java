@@ -0,0 +1,176 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.repository.GenerationCacheRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stores generations from the stub generator and checks where lookups are answered:
+ * the in-memory LRU, the generation_cache table, or neither once entries are evicted.
+ */
+@SpringBootTest(properties = {
+        "notetect.generation.generator=stub",
+        "notetect.generation.cache.eviction-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+class GenerationCacheServiceTests {
+
+    @Autowired
+    private GenerationCacheService cache;
+
+    @Autowired
+    private GenerationCacheRepository repository;
+
+    @Autowired
+    private NoteGenerator generator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void emptyTable() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void lookupsGoToMemoryThenToTheTable() throws Exception {
+        String key = store(cache, "Cells are the unit of life. Mitochondria make ATP.");
+        long memoryHits = cache.getMemoryHits();
+        long databaseHits = cache.getDatabaseHits();
+        long misses = cache.getMisses();
+
+        assertThat(cache.get(key)).hasValueSatisfying(content -> assertThat(content).startsWith("# Summary"));
+        assertThat(cache.getMemoryHits()).isEqualTo(memoryHits + 1);
+
+        // Another instance has an empty memory tier: the table answers, then its own memory does
+        GenerationCacheService restarted = new GenerationCacheService(repository, 1024 * 1024, 30, 1024 * 1024);
+        assertThat(get(restarted, key)).isEqualTo(cache.get(key));
+        assertThat(restarted.getDatabaseHits()).isEqualTo(1);
+        assertThat(get(restarted, key)).isPresent();
+        assertThat(restarted.getMemoryHits()).isEqualTo(1);
+        assertThat(restarted.getHitRatio()).isEqualTo(1.0);
+
+        assertThat(cache.get(GenerationCacheService.cacheKey("Never generated.", "SUMMARY",
+                generator.promptVersion()))).isEmpty();
+        assertThat(cache.getMisses()).isEqualTo(misses + 1);
+        assertThat(cache.getDatabaseHits()).isEqualTo(databaseHits);
+    }
+
+    @Test
+    void theMemoryTierDropsTheLeastRecentlyUsedEntries() throws Exception {
+        // Room for two of the generated notes, about 40 bytes each
+        GenerationCacheService small = new GenerationCacheService(repository, 100, 30, 1024 * 1024);
+        String first = store(small, "First.");
+        String second = store(small, "Second.");
+        get(small, first);
+        String third = store(small, "Third.");
+
+        long databaseHits = small.getDatabaseHits();
+        assertThat(get(small, first)).isPresent();
+        assertThat(get(small, third)).isPresent();
+        assertThat(small.getDatabaseHits()).isEqualTo(databaseHits);
+        // Pushed out of memory, but still in the table
+        assertThat(get(small, second)).isPresent();
+        assertThat(small.getDatabaseHits()).isEqualTo(databaseHits + 1);
+
+        // Content larger than the whole memory tier is only kept in the table
+        String large = store(small, "Large. ".repeat(5) + "x".repeat(1000) + ".");
+        get(small, large);
+        get(small, large);
+        assertThat(small.getDatabaseHits()).isEqualTo(databaseHits + 3);
+    }
+
+    @Test
+    void evictionDropsOldEntriesThenTheLeastRecentlyUsedOverTheSizeLimit() throws Exception {
+        GenerationCacheService limited = new GenerationCacheService(repository, 1024 * 1024, 30, 50);
+        // About 20 bytes each: over the limit of 50 until two are gone
+        String stale = store(limited, "Stale.");
+        String older = store(limited, "Older.");
+        String newer = store(limited, "Newer.");
+        String newest = store(limited, "Newest.");
+        Instant now = Instant.now();
+        setLastUsedAt(stale, now.minus(Duration.ofDays(31)));
+        setLastUsedAt(older, now.minus(Duration.ofDays(3)));
+        setLastUsedAt(newer, now.minus(Duration.ofDays(2)));
+        setLastUsedAt(newest, now.minus(Duration.ofDays(1)));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> limited.evict());
+
+        assertThat(repository.findById(stale)).isEmpty();
+        assertThat(repository.findById(older)).isEmpty();
+        assertThat(repository.totalSizeBytes()).isLessThanOrEqualTo(50);
+        // No more is trimmed than needed
+        assertThat(repository.findById(newer)).isPresent();
+        assertThat(repository.findById(newest)).isPresent();
+        // Expired and trimmed entries leave the memory tier too
+        assertThat(get(limited, stale)).isEmpty();
+        assertThat(get(limited, older)).isEmpty();
+    }
+
+    @Test
+    void memoryHitsCountAsUsesWhenEvicting() throws Exception {
+        GenerationCacheService service = new GenerationCacheService(repository, 1024 * 1024, 30, 1024 * 1024);
+        String used = store(service, "Used from memory.");
+        String unused = store(service, "Not used.");
+        Instant old = Instant.now().minus(Duration.ofDays(31));
+        setLastUsedAt(used, old);
+        setLastUsedAt(unused, old);
+
+        long databaseHits = service.getDatabaseHits();
+        assertThat(get(service, used)).isPresent();
+        assertThat(service.getDatabaseHits()).isEqualTo(databaseHits);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> service.evict());
+
+        assertThat(repository.findById(used)).hasValueSatisfying(
+                entry -> assertThat(entry.getLastUsedAt()).isAfter(old.plus(Duration.ofDays(30))));
+        assertThat(repository.findById(unused)).isEmpty();
+    }
+
+    @Test
+    void copiesOfASourceThatDifferOnlyInWhitespaceOrCompositionShareAKey() {
+        String version = generator.promptVersion();
+        String key = GenerationCacheService.cacheKey("Café notes:\nthe menu.", "SUMMARY", version);
+        assertThat(GenerationCacheService.cacheKey("  Café notes:\r\n\tthe   menu.\n", "SUMMARY", version))
+                .isEqualTo(key);
+        assertThat(GenerationCacheService.cacheKey("Cafe notes: the menu.", "SUMMARY", version)).isNotEqualTo(key);
+        assertThat(GenerationCacheService.cacheKey("Café notes: the menu.", "FLASHCARD", version))
+                .isNotEqualTo(key);
+        assertThat(GenerationCacheService.cacheKey("Café notes: the menu.", "SUMMARY", version + "-next"))
+                .isNotEqualTo(key);
+    }
+
+    // Generate a summary with the stub and cache it, as a finished generation does
+    private String store(GenerationCacheService target, String source) throws Exception {
+        String key = GenerationCacheService.cacheKey(source, "SUMMARY", generator.promptVersion());
+        String content = generator.generate(source, "SUMMARY", token -> { });
+        target.put(key, "SUMMARY", generator.promptVersion(), content);
+        return key;
+    }
+
+    // Services built here have no transactional proxy, so lookups get a transaction of their own
+    private Optional<String> get(GenerationCacheService target, String key) {
+        return new TransactionTemplate(transactionManager).execute(status -> target.get(key));
+    }
+
+    private void setLastUsedAt(String key, Instant lastUsedAt) {
+        jdbcTemplate.update("UPDATE generation_cache SET last_used_at = ? WHERE cache_key = ?",
+                Timestamp.from(lastUsedAt), key);
+    }
+}
@@ -0,0 +1,284 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.SourceDocument;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Generates notes with the stub generator from pasted text and from an uploaded
+ * document, and checks that the source is hashed and read as a stream.
+ */
+@SpringBootTest(properties = {
+        "notetect.generation.generator=stub"
+})
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class GenerationServiceTests {
+    private static final Pattern DONE = Pattern.compile("event:done\ndata:\\{\"noteId\":(\\d+)}");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private NoteGenerator generator;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private GenerationCacheService cache;
+
+    @Test
+    void documentsAreGeneratedFromTheirFileAndAnsweredFromTheCacheAfterwards() throws Exception {
+        User user = saveUser("generate-document@example.com");
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+        // Far more text than the stub uses, so the document must not be read whole
+        StringBuilder text = new StringBuilder("Cells are the unit of life. Mitochondria make ATP.\n");
+        for (int i = 0; i < 20_000; i++) {
+            text.append("Filler sentence number ").append(i).append(" about membranes. ");
+        }
+        SourceDocument document = documentService.upload(new MockMultipartFile("file", "cells.txt", "text/plain",
+                text.toString().getBytes(StandardCharsets.UTF_8)), user.getUserId());
+
+        String generated = generate(token, "{\"documentId\":" + document.getId() + ",\"noteType\":\"SUMMARY\"}");
+        assertThat(generated).contains("event:started", "event:token").doesNotContain("event:cached");
+        Note note = noteRepository.findById(noteId(generated)).orElseThrow();
+        assertThat(note.getFilename()).isEqualTo("cells.txt");
+        assertThat(note.getContent()).isEqualTo("# Summary\n\n- Cells are the unit of life.\n- Mitochondria make ATP.\n"
+                + "- Filler sentence number 0 about membranes.\n- Filler sentence number 1 about membranes.\n"
+                + "- Filler sentence number 2 about membranes.\n");
+
+        // The same text pasted with other whitespace has the same key as the document
+        String pasted = "  " + text.toString().replace(". ", ".\r\n\t");
+        String cached = generate(token, "{\"text\":\"" + pasted.replace("\r", "\\r").replace("\n", "\\n")
+                .replace("\t", "\\t") + "\",\"noteType\":\"SUMMARY\"}");
+        assertThat(cached).contains("event:cached").doesNotContain("event:started");
+        assertThat(noteRepository.findById(noteId(cached)).orElseThrow().getContent()).isEqualTo(note.getContent());
+
+        assertThat(generate(token, "{\"noteType\":\"SUMMARY\"}")).isEmpty();
+    }
+
+    @Test
+    void notesAreOnlyGeneratedIntoTheUsersOwnFolders() throws Exception {
+        User user = saveUser("generate-folder@example.com");
+        User other = saveUser("generate-other@example.com");
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+        Folder foreign = saveFolder(other);
+
+        // Refused before anything is generated or queued
+        String request = "{\"text\":\"Cells divide.\",\"noteType\":\"SUMMARY\",\"folderId\":";
+        assertThat(mockMvc.perform(post("/api/generate").cookie(token).contentType(MediaType.APPLICATION_JSON)
+                .content(request + foreign.getId() + "}")).andReturn().getResponse().getStatus()).isEqualTo(403);
+        assertThat(mockMvc.perform(post("/api/generate").cookie(token).contentType(MediaType.APPLICATION_JSON)
+                .content(request + "999999}")).andReturn().getResponse().getStatus()).isEqualTo(404);
+        assertThat(noteRepository.findByUserUserId(user.getUserId())).isEmpty();
+
+        Note note = new Note();
+        note.setTitle("Smuggled");
+        assertThatThrownBy(() -> noteService.saveNoteWithFolder(note, user.getUserId(), foreign.getId()))
+                .hasMessage("User not authorized to add notes to this folder.");
+        assertThat(noteRepository.findByFolderId(foreign.getId())).isEmpty();
+
+        String generated = generate(token, request + saveFolder(user).getId() + "}");
+        assertThat(noteRepository.findById(noteId(generated))).isPresent();
+    }
+
+    @Test
+    void theUserLimitHoldsUnderContention() throws Exception {
+        GenerationService service = new GenerationService(generator, noteService, cache, documentService,
+                folderRepository, 1, 1, 1, 1000);
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger mostHolders = new AtomicInteger();
+        AtomicInteger acquired = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    if (service.acquire(7)) {
+                        mostHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                        acquired.incrementAndGet();
+                        holders.decrementAndGet();
+                        service.release(7);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        service.shutdown();
+
+        assertThat(acquired.get()).isPositive();
+        assertThat(mostHolders.get()).isEqualTo(1);
+        // Nothing is left behind once every slot is released
+        assertThat(service.acquire(7)).isTrue();
+        assertThat(service.acquire(7)).isFalse();
+    }
+
+    @Test
+    void theStubReadsOnlyTheSentencesItUses() throws Exception {
+        CountingReader source = new CountingReader(new StringReader(
+                "One. Two! Three? Four. Five. " + "Six and the rest. ".repeat(100_000)));
+        List<String> tokens = new ArrayList<>();
+        String content = generator.generate(source, "STUDY_GUIDE", tokens::add);
+
+        assertThat(content).isEqualTo("# Study Guide\n\n## Key Points\n\n- One.\n- Two!\n- Three?\n- Four.\n- Five.\n");
+        assertThat(String.join("", tokens)).isEqualTo(content);
+        assertThat(source.count).isLessThan(100);
+    }
+
+    @Test
+    void streamedKeysMatchTheNormalizedText() throws Exception {
+        String combining = "e\u0301";
+        String[] texts = {
+                "",
+                "   ",
+                "Cells  are\r\nthe unit\tof life.  ",
+                "caf" + combining + " na\u00efve " + combining.repeat(3),
+                // One word longer than the buffer, so it is normalized in pieces
+                ("x" + combining + "y").repeat(10_000),
+                "\u00e9\u0301\u0323 ".repeat(5_000)
+        };
+        for (String text : texts) {
+            String expected = referenceKey(text, "SUMMARY", "v1");
+            assertThat(GenerationCacheService.cacheKey(text, "SUMMARY", "v1")).isEqualTo(expected);
+            // A reader handing out one character at a time gives the same key
+            Reader trickle = new FilterReader(new StringReader(text)) {
+                @Override
+                public int read(char[] buffer, int offset, int length) throws IOException {
+                    return super.read(buffer, offset, Math.min(length, 1));
+                }
+            };
+            assertThat(GenerationCacheService.cacheKey(trickle, "SUMMARY", "v1")).isEqualTo(expected);
+        }
+        assertThat(GenerationCacheService.cacheKey("Cells.", "SUMMARY", "v1"))
+                .isNotEqualTo(GenerationCacheService.cacheKey("Cells.", "FLASHCARD", "v1"))
+                .isNotEqualTo(GenerationCacheService.cacheKey("Cells.", "SUMMARY", "v2"));
+    }
+
+    // The key as defined on the whole text: NFC, whitespace runs to one space, trimmed
+    private static String referenceKey(String text, String noteType, String promptVersion) throws Exception {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).replaceAll("\\s+", " ").trim();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(noteType.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(promptVersion.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // The event stream of a generation, once it is complete
+    private String generate(Cookie token, String body) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/generate").cookie(token)
+                .contentType(MediaType.APPLICATION_JSON).content(body)).andReturn();
+        if (result.getResponse().getStatus() != 200) {
+            return "";
+        }
+        result.getAsyncResult(10_000);
+        return result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private static int noteId(String events) {
+        Matcher done = DONE.matcher(events);
+        assertThat(done.find()).as(events).isTrue();
+        return Integer.parseInt(done.group(1));
+    }
+
+    private static final class CountingReader extends FilterReader {
+        long count;
+
+        CountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                count++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            count += Math.max(read, 0);
+            return read;
+        }
+    }
+
+    private Folder saveFolder(User user) {
+        Subject subject = new Subject();
+        subject.setName("Generated");
+        subject.setUser(user);
+        Folder folder = new Folder();
+        folder.setName("Generated");
+        folder.setSubject(subjectRepository.save(subject));
+        return folderRepository.save(folder);
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("generate");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+}
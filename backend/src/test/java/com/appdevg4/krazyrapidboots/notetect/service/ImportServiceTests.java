@@ -0,0 +1,217 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports NDJSON with a few broken records, then a few thousand notes with one the
+ * database refuses, then moves a workspace to another user through a zip export and import.
+ */
+@SpringBootTest(properties = {
+        "notetect.import.chunk-size=3"
+})
+@AutoConfigureTestDatabase
+class ImportServiceTests {
+
+    @Autowired
+    private ImportService importService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteSearchService noteSearchService;
+
+    @Autowired
+    private RevisionService revisionService;
+
+    @Autowired
+    private ChangeStreamService changeStream;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Test
+    void badRecordsAreReportedAndTheRestImported() {
+        User user = saveUser("import@example.com");
+        String ndjson = String.join("\n",
+                "{\"type\":\"export\",\"version\":1}",
+                "{\"type\":\"subject\",\"id\":7,\"name\":\"Chemistry\"}",
+                "{\"type\":\"folder\",\"id\":8,\"subjectId\":7,\"name\":\"Acids\"}",
+                "{\"type\":\"note\",\"folderId\":8,\"title\":\"pH\",\"createdAt\":\"2024-01-02T03:04:05Z\",\"content\":\"Acids donate protons\"}",
+                "{\"type\":\"note\",\"content\":\"no title\"}",
+                "not json",
+                "{\"type\":\"note\",\"folderId\":99,\"title\":\"lost\"}",
+                "",
+                "{\"title\":\"Bases\",\"subject\":\"Chemistry\",\"folder\":\"Acids\",\"content\":\"Bases accept protons\"}",
+                "{\"title\":\"Unfiled 1\"}",
+                "{\"title\":\"Unfiled 2\"}",
+                "{\"title\":\"" + "x".repeat(300) + "\"}");
+
+        ImportService.ImportResult result = importService.importArchive(new MockMultipartFile("file", "notes.ndjson",
+                "application/x-ndjson", ndjson.getBytes(StandardCharsets.UTF_8)), user.getUserId());
+
+        assertThat(result.imported).isEqualTo(4);
+        assertThat(result.failed).isEqualTo(4);
+        assertThat(result.subjectsCreated).isEqualTo(1);
+        assertThat(result.foldersCreated).isEqualTo(1);
+        assertThat(result.errors).extracting(error -> error.record)
+                .containsExactly("line 5", "line 6", "line 7", "line 12");
+        assertThat(result.errors.get(0).message).isEqualTo("title is required");
+
+        List<Note> notes = noteRepository.findByUserUserId(user.getUserId());
+        assertThat(notes).hasSize(4);
+        Note ph = notes.stream().filter(note -> note.getTitle().equals("pH")).findFirst().orElseThrow();
+        assertThat(ph.getCreatedAt()).isEqualTo(Instant.parse("2024-01-02T03:04:05Z"));
+        assertThat(noteRepository.findByFolderId(ph.getFolder().getId())).hasSize(2);
+        assertThat(noteService.searchNotes(user.getUserId(), "protons", 10)).hasSize(2);
+    }
+
+    @Test
+    void zipExportImportsIntoAnotherWorkspace() {
+        User source = saveUser("import-source@example.com");
+        String ndjson = String.join("\n",
+                "{\"type\":\"subject\",\"id\":1,\"name\":\"History\"}",
+                "{\"type\":\"folder\",\"id\":2,\"subjectId\":1,\"name\":\"Rome/Empire\"}",
+                "{\"type\":\"folder\",\"id\":3,\"subjectId\":1,\"name\":\"Empty\"}",
+                "{\"folderId\":2,\"title\":\"Augustus\",\"noteType\":\"SUMMARY\",\"content\":\"First emperor\\n---\\nof Rome\"}",
+                "{\"folderId\":2,\"title\":\"Nero: \\\"the fiddler\\\"\",\"content\":\"Rome burned\"}",
+                "{\"title\":\"Loose\",\"filename\":\"loose.pdf\",\"content\":\"\"}");
+        importService.importArchive(new MockMultipartFile("file", "notes.ndjson", "application/x-ndjson",
+                ndjson.getBytes(StandardCharsets.UTF_8)), source.getUserId());
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        exportService.write(source.getUserId(), ExportService.FORMAT_ZIP, zip);
+
+        User target = saveUser("import-target@example.com");
+        ImportService.ImportResult result = importService.importArchive(
+                new MockMultipartFile("file", "export.zip", "application/zip", zip.toByteArray()), target.getUserId());
+
+        assertThat(result.failed).isZero();
+        assertThat(result.imported).isEqualTo(3);
+        assertThat(result.subjectsCreated).isEqualTo(1);
+        // The empty folder comes back from its directory entry, named after the directory
+        assertThat(result.foldersCreated).isEqualTo(2);
+        assertThat(subjectRepository.findByUserUserIdOrderByIdAsc(target.getUserId())).hasSize(1);
+        assertThat(folderRepository.findSummariesByUserId(target.getUserId()))
+                .extracting(folder -> folder.getName()).containsExactlyInAnyOrder("Rome/Empire", "Empty");
+
+        List<Note> notes = noteRepository.findByUserUserId(target.getUserId());
+        assertThat(notes).extracting(Note::getTitle)
+                .containsExactlyInAnyOrder("Augustus", "Nero: \"the fiddler\"", "Loose");
+        Note augustus = notes.stream().filter(note -> note.getTitle().equals("Augustus")).findFirst().orElseThrow();
+        assertThat(augustus.getContent()).isEqualTo("First emperor\n---\nof Rome");
+        assertThat(augustus.getNoteType()).isEqualTo("SUMMARY");
+        Note loose = notes.stream().filter(note -> note.getTitle().equals("Loose")).findFirst().orElseThrow();
+        assertThat(loose.getFolder()).isNull();
+        assertThat(loose.getFilename()).isEqualTo("loose.pdf");
+
+        // Importing again reuses the subject and folders
+        ImportService.ImportResult again = importService.importArchive(
+                new MockMultipartFile("file", "export.zip", "application/zip", zip.toByteArray()), target.getUserId());
+        assertThat(again.subjectsCreated).isZero();
+        assertThat(again.foldersCreated).isZero();
+        assertThat(noteRepository.findByUserUserId(target.getUserId())).hasSize(6);
+    }
+
+    @Test
+    void aChunkThatFailsIsRetriedNoteByNoteAndOverlongLinesAreSkipped() {
+        User user = saveUser("import-chunks@example.com");
+        StringBuilder ndjson = new StringBuilder("{\"type\":\"subject\",\"id\":1,\"name\":\"Bulk\"}\n")
+                .append("{\"type\":\"folder\",\"id\":2,\"subjectId\":1,\"name\":\"All\"}\n");
+        for (int i = 0; i < 2500; i++) {
+            // Line 1503 is in the second chunk of 1000
+            String title = i == 1500 ? "Poison" : "Bulk " + i;
+            ndjson.append("{\"folderId\":2,\"title\":\"").append(title).append("\",\"content\":\"Note ").append(i)
+                    .append("\"}\r\n");
+        }
+        // One line over the limit, then one more note after it
+        ndjson.append("{\"title\":\"Huge\",\"content\":\"").append("x".repeat(5000)).append("\"}\n")
+                .append("{\"title\":\"After\"}");
+
+        // The database refuses the poisoned note, failing the whole chunk it is in
+        jdbcTemplate.execute("ALTER TABLE note ADD CONSTRAINT import_poison CHECK (title <> 'Poison')");
+        ImportService.ImportResult result;
+        try {
+            result = importService(1000, 4096).importArchive(new MockMultipartFile("file", "bulk.ndjson",
+                    "application/x-ndjson", ndjson.toString().getBytes(StandardCharsets.UTF_8)), user.getUserId());
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE note DROP CONSTRAINT import_poison");
+        }
+
+        assertThat(result.imported).isEqualTo(2500);
+        assertThat(result.failed).isEqualTo(2);
+        assertThat(result.errors).extracting(error -> error.record).containsExactly("line 1503", "line 2503");
+        assertThat(result.errors.get(0).message).startsWith("could not be saved: ");
+        assertThat(result.errors.get(1).message).isEqualTo("larger than 4096 bytes");
+
+        List<Note> notes = noteRepository.findByUserUserId(user.getUserId());
+        assertThat(notes).hasSize(2500);
+        assertThat(notes).extracting(Note::getTitle).contains("Bulk 0", "Bulk 1499", "Bulk 1501", "Bulk 2499", "After")
+                .doesNotContain("Poison", "Huge");
+        // The notes of the retried chunk are searchable like the others
+        assertThat(noteService.searchNotes(user.getUserId(), "1501", 10)).extracting(hit -> hit.title)
+                .containsExactly("Bulk 1501");
+    }
+
+    // A service with its own chunk size and entry limit, wired like the application's
+    private ImportService importService(int chunkSize, int maxEntryBytes) {
+        ImportService service = new ImportService(userRepository, subjectRepository, folderRepository,
+                noteSearchService, revisionService, changeStream, objectMapper, transactionManager,
+                chunkSize, maxEntryBytes);
+        beanFactory.autowireBean(service);
+        return service;
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("import");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,151 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Takes the shared revision table away and back, and checks that no 304 is sent in
+ * between and that changes made meanwhile still invalidate the ETags clients hold;
+ * and checks when a kept revision is read from the table again.
+ */
+@SpringBootTest(properties = {
+        "notetect.revisions.store=jdbc",
+        "notetect.revisions.probe-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class JdbcRevisionStoreTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcRevisionStore store;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void noNotModifiedWhileDegradedAndTheDatabaseIsUsedAgainOnceReachable() throws Exception {
+        User user = new User();
+        user.setName("revisions");
+        user.setEmail("revisions-store@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+
+        String before = notes(token, null).getHeader(HttpHeaders.ETAG);
+        assertThat(before).startsWith("\"db-");
+        assertThat(notes(token, before).getStatus()).isEqualTo(304);
+
+        jdbcTemplate.execute("ALTER TABLE user_revision RENAME TO user_revision_away");
+        try {
+            Note note = new Note();
+            note.setTitle("Written while degraded");
+            noteService.saveNote(note, user.getUserId());
+            assertThat(store.isReliable()).isFalse();
+
+            MockHttpServletResponse degraded = notes(token, before);
+            assertThat(degraded.getStatus()).isEqualTo(200);
+            assertThat(degraded.getHeader(HttpHeaders.ETAG)).isNull();
+
+            // Still unreachable: the probe changes nothing
+            store.probe();
+            assertThat(store.isReliable()).isFalse();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE user_revision_away RENAME TO user_revision");
+        }
+
+        store.probe();
+        assertThat(store.isReliable()).isTrue();
+        // The note written while degraded moved the shared revision on
+        assertThat(notes(token, before).getStatus()).isEqualTo(200);
+        String after = notes(token, null).getHeader(HttpHeaders.ETAG);
+        assertThat(after).startsWith("\"db-").isNotEqualTo(before);
+        assertThat(notes(token, after).getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void keptRevisionsFollowLocalIncrementsChangeEventsAndExpiry() throws Exception {
+        User user = new User();
+        user.setName("revisions");
+        user.setEmail("revisions-cache@example.com");
+        user.setPassword("unused");
+        Integer userId = userRepository.save(user).getUserId();
+        List<BiConsumer<Integer, String>> handlers = new ArrayList<>();
+        ChangeEventBroadcaster changeEvents = new ChangeEventBroadcaster() {
+            @Override
+            public void publish(Integer owner, String event) {
+            }
+
+            @Override
+            public void subscribe(BiConsumer<Integer, String> handler) {
+                handlers.add(handler);
+            }
+        };
+        JdbcRevisionStore kept = new JdbcRevisionStore(jdbcTemplate, transactionManager, changeEvents, 3_600_000, 100);
+
+        long revision = kept.increment(userId);
+        assertThat(kept.current(userId)).isEqualTo(revision);
+
+        // Another instance's write is not read until its change event arrives
+        otherInstanceIncrements(userId);
+        assertThat(kept.current(userId)).isEqualTo(revision);
+        handlers.forEach(handler -> handler.accept(userId, "{}"));
+        assertThat(kept.current(userId)).isEqualTo(revision + 1);
+        assertThat(kept.increment(userId)).isEqualTo(revision + 2);
+        assertThat(kept.current(userId)).isEqualTo(revision + 2);
+
+        // Without a change event, only until the revision expires
+        JdbcRevisionStore expiring = new JdbcRevisionStore(jdbcTemplate, transactionManager, changeEvents, 100, 100);
+        assertThat(expiring.current(userId)).isEqualTo(revision + 2);
+        otherInstanceIncrements(userId);
+        assertThat(expiring.current(userId)).isEqualTo(revision + 2);
+        Thread.sleep(200);
+        assertThat(expiring.current(userId)).isEqualTo(revision + 3);
+    }
+
+    private void otherInstanceIncrements(Integer userId) {
+        jdbcTemplate.update("UPDATE user_revision SET revision = revision + 1 WHERE user_id = ?", userId);
+    }
+
+    private MockHttpServletResponse notes(Cookie token, String ifNoneMatch) throws Exception {
+        var request = get("/api/notes").cookie(token);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+}
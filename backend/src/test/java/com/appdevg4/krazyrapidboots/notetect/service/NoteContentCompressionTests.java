@@ -0,0 +1,128 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.CompressedTextConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Round-trips note content through the compressing converter, then plants rows written
+ * before compression and checks that they read back as they were and that the migration
+ * compresses only the large ones.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+class NoteContentCompressionTests {
+    private static final int THRESHOLD = CompressedTextConverter.COMPRESSION_THRESHOLD;
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void contentReadsBackAsItWasWritten() {
+        String prose = "Mitochondria make ATP through oxidative phosphorylation. ".repeat(100);
+        StringBuilder random = new StringBuilder();
+        Random seeded = new Random(7);
+        while (random.length() < 4 * THRESHOLD) {
+            random.appendCodePoint(0x20 + seeded.nextInt(0x3000));
+        }
+        String[] texts = {
+                "",
+                "Short note",
+                // Multi-byte characters right at the threshold, which counts bytes
+                "é".repeat(THRESHOLD / 2),
+                "é".repeat(THRESHOLD / 2) + "x",
+                // Plain text that starts like the header
+                "\u0000NZ\u0001 not compressed",
+                "\u0000",
+                prose,
+                random.toString()
+        };
+        for (String text : texts) {
+            assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(text))).isEqualTo(text);
+        }
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+
+        // Small values stay plain UTF-8, large compressible ones shrink behind the header
+        assertThat(converter.convertToDatabaseColumn("Short note"))
+                .isEqualTo("Short note".getBytes(StandardCharsets.UTF_8));
+        byte[] compressed = converter.convertToDatabaseColumn(prose);
+        assertThat(CompressedTextConverter.hasHeader(compressed)).isTrue();
+        assertThat(compressed.length).isLessThan(prose.length() / 10);
+        // Text that does not compress grows by no more than the header
+        assertThat(converter.convertToDatabaseColumn(random.toString()).length)
+                .isLessThanOrEqualTo(random.toString().getBytes(StandardCharsets.UTF_8).length + 4);
+    }
+
+    @Test
+    void legacyPlainRowsAreReadAndThenCompressedByTheMigration() {
+        User user = new User();
+        user.setName("compression");
+        user.setEmail("compression@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        String large = "# Cells\n\n" + "- The membrane regulates transport of molecules.\n".repeat(200);
+        String small = "Photosynthesis converts light into glucose.";
+        int largeId = legacyNote(user, large);
+        int smallId = legacyNote(user, small);
+        Note current = new Note();
+        current.setTitle("Written compressed");
+        current.setContent(large);
+        current.setUser(user);
+        int currentId = noteRepository.save(current).getId();
+        byte[] currentBytes = storedContent(currentId);
+
+        // Plain UTF-8 rows read back as they are
+        assertThat(noteRepository.findById(largeId).orElseThrow().getContent()).isEqualTo(large);
+        assertThat(noteRepository.findById(smallId).orElseThrow().getContent()).isEqualTo(small);
+
+        // A few batches, so the walk crosses batch boundaries whatever else the table holds
+        NoteContentMigrator migrator = new NoteContentMigrator(jdbcTemplate, true, 2);
+        long batches = noteRepository.count() / 2 + 2;
+        for (long i = 0; i < batches; i++) {
+            migrator.migrateBatch();
+        }
+
+        byte[] migrated = storedContent(largeId);
+        assertThat(CompressedTextConverter.hasHeader(migrated)).isTrue();
+        assertThat(migrated.length).isLessThan(large.length() / 4);
+        assertThat(noteRepository.findById(largeId).orElseThrow().getContent()).isEqualTo(large);
+        // Small rows and rows already compressed are left as they were
+        assertThat(storedContent(smallId)).isEqualTo(small.getBytes(StandardCharsets.UTF_8));
+        assertThat(storedContent(currentId)).isEqualTo(currentBytes);
+    }
+
+    // A note whose content is stored the way it was before compression: plain UTF-8
+    private int legacyNote(User user, String content) {
+        Note note = new Note();
+        note.setTitle("Legacy");
+        note.setUser(user);
+        int id = noteRepository.save(note).getId();
+        jdbcTemplate.update("UPDATE note SET content = ? WHERE id = ?", content.getBytes(StandardCharsets.UTF_8), id);
+        return id;
+    }
+
+    private byte[] storedContent(int id) {
+        return jdbcTemplate.queryForObject("SELECT content FROM note WHERE id = ?", byte[].class, id);
+    }
+}
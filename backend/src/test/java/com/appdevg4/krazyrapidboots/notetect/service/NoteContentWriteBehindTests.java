@@ -0,0 +1,117 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.JwtUtil;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Simulates a user typing into several notes and checks that write-behind coalesces the
+ * updates, serves buffered content back, and writes everything out on shutdown.
+ */
+@SpringBootTest(properties = {
+        "notetect.notes.write-behind.enabled=true",
+        "notetect.notes.write-behind.window-ms=1000",
+        "notetect.notes.write-behind.flush-interval-ms=50"
+})
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+class NoteContentWriteBehindTests {
+    private static final int NOTES = 5;
+    private static final int KEYSTROKES = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private NoteContentWriteBehind writeBehind;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Test
+    void typingIsCoalescedReadBackAndFlushedOnStop() throws Exception {
+        User user = new User();
+        user.setName("typist");
+        user.setEmail("typist@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Cookie token = new Cookie("token", jwtUtil.generateToken(user.getUserId()));
+
+        List<Integer> noteIds = new ArrayList<>();
+        for (int n = 0; n < NOTES; n++) {
+            Note note = new Note();
+            note.setTitle("note " + n);
+            note.setContent("");
+            note.setNoteType("SUMMARY");
+            note.setUser(user);
+            noteIds.add(noteRepository.save(note).getId());
+        }
+
+        long writesBefore = writeBehind.getRowsWritten();
+        StringBuilder typed = new StringBuilder();
+        for (int k = 0; k < KEYSTROKES; k++) {
+            typed.append((char) ('a' + k % 26));
+            for (int noteId : noteIds) {
+                mockMvc.perform(put("/api/notes/{id}/content", noteId).cookie(token)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"content\":\"" + typed + "\"}"))
+                        .andExpect(status().isOk());
+            }
+            // Read-your-writes: the latest keystroke is visible before it is written
+            mockMvc.perform(get("/api/notes/{id}", noteIds.get(0)).cookie(token))
+                    .andExpect(jsonPath("$.content").value(typed.toString()));
+            Thread.sleep(10);
+        }
+
+        writeBehind.stop();
+        writeBehind.start();
+
+        long updates = (long) NOTES * KEYSTROKES;
+        long writes = writeBehind.getRowsWritten() - writesBefore;
+        assertThat(writeBehind.getPendingCount()).isZero();
+        assertThat(writes).isLessThan(updates / 5);
+        for (int noteId : noteIds) {
+            assertThat(noteRepository.findById(noteId).orElseThrow().getContent()).isEqualTo(typed.toString());
+        }
+
+        // A list read while content is buffered comes from the database; the flush must change its ETag
+        mockMvc.perform(put("/api/notes/{id}/content", noteIds.get(0)).cookie(token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"flushed later\"}"))
+                .andExpect(status().isOk());
+        String listedWhileBuffered = mockMvc.perform(get("/api/notes").cookie(token))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        writeBehind.flushAll();
+        mockMvc.perform(get("/api/notes").cookie(token).header(HttpHeaders.IF_NONE_MATCH, listedWhileBuffered))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(listedWhileBuffered)));
+    }
+}
@@ -0,0 +1,253 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.NoteRevision;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRevisionRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRevisionSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import com.appdevg4.krazyrapidboots.notetect.util.TextDiff;
+import com.appdevg4.krazyrapidboots.notetect.util.TextPatch;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Edits a note through the service, then reads, restores and compacts its history.
+ */
+@SpringBootTest(properties = {
+        "notetect.revisions.snapshot-interval=4",
+        "notetect.revisions.compaction-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+class NoteRevisionTests {
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteRevisionService noteRevisionService;
+
+    @Autowired
+    private NoteRevisionRepository revisionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void editsAreKeptAsDiffsAndCanBeRestored() {
+        User owner = saveUser("revisions@example.com");
+        User other = saveUser("revisions-other@example.com");
+        Note note = new Note();
+        note.setTitle("Cells");
+        note.setContent(lines(0, 200));
+        note = noteService.saveNote(note, owner.getUserId());
+        int id = note.getId();
+
+        // Every saved state, in revision order: the original, five content edits and a new title
+        List<String> contents = new ArrayList<>(List.of(lines(0, 200)));
+        for (int i = 1; i <= 5; i++) {
+            String content = lines(i, 200).replace("line 50 ", "line fifty " + i + " ");
+            noteService.updateNoteContent(id, content, owner.getUserId());
+            contents.add(content);
+        }
+        noteService.updateNoteTitle(id, "Cell biology", owner.getUserId());
+        contents.add(contents.get(contents.size() - 1));
+
+        List<NoteRevisionSummary> summaries = noteService.getNoteRevisions(id, owner.getUserId());
+        assertThat(summaries).extracting(NoteRevisionSummary::getSeq).containsExactly(7, 6, 5, 4, 3, 2, 1);
+        assertThat(summaries.get(0).getTitle()).isEqualTo("Cell biology");
+        // A snapshot to start with and then at most three diffs before the next one
+        assertThat(summaries).filteredOn(NoteRevisionSummary::getSnapshot).extracting(NoteRevisionSummary::getSeq)
+                .containsExactly(5, 1);
+        for (int seq = 1; seq <= 7; seq++) {
+            NoteRevisionService.Revision revision = noteService.getNoteRevision(id, seq, owner.getUserId());
+            assertThat(revision.content).isEqualTo(contents.get(seq - 1));
+            assertThat(revision.title).isEqualTo(seq == 7 ? "Cell biology" : "Cells");
+        }
+
+        // Diffs cost a small part of a copy
+        List<NoteRevision> stored = revisionRepository.findByNoteIdOrderBySeqAsc(id);
+        assertThat(stored.get(1).getData().length()).isLessThan(contents.get(1).length() / 10);
+
+        assertThatThrownBy(() -> noteService.getNoteRevisions(id, other.getUserId()))
+                .hasMessageContaining("not found");
+        assertThatThrownBy(() -> noteService.restoreNoteRevision(id, 1, other.getUserId()))
+                .hasMessageContaining("not authorized");
+
+        Note restored = noteService.restoreNoteRevision(id, 1, owner.getUserId());
+        assertThat(restored.getTitle()).isEqualTo("Cells");
+        assertThat(restored.getContent()).isEqualTo(contents.get(0));
+        assertThat(noteService.getNoteRevision(id, 8, owner.getUserId()).content).isEqualTo(contents.get(0));
+
+        noteService.deleteNote(id);
+        assertThat(revisionRepository.findByNoteIdOrderBySeqAsc(id)).isEmpty();
+    }
+
+    @Test
+    void oldRevisionsSavedCloseTogetherAreMerged() {
+        User owner = saveUser("revisions-compact@example.com");
+        Note note = new Note();
+        note.setTitle("History");
+        note.setContent(lines(0, 100));
+        note = noteService.saveNote(note, owner.getUserId());
+        int id = note.getId();
+        List<String> contents = new ArrayList<>(List.of(lines(0, 100)));
+        for (int i = 1; i <= 5; i++) {
+            noteService.updateNoteContent(id, lines(i, 100), owner.getUserId());
+            contents.add(lines(i, 100));
+        }
+
+        // Revisions 1-2 and 3-4 were each saved a minute apart, weeks ago; 5-6 are recent
+        Instant now = Instant.now();
+        setCreatedAt(id, 1, now.minus(Duration.ofDays(30)));
+        setCreatedAt(id, 2, now.minus(Duration.ofDays(30)).plusSeconds(60));
+        setCreatedAt(id, 3, now.minus(Duration.ofDays(20)));
+        setCreatedAt(id, 4, now.minus(Duration.ofDays(20)).plusSeconds(60));
+
+        noteRevisionService.compact();
+
+        assertThat(noteService.getNoteRevisions(id, owner.getUserId())).extracting(NoteRevisionSummary::getSeq)
+                .containsExactly(6, 5, 4, 2);
+        for (int seq : new int[] { 2, 4, 5, 6 }) {
+            assertThat(noteService.getNoteRevision(id, seq, owner.getUserId()).content)
+                    .isEqualTo(contents.get(seq - 1));
+        }
+        assertThatThrownBy(() -> noteService.getNoteRevision(id, 1, owner.getUserId()))
+                .hasMessageContaining("not found");
+        assertThat(revisionRepository.findByNoteIdOrderBySeqAsc(id).get(0).isSnapshot()).isTrue();
+
+        // Merged revisions are not looked at again
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM note_revision WHERE note_id = ? AND compacted",
+                Integer.class, id)).isEqualTo(2);
+    }
+
+    @Test
+    void changesMadeWithoutARevisionAreNoticedEvenWhenTheirHashesCollide() {
+        User owner = saveUser("revisions-digest@example.com");
+        Note note = new Note();
+        note.setTitle("Hashes");
+        note.setContent("Aa");
+        note = noteService.saveNote(note, owner.getUserId());
+        int id = note.getId();
+        noteRevisionService.record(id, "Hashes", "", "Hashes", "Aa");
+
+        // "BB" has the same String.hashCode as "Aa" but was never recorded
+        assertThat("BB".hashCode()).isEqualTo("Aa".hashCode());
+        noteRevisionService.record(id, "Hashes", "BB", "Hashes", "Cc");
+
+        assertThat(noteService.getNoteRevisions(id, owner.getUserId())).hasSize(4);
+        assertThat(noteService.getNoteRevision(id, 3, owner.getUserId()).content).isEqualTo("BB");
+        assertThat(noteService.getNoteRevision(id, 4, owner.getUserId()).content).isEqualTo("Cc");
+    }
+
+    @Test
+    void editsDuringCompactionKeepTheChainIntact() throws Exception {
+        User owner = saveUser("revisions-race@example.com");
+        Note note = new Note();
+        note.setTitle("Race");
+        note.setContent(lines(0, 100));
+        note = noteService.saveNote(note, owner.getUserId());
+        int id = note.getId();
+        for (int i = 1; i <= 8; i++) {
+            noteService.updateNoteContent(id, lines(i, 100), owner.getUserId());
+        }
+        Instant old = Instant.now().minus(Duration.ofDays(30));
+        for (int seq = 1; seq <= 9; seq++) {
+            setCreatedAt(id, seq, old.plusSeconds(seq));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> compaction = executor.submit(() -> noteRevisionService.compact());
+            Future<?> edits = executor.submit(() -> {
+                for (int i = 9; i <= 20; i++) {
+                    noteRevisionService.record(id, "Race", lines(i - 1, 100), "Race", lines(i, 100));
+                }
+            });
+            compaction.get(30, TimeUnit.SECONDS);
+            edits.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every revision that is left still reads back, and the edits were all kept
+        List<NoteRevisionSummary> summaries = noteService.getNoteRevisions(id, owner.getUserId());
+        for (NoteRevisionSummary summary : summaries) {
+            noteService.getNoteRevision(id, summary.getSeq(), owner.getUserId());
+        }
+        int latest = summaries.get(0).getSeq();
+        for (int i = 0; i < 12; i++) {
+            assertThat(noteService.getNoteRevision(id, latest - i, owner.getUserId()).content)
+                    .isEqualTo(lines(20 - i, 100));
+        }
+    }
+
+    @Test
+    void diffsReproduceTheNewText() {
+        Random random = new Random(42);
+        String[] words = { "a\n", "b\n", "c\n", "d", "\n", "ef", "" };
+        for (int round = 0; round < 500; round++) {
+            String from = randomText(random, words);
+            String to = randomText(random, words);
+            assertThat(TextPatch.apply(from, TextDiff.diff(from, to))).isEqualTo(to);
+        }
+        assertThat(TextDiff.diff("same\ntext\n", "same\ntext\n")).isEmpty();
+        assertThat(TextDiff.diff("one\ntwo\nthree\n", "one\n2\nthree\n")).singleElement()
+                .satisfies(edit -> {
+                    assertThat(edit.offset).isEqualTo(4);
+                    assertThat(edit.delete).isEqualTo(4);
+                    assertThat(edit.insert).isEqualTo("2\n");
+                });
+    }
+
+    private static String randomText(Random random, String[] words) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            text.append(words[random.nextInt(words.length)]);
+        }
+        return text.toString();
+    }
+
+    // Numbered lines, the first of them changed by edit
+    private static String lines(int edit, int count) {
+        StringBuilder text = new StringBuilder("# Edit " + edit + "\n");
+        for (int i = 1; i < count; i++) {
+            text.append("- line ").append(i).append(" of the notes on organelles and membranes\n");
+        }
+        return text.toString();
+    }
+
+    private void setCreatedAt(int noteId, int seq, Instant createdAt) {
+        jdbcTemplate.update("UPDATE note_revision SET created_at = ? WHERE note_id = ? AND seq = ?",
+                Timestamp.from(createdAt), noteId, seq);
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("revisions");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+}
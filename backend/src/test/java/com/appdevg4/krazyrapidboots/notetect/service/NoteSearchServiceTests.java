@@ -0,0 +1,144 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Restarts the search index from its snapshot and checks that it is reused only while
+ * nothing was written to the notes since, including edits that leave the count alone;
+ * and checks that writes made in a transaction reach the index only if it commits.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+class NoteSearchServiceTests {
+    private static final Path SNAPSHOT = Paths.get("target/test-data/search-freshness.bin");
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private NoteSearchService search;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void theSnapshotIsRebuiltAfterAnEditThatKeepsTheNoteCount() throws IOException {
+        Files.deleteIfExists(SNAPSHOT);
+        User user = new User();
+        user.setName("search");
+        user.setEmail("search-freshness@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Note note = new Note();
+        note.setTitle("Cells");
+        note.setContent("Mitochondria make ATP");
+        note.setUser(user);
+        int id = noteRepository.save(note).getId();
+        Integer userId = user.getUserId();
+
+        restarted().rebuildIndex();
+
+        // Edited behind the index's back: same number of notes, one version further
+        jdbcTemplate.update("UPDATE note SET title = 'Ribosomes', version = version + 1 WHERE id = ?", id);
+        assertThat(titles(restarted(), userId, "ribosomes")).containsExactly("Ribosomes");
+
+        // A write that leaves the version alone (as the compression migration does) goes unnoticed,
+        // which shows the snapshot written by the rebuild was reused
+        jdbcTemplate.update("UPDATE note SET title = 'Hidden' WHERE id = ?", id);
+        NoteSearchService reused = restarted();
+        assertThat(titles(reused, userId, "hidden")).isEmpty();
+        assertThat(titles(reused, userId, "ribosomes")).containsExactly("Hidden");
+
+        // A move bumps the version without touching the indexed text
+        jdbcTemplate.update("UPDATE note SET version = version + 1 WHERE id = ?", id);
+        reused.bumpVersions(List.of(id));
+        reused.saveIfChanged();
+        assertThat(titles(restarted(), userId, "hidden")).isEmpty();
+
+        // A delete and an insert keep the count but raise the highest id
+        jdbcTemplate.update("DELETE FROM note WHERE id = ?", id);
+        Note other = new Note();
+        other.setTitle("Chloroplasts");
+        other.setUser(user);
+        noteRepository.save(other);
+        assertThat(titles(restarted(), userId, "chloroplasts")).containsExactly("Chloroplasts");
+    }
+
+    @Test
+    void transactionalWritesReachTheIndexOnCommit() {
+        User user = new User();
+        user.setName("search");
+        user.setEmail("search-commit@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Integer userId = user.getUserId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            noteService.importNotes(List.of(note("Rolled back")), userId, null);
+            assertThat(titles(search, userId, "rolled")).isEmpty();
+            status.setRollbackOnly();
+        });
+        assertThat(titles(search, userId, "rolled")).isEmpty();
+
+        List<Integer> ids = transaction.execute(status -> {
+            List<Integer> created = noteService.importNotes(List.of(note("Committed")), userId, null);
+            assertThat(titles(search, userId, "committed")).isEmpty();
+            return created;
+        });
+        assertThat(titles(search, userId, "committed")).containsExactly("Committed");
+
+        transaction.executeWithoutResult(status -> {
+            noteService.deleteNotes(ids, userId);
+            status.setRollbackOnly();
+        });
+        assertThat(titles(search, userId, "committed")).containsExactly("Committed");
+        noteService.deleteNotes(ids, userId);
+        assertThat(titles(search, userId, "committed")).isEmpty();
+    }
+
+    private static Note note(String title) {
+        Note note = new Note();
+        note.setTitle(title);
+        note.setContent("Mitochondria make ATP");
+        return note;
+    }
+
+    // A fresh instance loading the snapshot, as on application start
+    private NoteSearchService restarted() {
+        NoteSearchService search = new NoteSearchService(noteRepository, SNAPSHOT.toString());
+        search.loadIndex();
+        return search;
+    }
+
+    private static List<String> titles(NoteSearchService search, Integer userId, String query) {
+        return search.search(userId, query, 10).stream().map(hit -> hit.title).toList();
+    }
+}
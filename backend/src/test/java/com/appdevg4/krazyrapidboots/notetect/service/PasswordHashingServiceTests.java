@@ -0,0 +1,75 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that password hashing turns away callers once its pool and queue are full, and
+ * that hashes made at another work factor are flagged for rehashing.
+ */
+class PasswordHashingServiceTests {
+
+    @Test
+    void rejectsWithRetryAfterWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        BCryptPasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        PasswordHashingService hashing = new PasswordHashingService(blocking, 4, 1, 1, 10_000);
+
+        // One check running, one queued
+        Thread running = new Thread(() -> hashing.matches("a", "b"));
+        running.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread queued = new Thread(() -> hashing.matches("a", "b"));
+        queued.start();
+        while (hashing.getQueueDepth() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> hashing.matches("a", "b"))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                    assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+                });
+        assertThat(hashing.getRejectedCount()).isEqualTo(1);
+
+        release.countDown();
+        running.join();
+        queued.join();
+        assertThat(hashing.getHashCount()).isEqualTo(2);
+        hashing.shutdown();
+    }
+
+    @Test
+    void flagsHashesMadeAtAnotherStrength() throws Exception {
+        PasswordHashingService hashing = new PasswordHashingService(new BCryptPasswordEncoder(5), 5, 1, 4, 10_000);
+
+        String current = hashing.encode("secret");
+        String older = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertThat(hashing.matches("secret", current)).isTrue();
+        assertThat(hashing.needsRehash(current)).isFalse();
+        assertThat(hashing.needsRehash(older)).isTrue();
+        hashing.shutdown();
+    }
+}
@@ -0,0 +1,124 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.config.ReplicaRoutingDataSource;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against two embedded databases: a primary and a replica seeded with a copy of it.
+ * Checks that read-only service methods read from the replica without filling the caches,
+ * and that a request that has written, and for a while its user, reads from the primary.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTests.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "notetect.datasource.replicas.urls=" + ReadReplicaRoutingTests.REPLICA_URL,
+        "notetect.datasource.replicas.health-check-ms=3600000",
+        "notetect.datasource.replicas.max-lag-ms=500"
+})
+class ReadReplicaRoutingTests {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void readOnlyReadsGoToReplicaUntilRequestWrites() throws InterruptedException {
+        User user = new User();
+        user.setName("routing");
+        user.setEmail("routing@example.com");
+        user.setPassword("unused");
+        user = userRepository.save(user);
+        Subject subject = new Subject();
+        subject.setName("Biology");
+        subject.setUser(user);
+        subject = subjectRepository.save(subject);
+
+        // Seed the replica with a copy of the primary, then let it diverge so reads show their source
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        jdbcTemplate.queryForList("SCRIPT NOPASSWORDS NOSETTINGS", String.class).forEach(replica::execute);
+        replica.update("UPDATE subject SET name = 'Replica copy' WHERE id = ?", subject.getId());
+        entityManagerFactory.getCache().evictAll();
+        // The test runs inside a mock request, which the writes above have pinned to the primary
+        RequestContextHolder.resetRequestAttributes();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long replicaConnections = routingDataSource.getReplicas().get(0).getConnections();
+
+        assertThat(subjectService.getAllSubjectsByUserId(user.getUserId()))
+                .extracting(Subject::getName).containsExactly("Replica copy");
+        assertThat(subjectService.getAllSubjectsByUserId(user.getUserId()))
+                .extracting(Subject::getName).containsExactly("Replica copy");
+        assertThat(statistics.getQueryCachePutCount()).isZero();
+        assertThat(statistics.getSecondLevelCachePutCount()).isZero();
+        assertThat(routingDataSource.getReplicas().get(0).getConnections()).isEqualTo(replicaConnections + 2);
+
+        // Repository calls outside a service transaction stay on the primary
+        assertThat(subjectRepository.findById(subject.getId())).get()
+                .extracting(Subject::getName).isEqualTo("Biology");
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getUserId(), null, List.of()));
+        try {
+            // After a write, the same request reads its own write from the primary
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+            try {
+                subjectService.updateSubjectName(subject.getId(), "Chemistry", user.getUserId());
+                assertThat(subjectService.getAllSubjectsByUserId(user.getUserId()))
+                        .extracting(Subject::getName).containsExactly("Chemistry");
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+
+            // So do the user's next requests, while a replica may still be catching up
+            assertThat(subjectService.getAllSubjectsByUserId(user.getUserId()))
+                    .extracting(Subject::getName).containsExactly("Chemistry");
+            assertThat(routingDataSource.getReplicas().get(0).getConnections()).isEqualTo(replicaConnections + 2);
+
+            // Past the lag window they go back to the replica
+            Thread.sleep(600);
+            assertThat(subjectService.getAllSubjectsByUserId(user.getUserId()))
+                    .extracting(Subject::getName).containsExactly("Replica copy");
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteSummary;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.flywaydb.core.Flyway;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Builds the schema from the migrations alone (Hibernate leaves it alone), then checks
+ * that the time-ordered note queries are planned on their indexes, that legacy text
+ * creation times are backfilled and that a database from before the migrations ends up
+ * with the same schema.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.appdevg4.krazyrapidboots.notetect.service.SchemaMigrationTests$RecordingInspector",
+        "notetect.created-time.backfill=true",
+        "notetect.created-time.interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+class SchemaMigrationTests {
+
+    // Remembers the SQL Hibernate prepares, so the test can EXPLAIN exactly that
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            synchronized (statements) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NoteCreatedTimeBackfill backfill;
+
+    @Test
+    void timeOrderedQueriesUseIndexes() {
+        User user = saveUser("indexes@example.com");
+        Instant now = Instant.now();
+        PageRequest page = PageRequest.of(0, 20);
+        // Enough rows, spread over types, for the planner's statistics to tell the indexes apart
+        for (int i = 0; i < 200; i++) {
+            jdbcTemplate.update("INSERT INTO note (id, user_id, version, title, note_type, created_time) "
+                    + "VALUES (?, ?, 0, 'n', ?, ?)", 200000 + i, user.getUserId(), "TYPE" + (i % 10),
+                    Timestamp.from(now.minusSeconds(i * 60L)));
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        // H2 does not choose indexes for their order (MySQL does for ORDER BY ... LIMIT), so for the
+        // plain recent query only check for an index lookup and that the index matches the ordering
+        String recent = planOf(() -> noteRepository.findRecentSummaries(user.getUserId(), page),
+                user.getUserId(), 20);
+        assertThat(recent).containsIgnoringCase("USER_ID = ?1").doesNotContainIgnoringCase("tableScan");
+        assertThat(jdbcTemplate.queryForList("SELECT column_name || ' ' || ordering_specification "
+                + "FROM information_schema.index_columns WHERE index_name = 'IDX_NOTE_USER_CREATED_ID' "
+                + "ORDER BY ordinal_position", String.class))
+                .containsExactly("USER_ID ASC", "CREATED_TIME DESC", "ID DESC");
+
+        // Likewise the sidebar's (created_time, id) keyset, which the index above matches column for column
+        String keyset = planOf(() -> noteRepository.findSummariesByUserIdBefore(user.getUserId(), now, 200100, page),
+                user.getUserId(), now, now, 200100, 20);
+        assertThat(keyset).containsIgnoringCase("USER_ID = ?1").doesNotContainIgnoringCase("tableScan");
+
+        String between = planOf(() -> noteRepository.findSummariesCreatedBetween(user.getUserId(),
+                now.minusSeconds(3600), now, page), user.getUserId(), now.minusSeconds(3600), now, 20);
+        assertThat(between).containsIgnoringCase("idx_note_user_created_id");
+
+        String byType = planOf(() -> noteRepository.findSummariesByType(user.getUserId(), "SUMMARY", page),
+                user.getUserId(), "SUMMARY", 20);
+        assertThat(byType).containsIgnoringCase("idx_note_user_type_created");
+
+        // Folder and subject lookups are served by the foreign key indexes
+        String byFolder = jdbcTemplate.queryForObject("EXPLAIN SELECT id FROM note WHERE folder_id = ?",
+                String.class, 1);
+        assertThat(byFolder).containsIgnoringCase("FOLDER_ID = ?1").doesNotContainIgnoringCase("tableScan");
+        String subjects = jdbcTemplate.queryForObject("EXPLAIN SELECT id FROM subject WHERE user_id = ?",
+                String.class, 1);
+        assertThat(subjects).containsIgnoringCase("USER_ID = ?1").doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    void legacyCreatedAtIsBackfilled() {
+        User user = saveUser("backfill@example.com");
+        Note current = new Note();
+        current.setTitle("current");
+        current.setUser(user);
+        current = noteRepository.save(current);
+        assertThat(current.getCreatedAt()).isNotNull();
+
+        // Rows written before V3 only have the text column
+        jdbcTemplate.update("INSERT INTO note (id, user_id, version, title, created_at) VALUES "
+                + "(100001, ?, 0, 'old', '2024-03-01T10:15:30.123Z'), "
+                + "(100002, ?, 0, 'garbled', 'yesterday')", user.getUserId(), user.getUserId());
+
+        backfill.checkLegacyColumn();
+        backfill.backfillBatch();
+
+        assertThat(backfill.isFinished()).isTrue();
+        assertThat(noteRepository.findById(100001)).get().extracting(Note::getCreatedAt)
+                .isEqualTo(Instant.parse("2024-03-01T10:15:30.123Z"));
+        assertThat(noteRepository.findById(100002)).get().extracting(Note::getCreatedAt).isNull();
+
+        List<NoteSummary> newest = noteRepository.findRecentSummaries(user.getUserId(), PageRequest.of(0, 2));
+        assertThat(newest).extracting(NoteSummary::getTitle).containsExactly("current", "old");
+    }
+
+    @Test
+    void preMigrationDatabaseIsBaselinedAndBroughtUpToDate() {
+        // A database ddl-auto created from the entities before migrations, with a note in it
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy-schema;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/common/V1__initial_schema.sql"))
+                .execute(dataSource);
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.update("INSERT INTO users (name, email, password) VALUES ('old', 'old@example.com', 'x')");
+        legacy.update("INSERT INTO note (user_id, title, content, created_at) "
+                + "VALUES (1, 'old', 'Cells divide.', '2024-03-01T10:15:30Z')");
+        legacy.update("INSERT INTO note (user_id, title) VALUES (1, 'older')");
+
+        Flyway.configure().dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .baselineOnMigrate(true).baselineVersion("1")
+                .load().migrate();
+
+        // Every column the migrations give a new database (Hibernate's temporary tables aside),
+        // and the notes as they were
+        String columns = "SELECT table_name || '.' || column_name || ' ' || data_type || ' ' || is_nullable "
+                + "FROM information_schema.columns WHERE table_schema = 'PUBLIC' "
+                + "AND table_name <> 'flyway_schema_history' AND LEFT(table_name, 4) <> 'HTE_' ORDER BY 1";
+        assertThat(legacy.queryForList(columns, String.class))
+                .isNotEmpty()
+                .containsExactlyElementsOf(jdbcTemplate.queryForList(columns, String.class));
+        assertThat(legacy.queryForObject("SELECT content FROM note WHERE id = 1", byte[].class))
+                .isEqualTo("Cells divide.".getBytes(StandardCharsets.UTF_8));
+        assertThat(legacy.queryForObject("SELECT version FROM note WHERE id = 1", Long.class)).isZero();
+        // New note ids continue past the existing ones
+        long nextBlock = legacy.queryForObject("SELECT NEXT VALUE FOR note_seq", Long.class);
+        assertThat(nextBlock - Note.ID_ALLOCATION_SIZE + 1).isGreaterThan(2);
+        legacy.execute("DROP ALL OBJECTS");
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("migrations");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+
+    // EXPLAIN the statement the query ran, with the same parameters
+    private String planOf(Supplier<?> query, Object... parameters) {
+        synchronized (RecordingInspector.statements) {
+            RecordingInspector.statements.clear();
+        }
+        query.get();
+        String sql;
+        synchronized (RecordingInspector.statements) {
+            sql = RecordingInspector.statements.get(RecordingInspector.statements.size() - 1);
+        }
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+    }
+}
@@ -0,0 +1,145 @@
+package com.appdevg4.krazyrapidboots.notetect.service;
+
+import com.appdevg4.krazyrapidboots.notetect.entity.Folder;
+import com.appdevg4.krazyrapidboots.notetect.entity.Note;
+import com.appdevg4.krazyrapidboots.notetect.entity.PurgeJob;
+import com.appdevg4.krazyrapidboots.notetect.entity.Subject;
+import com.appdevg4.krazyrapidboots.notetect.entity.User;
+import com.appdevg4.krazyrapidboots.notetect.repository.FolderRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.NoteRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.PurgeJobRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.SubjectRepository;
+import com.appdevg4.krazyrapidboots.notetect.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Deletes a small folder in one go and a large subject through a chunked purge job,
+ * checking that no note is loaded to delete it and that the search index follows.
+ */
+@SpringBootTest(properties = {
+        "notetect.purge.async-threshold=5",
+        "notetect.purge.chunk-size=2",
+        "notetect.purge.interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+class SubtreePurgeTests {
+
+    @Autowired
+    private SubjectService subjectService;
+
+    @Autowired
+    private FolderService folderService;
+
+    @Autowired
+    private NoteService noteService;
+
+    @Autowired
+    private SubtreePurgeService purgeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private FolderRepository folderRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private PurgeJobRepository purgeJobRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void smallSubtreesAreDeletedAtOnceAndLargeOnesInChunks() {
+        User owner = saveUser("purge@example.com");
+        User other = saveUser("purge-other@example.com");
+        Subject subject = saveSubject(owner);
+        Folder small = saveFolder(subject, "small", owner, 3);
+        Folder large = saveFolder(subject, "large", owner, 4);
+        Folder kept = saveFolder(saveSubject(owner), "kept", owner, 1);
+        assertThat(noteService.searchNotes(owner.getUserId(), "photosynthesis", 20)).hasSize(8);
+
+        assertThatThrownBy(() -> folderService.deleteFolder(small.getId(), other.getUserId()))
+                .hasMessageContaining("not authorized");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertThat(folderService.deleteFolder(small.getId(), owner.getUserId())).isEmpty();
+        assertThat(statistics.getEntityLoadCount()).isLessThanOrEqualTo(3);
+        assertThat(folderRepository.existsById(small.getId())).isFalse();
+        assertThat(noteRepository.findByFolderId(small.getId())).isEmpty();
+        assertThat(noteService.searchNotes(owner.getUserId(), "photosynthesis", 20)).hasSize(5);
+
+        // Four notes left in the subject, plus three more makes it too large for one request
+        saveFolder(subject, "more", owner, 3);
+        Optional<PurgeJob> started = subjectService.deleteSubject(subject.getId(), owner.getUserId());
+        assertThat(started).isPresent();
+        assertThat(started.get().getNotesTotal()).isEqualTo(7);
+        // Deleting again while the purge runs returns the same job
+        assertThat(subjectService.deleteSubject(subject.getId(), owner.getUserId())).get()
+                .extracting(PurgeJob::getId).isEqualTo(started.get().getId());
+
+        int runs = 0;
+        PurgeJob job;
+        do {
+            statistics.clear();
+            purgeService.purgeChunks();
+            assertThat(statistics.getEntityLoadCount()).isLessThanOrEqualTo(1);
+            job = purgeService.getJob(started.get().getId(), owner.getUserId());
+            runs++;
+        } while (!PurgeJob.DONE.equals(job.getStatus()) && runs < 10);
+
+        assertThat(job.getStatus()).isEqualTo(PurgeJob.DONE);
+        assertThat(job.getNotesDeleted()).isEqualTo(7);
+        assertThat(runs).isEqualTo(4);
+        assertThat(subjectRepository.existsById(subject.getId())).isFalse();
+        assertThat(folderRepository.existsById(large.getId())).isFalse();
+        assertThat(folderRepository.existsById(kept.getId())).isTrue();
+        assertThat(noteService.searchNotes(owner.getUserId(), "photosynthesis", 20)).hasSize(1);
+        assertThat(purgeJobRepository.findByStatusOrderByIdAsc(PurgeJob.RUNNING)).isEmpty();
+    }
+
+    private User saveUser(String email) {
+        User user = new User();
+        user.setName("purge");
+        user.setEmail(email);
+        user.setPassword("unused");
+        return userRepository.save(user);
+    }
+
+    private Subject saveSubject(User owner) {
+        Subject subject = new Subject();
+        subject.setName("Biology");
+        subject.setUser(owner);
+        return subjectRepository.save(subject);
+    }
+
+    private Folder saveFolder(Subject subject, String name, User owner, int notes) {
+        Folder folder = new Folder();
+        folder.setName(name);
+        folder = folderService.saveFolder(folder, subject.getId());
+        for (int i = 0; i < notes; i++) {
+            Note note = new Note();
+            note.setTitle(name + " " + i);
+            note.setContent("Photosynthesis turns light into chemical energy");
+            noteService.saveNoteWithFolder(note, owner.getUserId(), folder.getId());
+        }
+        return folder;
+    }
+}
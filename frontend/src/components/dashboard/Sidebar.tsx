@@ -3,17 +3,19 @@ import SidebarHeader from './SidebarHeader';
 import SidebarFooter from './SidebarFooter';
 import SidebarNotes from './SidebarNotes';
 import SidebarSubjects from './SidebarSubjects';
-import { User, Note, Subject } from '../../types';
+import { User, Note, Subject, ChangeEvent } from '../../types';
 
 interface SidebarProps {
   user: User | null;
   onLogout: () => void;
   refreshTrigger?: number;
+  // Latest change made elsewhere, applied by the sections it concerns
+  change?: ChangeEvent | null;
   onNoteSelect: (note: Note) => void;
   onUserUpdate?: (user: User) => void;
 }
 
-function Sidebar({ user, onLogout, refreshTrigger, onNoteSelect, onUserUpdate }: SidebarProps) {
+function Sidebar({ user, onLogout, refreshTrigger, change, onNoteSelect, onUserUpdate }: SidebarProps) {
   // State to track the currently selected Subject
   const [selectedSubject, setSelectedSubject] = useState<Subject | null>(null);
 
@@ -32,13 +34,14 @@ function Sidebar({ user, onLogout, refreshTrigger, onNoteSelect, onUserUpdate }:
         {/* Subjects section: handles selection AND nested rendering of folders with notes */}
         <SidebarSubjects 
           refreshTrigger={refreshTrigger} 
+          change={change}
           onSubjectSelect={handleSubjectSelect}
           selectedSubject={selectedSubject}
           onNoteSelect={onNoteSelect}
         />
 
         {/* Uncategorized Notes section */}
-        <SidebarNotes refreshTrigger={refreshTrigger} onNoteSelect={onNoteSelect} />
+        <SidebarNotes refreshTrigger={refreshTrigger} change={change} onNoteSelect={onNoteSelect} />
       </div>
 
       {/* Fixed Footer */}
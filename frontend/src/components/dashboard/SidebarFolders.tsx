@@ -2,12 +2,13 @@ import { useState, useEffect } from 'react';
 import { FolderIcon, FolderOpen, Plus, Trash2, ChevronDown, ChevronRight, Pencil, FileText } from 'lucide-react';
 import { foldersService } from '../../services/folders';
 import { notesService } from '../../services/notes';
-import { Folder, Note } from '../../types';
+import { Folder, Note, ChangeEvent } from '../../types';
 import DeleteConfirmDialog from './DeleteConfirmDialog';
 
 interface SidebarFoldersProps {
     subjectId: number;
     refreshTrigger?: number;
+    change?: ChangeEvent | null;
     onNoteSelect?: (note: Note) => void;
 }
 
@@ -17,7 +18,7 @@ interface DeleteDialogState {
     notesCount: number;
 }
 
-function SidebarFolders({ subjectId, refreshTrigger = 0, onNoteSelect }: SidebarFoldersProps) {
+function SidebarFolders({ subjectId, refreshTrigger = 0, change, onNoteSelect }: SidebarFoldersProps) {
     const [folders, setFolders] = useState<Folder[]>([]);
     const [isExpanded, setIsExpanded] = useState(true);
     const [isAdding, setIsAdding] = useState(false);
@@ -38,6 +39,41 @@ function SidebarFolders({ subjectId, refreshTrigger = 0, onNoteSelect }: Sidebar
         loadFolders(subjectId);
     }, [subjectId, refreshTrigger]);
 
+    useEffect(() => {
+        if (change) applyChange(change);
+    }, [change]);
+
+    // Apply a change made elsewhere, reloading only the folders it touches
+    const applyChange = async (change: ChangeEvent) => {
+        if (change.entity === 'folder') {
+            if (change.action === 'deleted') {
+                setFolders(prev => prev.filter(f => !change.ids.includes(f.id)));
+            } else {
+                try {
+                    setFolders(await foldersService.getAll(subjectId));
+                } catch (error) {
+                    console.error('Failed to load folders:', error);
+                }
+            }
+            return;
+        }
+        if (change.entity !== 'note') return;
+        if (change.action === 'deleted') {
+            setFolderNotes(prev => Object.fromEntries(Object.entries(prev)
+                .map(([id, notes]) => [id, notes.filter(n => !change.ids.includes(n.id))])));
+            return;
+        }
+        // Folders showing one of the notes, and the folder they are in now; notes created
+        // without a single folder (e.g. by an import) could be in any of them
+        const affected = new Set<number>();
+        Object.entries(folderNotes).forEach(([id, notes]) => {
+            if (change.action === 'created' && change.folderId == null) affected.add(Number(id));
+            else if (notes.some(n => change.ids.includes(n.id))) affected.add(Number(id));
+        });
+        if (change.folderId != null && folders.some(f => f.id === change.folderId)) affected.add(change.folderId);
+        affected.forEach(id => loadNotesForFolder(id));
+    };
+
     const loadFolders = async (id: number) => {
         try {
             const data = await foldersService.getAll(id); 
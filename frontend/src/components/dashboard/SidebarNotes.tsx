@@ -1,14 +1,18 @@
 import { useState, useEffect } from 'react';
 import { FileText, Trash2, ChevronDown, ChevronRight } from 'lucide-react';
 import { notesService } from '../../services/notes';
-import { Note } from '../../types';
+import { Note, ChangeEvent } from '../../types';
+
+// Changes to more notes than this (e.g. an import) reload the list instead
+const MAX_NOTES_FETCHED = 20;
 
 interface SidebarNotesProps {
     refreshTrigger?: number;
+    change?: ChangeEvent | null;
     onNoteSelect: (note: Note) => void;
 }
 
-function SidebarNotes({ refreshTrigger = 0, onNoteSelect }: SidebarNotesProps) {
+function SidebarNotes({ refreshTrigger = 0, change, onNoteSelect }: SidebarNotesProps) {
     const [notes, setNotes] = useState<Note[]>([]);
     const [isExpanded, setIsExpanded] = useState(true);
     const [isLoading, setIsLoading] = useState(false);
@@ -17,6 +21,10 @@ function SidebarNotes({ refreshTrigger = 0, onNoteSelect }: SidebarNotesProps) {
         loadNotes();
     }, [refreshTrigger]);
 
+    useEffect(() => {
+        if (change?.entity === 'note') applyChange(change);
+    }, [change]);
+
     const loadNotes = async () => {
         setIsLoading(true);
         try {
@@ -31,6 +39,31 @@ function SidebarNotes({ refreshTrigger = 0, onNoteSelect }: SidebarNotesProps) {
         }
     };
 
+    // Patch the list with just the notes a change concerns
+    const applyChange = async (change: ChangeEvent) => {
+        if (change.action === 'deleted' || change.folderId != null) {
+            // Deleted, or now in a folder: no longer listed here
+            setNotes(prev => prev.filter(n => !change.ids.includes(n.id)));
+            return;
+        }
+        if (change.ids.length > MAX_NOTES_FETCHED) {
+            loadNotes();
+            return;
+        }
+        const fetched = await Promise.all(change.ids.map(id => notesService.getById(id).catch(() => null)));
+        const changed = new Map<number, Note>();
+        fetched.forEach(note => { if (note) changed.set(note.id, note); });
+        setNotes(prev => {
+            const next = prev
+                .filter(n => !changed.get(n.id)?.folder)
+                .map(n => changed.get(n.id) ?? n);
+            changed.forEach(note => {
+                if (!note.folder && !prev.some(n => n.id === note.id)) next.push(note);
+            });
+            return next;
+        });
+    };
+
     const handleDeleteNote = async (id: number) => {
         try {
             await notesService.delete(id);
@@ -3,12 +3,13 @@ import { BookOpen, Plus, Trash2, ChevronDown, ChevronRight, Pencil } from 'lucid
 import { subjectsService } from '../../services/subjects';
 import { foldersService } from '../../services/folders';
 import { notesService } from '../../services/notes';
-import { Subject, Note, Folder } from '../../types';
+import { Subject, Note, Folder, ChangeEvent } from '../../types';
 import SidebarFolders from './SidebarFolders';
 import DeleteConfirmDialog from './DeleteConfirmDialog';
 
 interface SidebarSubjectsProps {
     refreshTrigger?: number;
+    change?: ChangeEvent | null;
     onSubjectSelect: (subject: Subject | null) => void; 
     selectedSubject: Subject | null;
     onNoteSelect?: (note: Note) => void;
@@ -21,7 +22,7 @@ interface DeleteDialogState {
     notesCount: number;
 }
 
-function SidebarSubjects({ refreshTrigger = 0, onSubjectSelect, selectedSubject, onNoteSelect }: SidebarSubjectsProps) {
+function SidebarSubjects({ refreshTrigger = 0, change, onSubjectSelect, selectedSubject, onNoteSelect }: SidebarSubjectsProps) {
     const [subjects, setSubjects] = useState<Subject[]>([]);
     const [isSubjectsExpanded, setIsSubjectsExpanded] = useState(true);
     const [isAdding, setIsAdding] = useState(false);
@@ -41,6 +42,17 @@ function SidebarSubjects({ refreshTrigger = 0, onSubjectSelect, selectedSubject,
         loadSubjects();
     }, [refreshTrigger]);
 
+    // A subject changed elsewhere: drop deleted ones, otherwise fetch the (short) list again
+    useEffect(() => {
+        if (change?.entity !== 'subject') return;
+        if (change.action === 'deleted') {
+            setSubjects(prev => prev.filter(s => !change.ids.includes(s.id)));
+            if (selectedSubject && change.ids.includes(selectedSubject.id)) onSubjectSelect(null);
+        } else {
+            loadSubjects();
+        }
+    }, [change]);
+
     const loadSubjects = async () => {
         setIsLoading(true);
         try {
@@ -252,6 +264,7 @@ function SidebarSubjects({ refreshTrigger = 0, onSubjectSelect, selectedSubject,
                                         <SidebarFolders 
                                             subjectId={subject.id}
                                             refreshTrigger={refreshTrigger}
+                                            change={change}
                                             onNoteSelect={onNoteSelect}
                                         />
                                     </div>
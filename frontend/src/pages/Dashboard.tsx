@@ -1,4 +1,4 @@
-import React, { useState, useRef } from 'react';
+import React, { useState, useRef, useEffect } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { Button } from '@/components/ui/button';
 import { Input } from '@/components/ui/input';
@@ -8,7 +8,8 @@ import { Textarea } from '@/components/ui/textarea';
 import { Upload, Loader2, FileText, Sparkles, Menu } from 'lucide-react';
 import { generateContent } from '../services/geminiService';
 import { notesService } from '../services/notes';
-import { Note, NoteType } from '../types';
+import { changesService } from '../services/changes';
+import { Note, NoteType, ChangeEvent } from '../types';
 import { useAuth } from '../context/AuthContext';
 import { Sidebar, GenerationTools, SaveNotePopup } from '../components/dashboard';
 import OutputView from '../components/dashboard/OutputView';
@@ -31,6 +32,7 @@ function Dashboard() {
   const [isDragging, setIsDragging] = useState(false);
   const [saveMessage, setSaveMessage] = useState<string | null>(null);
   const [notesRefreshTrigger, setNotesRefreshTrigger] = useState(0);
+  const [lastChange, setLastChange] = useState<ChangeEvent | null>(null);
   const [showSavePopup, setShowSavePopup] = useState(false);
   const [savedNoteId, setSavedNoteId] = useState<number | null>(null); // Track if generated note was saved
   const [popupMode, setPopupMode] = useState<'save' | 'configure'>('save');
@@ -38,6 +40,18 @@ function Dashboard() {
   const { user, logout, updateUser } = useAuth();
   const navigate = useNavigate();
 
+  // Apply changes made in other tabs or devices to the sidebar; reload it after a reconnect
+  useEffect(() => {
+    if (!user) return;
+    return changesService.subscribe((event) => {
+      if (event) {
+        setLastChange(event);
+      } else {
+        setNotesRefreshTrigger(prev => prev + 1);
+      }
+    });
+  }, [user?.userId]);
+
   const handleLogout = async () => {
     await logout();
     navigate('/login');
@@ -119,7 +133,8 @@ function Dashboard() {
     if (!noteId) return;
 
     try {
-      await notesService.updateContent(noteId, newContent);
+      const saved = await notesService.saveContent(noteId, newContent, selectedNote ?? undefined);
+      keepVersion(saved);
       // No need to refresh notes list - content changes don't affect the sidebar
     } catch (err) {
       console.error('Failed to update note content:', err);
@@ -160,6 +175,11 @@ function Dashboard() {
     }
   };
 
+  // Remember the version the server gave the saved content, for the next patch
+  const keepVersion = (saved: Note) => {
+    setSelectedNote(current => current && current.id === saved.id ? { ...current, version: saved.version } : current);
+  };
+
   const handleContentChange = async (id: number, newContent: string) => {
     // Update local state immediately
     if (selectedNote && selectedNote.id === id) {
@@ -168,9 +188,10 @@ function Dashboard() {
       setGeneratedOutput(newContent);
     }
 
-    // Persist to database
+    // Persist to database, sending only what changed
     try {
-      await notesService.updateContent(id, newContent);
+      const saved = await notesService.saveContent(id, newContent, selectedNote ?? undefined);
+      keepVersion(saved);
     } catch (error) {
       console.error("Failed to update note content:", error);
     }
@@ -276,7 +297,7 @@ function Dashboard() {
   return (
     <div className="min-h-screen bg-background flex font-sans text-foreground">
       {/* Sidebar */}
-      <Sidebar user={user} onLogout={handleLogout} refreshTrigger={notesRefreshTrigger} onNoteSelect={handleNoteSelect} onUserUpdate={updateUser} />
+      <Sidebar user={user} onLogout={handleLogout} refreshTrigger={notesRefreshTrigger} change={lastChange} onNoteSelect={handleNoteSelect} onUserUpdate={updateUser} />
 
       {/* Main Content */}
       <main className="flex-1 flex flex-col h-screen overflow-hidden bg-secondary/30">
@@ -2,6 +2,9 @@ import { ApiError } from '../types';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
+// Identifies this tab to the server, which names it in the change events its requests cause
+export const CLIENT_ID = crypto.randomUUID();
+
 async function handleResponse<T>(response: Response): Promise<T> {
   if (!response.ok) {
     const error: ApiError = {
@@ -30,6 +33,7 @@ export const api = {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
+        'X-Client-Id': CLIENT_ID,
       },
       credentials: 'include',
       body: JSON.stringify(data),
@@ -42,6 +46,20 @@ export const api = {
       method: 'PUT',
       headers: {
         'Content-Type': 'application/json',
+        'X-Client-Id': CLIENT_ID,
+      },
+      credentials: 'include',
+      body: JSON.stringify(data),
+    });
+    return handleResponse<T>(response);
+  },
+
+  async patch<T>(endpoint: string, data: unknown): Promise<T> {
+    const response = await fetch(`${API_BASE_URL}${endpoint}`, {
+      method: 'PATCH',
+      headers: {
+        'Content-Type': 'application/json',
+        'X-Client-Id': CLIENT_ID,
       },
       credentials: 'include',
       body: JSON.stringify(data),
@@ -49,9 +67,23 @@ export const api = {
     return handleResponse<T>(response);
   },
 
+  // Multipart upload; the browser sets the multipart Content-Type with its boundary
+  async upload<T>(endpoint: string, file: File): Promise<T> {
+    const body = new FormData();
+    body.append('file', file);
+    const response = await fetch(`${API_BASE_URL}${endpoint}`, {
+      method: 'POST',
+      headers: { 'X-Client-Id': CLIENT_ID },
+      credentials: 'include',
+      body,
+    });
+    return handleResponse<T>(response);
+  },
+
   async delete(endpoint: string): Promise<void> {
     const response = await fetch(`${API_BASE_URL}${endpoint}`, {
       method: 'DELETE',
+      headers: { 'X-Client-Id': CLIENT_ID },
       credentials: 'include',
     });
     if (!response.ok) {
@@ -0,0 +1,26 @@
+import { ChangeEvent } from '../types';
+import { CLIENT_ID } from './api';
+
+const CHANGES_URL = 'http://localhost:8080/api/changes';
+
+export const changesService = {
+  // Listen for changes to the user's data made elsewhere (other tabs, devices or sessions);
+  // returns a function that closes the stream. This tab's own changes are skipped, as it
+  // already shows them. The browser reconnects on its own, and onChange is called without
+  // an event after every reconnect, since changes made while disconnected were not seen.
+  subscribe(onChange: (event?: ChangeEvent) => void): () => void {
+    const source = new EventSource(CHANGES_URL, { withCredentials: true });
+    let connected = false;
+
+    source.addEventListener('ready', () => {
+      if (connected) onChange();
+      connected = true;
+    });
+    source.addEventListener('change', (message) => {
+      const event = JSON.parse((message as MessageEvent).data) as ChangeEvent;
+      if (event.origin !== CLIENT_ID) onChange(event);
+    });
+
+    return () => source.close();
+  },
+};
@@ -0,0 +1,17 @@
+import { api } from './api';
+import { SourceDocument } from '../types';
+
+export const documentsService = {
+  // Upload a PDF, DOCX or text file as multipart instead of base64 JSON
+  async upload(file: File): Promise<SourceDocument> {
+    return api.upload<SourceDocument>('/documents', file);
+  },
+
+  async getAll(): Promise<SourceDocument[]> {
+    return api.get<SourceDocument[]>('/documents');
+  },
+
+  async getById(id: number): Promise<SourceDocument> {
+    return api.get<SourceDocument>(`/documents/${id}`);
+  },
+};
@@ -2,4 +2,6 @@ export { authService } from './auth';
 export { notesService } from './notes';
 export { foldersService } from './folders';
 export { subjectsService } from './subjects';
+export { documentsService } from './documents';
+export { changesService } from './changes';
 export { api } from './api';
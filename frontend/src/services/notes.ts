@@ -1,5 +1,15 @@
 import { api } from './api';
-import { Note, CreateNoteRequest } from '../types';
+import { Note, CreateNoteRequest, TextEdit, ApiError } from '../types';
+
+// The single splice that turns one text into the other: everything between their common prefix and suffix
+export function spliceEdit(from: string, to: string): TextEdit {
+  let prefix = 0;
+  const max = Math.min(from.length, to.length);
+  while (prefix < max && from[prefix] === to[prefix]) prefix++;
+  let suffix = 0;
+  while (suffix < max - prefix && from[from.length - 1 - suffix] === to[to.length - 1 - suffix]) suffix++;
+  return { offset: prefix, delete: from.length - prefix - suffix, insert: to.slice(prefix, to.length - suffix) };
+}
 
 export const notesService = {
   // Get all notes for the current user
@@ -37,6 +47,27 @@ export const notesService = {
     return api.put<Note>(`/notes/${id}/content`, { content });
   },
 
+  // Send only the changed ranges; fails with status 409 if the note changed since baseVersion
+  async patchContent(id: number, baseVersion: number, edits: TextEdit[]): Promise<Note> {
+    return api.patch<Note>(`/notes/${id}/content`, { baseVersion, edits });
+  },
+
+  // Save edited content: as a patch against the version this tab last saw if it knows one,
+  // otherwise (or if the note changed elsewhere since) as the whole content
+  async saveContent(id: number, content: string, previous?: Note): Promise<Note> {
+    if (previous?.version === undefined || previous.id !== id) {
+      return notesService.updateContent(id, content);
+    }
+    try {
+      return await notesService.patchContent(id, previous.version, [spliceEdit(previous.content ?? '', content)]);
+    } catch (error) {
+      if ((error as ApiError).status === 409) {
+        return notesService.updateContent(id, content);
+      }
+      throw error;
+    }
+  },
+
   // Move note to a different folder (new endpoint)
   async moveToFolder(noteId: number, folderId?: number): Promise<Note> {
     const endpoint = folderId 
@@ -57,10 +57,24 @@ export interface Note {
     filename: string;
     createdAt: string;
     noteType?: string;
+    // Optimistic lock version, sent back as baseVersion when patching content
+    version?: number;
     folder?: Folder;
     // Note: subject is now accessed through folder.subject (via Folder)
 }
 
+// An uploaded source file; its extracted text is kept on the server
+export interface SourceDocument {
+    id: number;
+    filename: string;
+    format: 'PDF' | 'DOCX' | 'TEXT';
+    sizeBytes: number;
+    sha256: string;
+    pageCount: number;
+    charCount: number;
+    createdAt: string;
+}
+
 // ============ Request/Response Interfaces ============
 export interface GenerateNoteParams {
     text: string;
@@ -78,6 +92,13 @@ export interface CreateNoteRequest {
     // Note: folderId is passed as a query parameter, not in the body
 }
 
+// A splice edit; offsets are string indices into the current content
+export interface TextEdit {
+    offset: number;
+    delete: number;
+    insert: string;
+}
+
 /**
  * @interface CreateFolderRequest
  * Links the new folder to the active subject via subjectId query param
@@ -96,6 +117,17 @@ export interface ApiError {
     status?: number;
 }
 
+// Pushed on /api/changes when a note, folder or subject of the user changes
+export interface ChangeEvent {
+    entity: 'note' | 'folder' | 'subject';
+    action: 'created' | 'updated' | 'moved' | 'deleted';
+    ids: number[];
+    // For moved notes, and notes created in one folder
+    folderId?: number;
+    // Client id of the tab whose request made the change
+    origin?: string;
+}
+
 // ============ Legacy/Local Interfaces ============
 export interface HistoryItem {
     id: string;